@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the structural scanner and the tape with Jackson's parser on payloads of about 1 MB.
+ *
+ * Run with <code>./gradlew jmh</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StructuralScannerBenchmark {
+
+    private static final int PAYLOAD_SIZE = 1 << 20;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The shape of the payload: a list of records as returned by REST APIs, deeply nested objects, long texts or
+     * arrays of numbers.
+     */
+    @Param({"records", "nested", "text", "numbers"})
+    public String shape;
+
+    private byte[] payload;
+
+    @Setup
+    public void createPayload() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < PAYLOAD_SIZE; i++) {
+            json.append(i == 0 ? "" : ",");
+            switch (shape) {
+                case "records":
+                    json.append("{\"id\":").append(i).append(",\"name\":\"Item ").append(i)
+                            .append("\",\"price\":").append(random.nextInt(10000) / 100.0)
+                            .append(",\"active\":").append(random.nextBoolean())
+                            .append(",\"tags\":[\"a\",\"b\"],\"owner\":null}");
+                    break;
+                case "nested":
+                    appendNested(json, 6, random);
+                    break;
+                case "text":
+                    json.append("{\"text\":\"");
+                    for (int j = 0; j < 500; j++) {
+                        json.append(j % 97 == 0 ? "\\\"quoted\\\" " : (char) ('a' + random.nextInt(26)));
+                    }
+                    json.append("\"}");
+                    break;
+                default:
+                    json.append(random.nextLong()).append(',').append(random.nextDouble());
+            }
+        }
+        payload = json.append("]").toString().getBytes(UTF_8);
+    }
+
+    private static void appendNested(StringBuilder json, int depth, Random random) {
+        if (depth == 0) {
+            json.append(random.nextInt(100));
+            return;
+        }
+        json.append("{\"left\":");
+        appendNested(json, depth - 1, random);
+        json.append(",\"right\":[");
+        appendNested(json, depth - 2 < 0 ? 0 : depth - 2, random);
+        json.append("]}");
+    }
+
+    @Benchmark
+    public int scanSwar() {
+        return StructuralScanner.INSTANCE.scan(ByteBuffer.wrap(payload), true).length;
+    }
+
+    @Benchmark
+    public int scanScalar() {
+        return StructuralScanner.INSTANCE.scan(ByteBuffer.wrap(payload), false).length;
+    }
+
+    @Benchmark
+    public int buildTape() {
+        return JsonTape.of(payload).getEntries();
+    }
+
+    @Benchmark
+    public int jacksonTokens() throws IOException {
+        int tokens = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            while (parser.nextToken() != null) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public JsonNode jacksonTree() throws IOException {
+        return MAPPER.readTree(payload);
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+/**
+ * Sample of the elements of large arrays that are matched, see [MatcherConfig.sampling].
+ *
+ * Arrays with at least [minArraySize] compared elements are only checked at the sampled indices: the first and last
+ * [edgeElements] elements and the elements selected either at random or by a stride. The random selection of an
+ * index only depends on the seed and the index, so a failing sample can be reproduced with the same seed. The
+ * sizes of the arrays are always checked completely.
+ *
+ * @property rate         Share of the elements that are selected at random, or null for a stride sample.
+ * @property seed         Seed of the random selection.
+ * @property stride       Distance of the selected elements in a stride sample, or null for a random sample.
+ * @property edgeElements Number of elements at the start and at the end of an array that are always checked.
+ * @property minArraySize Number of compared elements from which on arrays are sampled. Smaller arrays are checked
+ *                        completely.
+ */
+class ArraySampling private constructor(val rate: Double?,
+                                        val seed: Long,
+                                        val stride: Int?,
+                                        val edgeElements: Int,
+                                        val minArraySize: Int) {
+
+    /**
+     * Companion object provides support methods for [ArraySampling].
+     */
+    companion object {
+
+        /**
+         * Maximum number of index ranges that are listed in error messages.
+         */
+        private const val LISTED_RANGES = 20
+
+        /**
+         * Increment of the SplitMix64 generator (the golden ratio), which spreads the seeds of neighbouring indices.
+         */
+        private const val GOLDEN_GAMMA = -7046029254386353131L
+
+        /**
+         * @param rate Share of the elements that are selected, between 0 and 1.
+         * @param seed Seed of the selection.
+         * @return A sample that selects elements at random.
+         */
+        @JvmStatic
+        fun random(rate: Double, seed: Long): ArraySampling {
+            require(rate in 0.0..1.0) { "Sampling rate must be between 0 and 1, but is $rate" }
+            return ArraySampling(rate, seed, null, 10, 1000)
+        }
+
+        /**
+         * @param stride Distance of the selected elements, e.g. 100 to select every 100th element.
+         * @return A sample that selects elements by a fixed stride.
+         */
+        @JvmStatic
+        fun stride(stride: Int): ArraySampling {
+            require(stride > 0) { "Sampling stride must be positive, but is $stride" }
+            return ArraySampling(null, 0, stride, 10, 1000)
+        }
+    }
+
+    /**
+     * @param edgeElements Number of elements at the start and at the end of an array that are always checked.
+     * @return A copy of this sample with the given number of edge elements.
+     */
+    fun withEdgeElements(edgeElements: Int): ArraySampling {
+        require(edgeElements >= 0) { "Number of sampling edge elements must not be negative, but is $edgeElements" }
+        return ArraySampling(rate, seed, stride, edgeElements, minArraySize)
+    }
+
+    /**
+     * @param minArraySize Number of compared elements from which on arrays are sampled.
+     * @return A copy of this sample with the given minimum array size.
+     */
+    fun withMinArraySize(minArraySize: Int): ArraySampling {
+        require(minArraySize >= 0) { "Minimum size of sampled arrays must not be negative, but is $minArraySize" }
+        return ArraySampling(rate, seed, stride, edgeElements, minArraySize)
+    }
+
+    /**
+     * @param index Index of an element.
+     * @return Whether the element is selected, regardless of its position relative to the edges of the array.
+     */
+    internal fun isSelected(index: Int): Boolean = if (stride != null) {
+        index % stride == 0
+    } else {
+        // Uniform double in [0, 1) from the top 53 bits of the output of SplitMix64 for the index
+        (random(index) ushr 11) * (1.0 / (1L shl 53)) < rate!!
+    }
+
+    /**
+     * @param index Index of an element.
+     * @return The pseudo random number of the index, the output of SplitMix64 with the seed at the index.
+     */
+    private fun random(index: Int): Long {
+        var z = seed + (index + 1) * GOLDEN_GAMMA
+        z = (z xor (z ushr 30)) * -4658895280553007687L
+        z = (z xor (z ushr 27)) * -7723592293110705685L
+        return z xor (z ushr 31)
+    }
+
+    /**
+     * @param index Index of an element.
+     * @param size  Number of compared elements of the array.
+     * @return Whether the element is checked.
+     */
+    internal fun isSampled(index: Int, size: Int): Boolean =
+            size < minArraySize || index < edgeElements || index >= size - edgeElements || isSelected(index)
+
+    /**
+     * @param size Number of compared elements of an array.
+     * @return Whether the array is sampled, i.e. not all of its elements are checked.
+     */
+    internal fun isSampling(size: Int): Boolean = size >= minArraySize && size > 2 * edgeElements
+
+    /**
+     * @param attributeName Name of the array (absolute path from root).
+     * @param size          Number of compared elements of the array.
+     * @return Description of the checked elements of the array for error messages.
+     */
+    internal fun describe(attributeName: String, size: Int): String {
+        val ranges = ArrayList<IntRange>()
+        var count = 0
+        for (index in 0 until size) {
+            if (isSampled(index, size)) {
+                count++
+                val last = ranges.lastOrNull()
+                if (last != null && last.last == index - 1) {
+                    ranges[ranges.size - 1] = last.first..index
+                } else {
+                    ranges.add(index..index)
+                }
+            }
+        }
+        val listed = ranges.take(LISTED_RANGES).joinToString { if (it.first == it.last) "${it.first}" else "$it" }
+        val more = if (ranges.size > LISTED_RANGES) ", ..." else ""
+        return "Sampled $count of $size elements of $attributeName ($this): $listed$more"
+    }
+
+    override fun toString(): String {
+        val selection = if (stride != null) "every ${stride}th element" else "random rate $rate, seed $seed"
+        return "$selection, first and last $edgeElements elements"
+    }
+}
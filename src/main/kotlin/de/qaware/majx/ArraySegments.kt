@@ -0,0 +1,148 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import java.util.ArrayDeque
+
+/**
+ * The parts of a pattern array with wildcards at arbitrary positions, e.g. `[ "a", "...", "b", "c", "...", "z" ]`.
+ *
+ * Each wildcard matches any number of actual elements. The pattern elements between the wildcards form segments that
+ * have to match consecutive actual elements in the order of the segments. The segment before the first wildcard is
+ * anchored at the start of the actual array, the segment after the last wildcard at its end. The segments in between
+ * are matched by a scan from left to right that places each segment at the first position it matches. Placing a
+ * segment as early as possible never prevents a later segment from matching, so there is no backtracking: each
+ * actual element is the start of at most one attempt per segment.
+ *
+ * @property pattern   The pattern array.
+ * @property prefix    Indices of the pattern elements before the first wildcard.
+ * @property infixes   Indices of the pattern elements of the non-empty segments between wildcards.
+ * @property suffix    Indices of the pattern elements after the last wildcard.
+ * @property specified Number of pattern elements that are not wildcards, i.e. the minimum size of the actual array.
+ */
+internal class ArraySegments private constructor(val pattern: ArrayNode,
+                                                 val prefix: IntRange,
+                                                 val infixes: List<IntRange>,
+                                                 val suffix: IntRange) {
+
+    val specified: Int = prefix.count() + infixes.sumBy { it.count() } + suffix.count()
+
+    /**
+     * Companion object provides support methods for [ArraySegments].
+     */
+    companion object {
+
+        /**
+         * @param pattern Pattern array.
+         * @return The segments of the pattern array or null if the pattern array contains no wildcard.
+         */
+        fun of(pattern: ArrayNode): ArraySegments? {
+            val wildcards = (0 until pattern.size()).filter { JsonMatcher.isWildcard(pattern.get(it)) }
+            if (wildcards.isEmpty()) {
+                return null
+            }
+            val infixes = wildcards.zipWithNext { start, end -> start + 1 until end }.filterNot { it.isEmpty() }
+            return ArraySegments(pattern, 0 until wildcards.first(), infixes, wildcards.last() + 1 until pattern.size())
+        }
+
+        /**
+         * @param pattern Pattern array.
+         * @return Whether any element of the pattern array is a wildcard.
+         */
+        fun containsWildcard(pattern: ArrayNode): Boolean = pattern.any { JsonMatcher.isWildcard(it) }
+    }
+
+    /**
+     * @param segment Indices of the pattern elements of a segment.
+     * @return The pattern elements of the segment.
+     */
+    fun elements(segment: IntRange): ArrayNode = pattern.arrayNode().addAll(segment.map { pattern.get(it) })
+
+    /**
+     * Find the first position at or after the start position where the actual elements match an infix segment.
+     *
+     * @param infix   Indices of the pattern elements of the segment.
+     * @param start   First actual index the segment may start at.
+     * @param end     Actual index the segment has to end before.
+     * @param matches Whether an actual element matches a pattern element, given the pattern index and the actual
+     *                index.
+     * @return The actual index the segment starts at or null if the segment does not match before the end.
+     */
+    fun find(infix: IntRange, start: Int, end: Int, matches: (Int, Int) -> Boolean): Int? {
+        val length = infix.count()
+        return (start..end - length).firstOrNull { position ->
+            infix.all { matches(it, position + it - infix.first) }
+        }
+    }
+
+    /**
+     * Matches the infix segments against actual elements that are supplied one at a time, e.g. while streaming. Each
+     * segment needs a look-back of its own length, so at most as many actual elements as the longest segment has
+     * pattern elements are kept.
+     *
+     * The placement of the segments is the same as the one of [find]. An actual element that is not part of a
+     * placed segment is never needed again.
+     *
+     * @property matches Whether an actual element matches a pattern element, given the pattern index, the actual
+     *                   element and the actual index.
+     */
+    inner class InfixScan(private val matches: (Int, JsonNode, Int) -> Boolean) {
+
+        private val window = ArrayDeque<IndexedValue<JsonNode>>()
+
+        private var segment = 0
+
+        /**
+         * Actual elements that are part of placed segments, by actual index.
+         */
+        val placed = LinkedHashMap<Int, JsonNode>()
+
+        /**
+         * Offer the next actual element to the scan.
+         *
+         * @param index   Index of the actual element.
+         * @param element The actual element.
+         */
+        fun offer(index: Int, element: JsonNode) {
+            if (segment >= infixes.size) {
+                return
+            }
+            val infix = infixes[segment]
+            window.addLast(IndexedValue(index, element))
+            if (window.size > infix.count()) {
+                window.removeFirst()
+            }
+            val complete = window.size == infix.count() && window.withIndex().all { (offset, element) ->
+                matches(infix.first + offset, element.value, element.index)
+            }
+            if (complete) {
+                window.forEach { placed[it.index] = it.value }
+                window.clear()
+                segment++
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+
+/**
+ * Pattern for arrays whose elements all match the same element pattern.
+ *
+ * An array template is written as object with the magic property [EACH], e.g.
+ * `{ "...each" : { "id" : "...", "state" : "done" }, "...minSize" : 1, "...maxSize" : 1000 }`. It matches arrays
+ * of any size between the optional bounds whose elements all match the element pattern, regardless of
+ * [MatcherConfig.randomArrayOrder]. The element pattern is held once, instead of one copy per element.
+ *
+ * @property element The pattern for each element.
+ * @property minSize The minimum size of the array or null if there is none.
+ * @property maxSize The maximum size of the array or null if there is none.
+ */
+internal class ArrayTemplate private constructor(val element: JsonNode, val minSize: Int?, val maxSize: Int?) {
+
+    /**
+     * Companion object provides support methods for [ArrayTemplate].
+     */
+    companion object {
+
+        /**
+         * Magic property that holds the element pattern of an array template.
+         */
+        const val EACH = "...each"
+
+        /**
+         * Magic property that holds the minimum size of an array template.
+         */
+        const val MIN_SIZE = "...minSize"
+
+        /**
+         * Magic property that holds the maximum size of an array template.
+         */
+        const val MAX_SIZE = "...maxSize"
+
+        /**
+         * @param pattern Pattern node.
+         * @return Whether the pattern node is an array template.
+         */
+        fun isTemplate(pattern: JsonNode): Boolean = pattern.isObject && pattern.has(EACH)
+
+        /**
+         * @param pattern Pattern node.
+         * @return The array template or null if the pattern node is not an array template.
+         * @throws IllegalArgumentException If the array template is malformed.
+         */
+        fun of(pattern: JsonNode): ArrayTemplate? {
+            if (!isTemplate(pattern)) {
+                return null
+            }
+            pattern.fieldNames().forEach {
+                require(it == EACH || it == MIN_SIZE || it == MAX_SIZE) {
+                    "Array template must only contain the properties $EACH, $MIN_SIZE and $MAX_SIZE, but contains $it"
+                }
+            }
+            return ArrayTemplate(pattern.get(EACH), size(pattern, MIN_SIZE), size(pattern, MAX_SIZE))
+        }
+
+        private fun size(pattern: JsonNode, name: String): Int? {
+            val size = pattern.get(name) ?: return null
+            require(size.isInt && size.intValue() >= 0) {
+                "$name of array template must be a non-negative integer, but is $size"
+            }
+            return size.intValue()
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.ObjectNode
+import java.util.BitSet
+
+/**
+ * Columnar reader for the rows of an array template whose element pattern is a flat object, e.g.
+ * `{ "...each" : { "id" : "...", "state" : "done", "count" : 1 } }`.
+ *
+ * Instead of building an object per row and matching it property by property, the values of the rows are
+ * transposed into one column per pattern property while parsing. Integers and floating point numbers are stored
+ * in primitive arrays, strings are compared to the pattern in place. After each chunk of rows, every column is
+ * checked in a loop specialized for its type. Only rows that fail a column check or deviate from the structure of
+ * the pattern (missing, additional or duplicate properties) are rebuilt and matched as usual, so the reported errors
+ * are the same as without the columnar path.
+ *
+ * @property element The element pattern.
+ */
+internal class ColumnarTemplate private constructor(private val element: ObjectNode) {
+
+    /**
+     * Companion object provides support methods for [ColumnarTemplate].
+     */
+    companion object {
+
+        /**
+         * Number of rows that are read before the columns are checked.
+         */
+        private const val CHUNK_SIZE = 4096
+
+        /**
+         * Initial capacity of the columns, so that small arrays do not allocate complete chunks.
+         */
+        private const val INITIAL_CAPACITY = 16
+
+        private val NODE_FACTORY = JsonNodeFactory.instance
+
+        // States of the cells of a column
+        private const val ABSENT: Byte = 0
+        private const val PRESENT: Byte = 1
+        private const val PRIMITIVE: Byte = 2
+        private const val MATCHED: Byte = 3
+        private const val TRUE: Byte = 4
+        private const val FALSE: Byte = 5
+        private const val NULL: Byte = 6
+        private const val NODE: Byte = 7
+
+        /**
+         * @param element The element pattern of an array template.
+         * @return The columnar reader or null if the element pattern is not a flat object.
+         */
+        fun of(element: JsonNode): ColumnarTemplate? {
+            if (element !is ObjectNode || ArrayTemplate.isTemplate(element) ||
+                    element.fields().asSequence().any { !it.value.isValueNode }) {
+                return null
+            }
+            return ColumnarTemplate(element)
+        }
+    }
+
+    private var capacity = INITIAL_CAPACITY
+
+    private val hasWildcard = JsonMatcher.WILDCARD.let { element.has(it) && JsonMatcher.isWildcard(element.get(it)) }
+    private val columns: Array<Column> = element.fields().asSequence()
+            .filterNot { (name, value) -> hasWildcard && name == JsonMatcher.WILDCARD && JsonMatcher.isWildcard(value) }
+            .map { (name, value) -> Column(name, value) }
+            .toList().toTypedArray()
+    private val columnsByName: Map<String, Column> = columns.associateBy { it.name }
+
+    /**
+     * Rows of the current chunk that deviate from the structure of the pattern.
+     */
+    private val irregular = BitSet()
+
+    /**
+     * Property names of the irregular rows of the current chunk, in the order of their first occurrence.
+     */
+    private val irregularNames = HashMap<Int, List<String>>()
+
+    /**
+     * Irregular rows of the current chunk that are not objects.
+     */
+    private val irregularNodes = HashMap<Int, JsonNode>()
+
+    /**
+     * Read the rows of the array and match them.
+     *
+     * @param parser       The parser, positioned at the start of the array.
+     * @param arrayName    Name of the array (absolute path from root).
+     * @param result       The result, gets a [StreamingReader.SKIPPED] placeholder per row and the first failure.
+     * @param budget       The budget of the match or null if it has none. Each row is charged with the nodes that
+     *                     would be visited when matching it as usual, except for those matched by [checkElement].
+     * @param readValue    Reads the value at the current token of the parser guided by the given pattern.
+     * @param checkElement Matches a rebuilt row, given the element pattern, the row and its attribute name.
+     */
+    fun read(parser: JsonParser,
+             arrayName: String,
+             result: CheckedArrayNode,
+             budget: MatchBudget?,
+             readValue: (JsonParser, JsonNode) -> JsonNode,
+             checkElement: (JsonNode, JsonNode, String) -> AssertionError?) {
+        val names = ArrayList<String>()
+        var chunkStart = 0
+        var row = 0
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (result.failure != null) {
+                parser.skipChildren()
+            } else {
+                if (row == capacity) {
+                    capacity *= 2
+                    columns.forEach { it.grow(capacity) }
+                }
+                val nodes = readRow(parser, row, names, readValue)
+                budget?.visitElement(arrayName, chunkStart + row, nodes)
+                row++
+                if (row == CHUNK_SIZE) {
+                    result.failure = checkChunk(chunkStart, row, arrayName, checkElement)
+                    chunkStart += row
+                    row = 0
+                }
+            }
+            result.add(StreamingReader.SKIPPED)
+        }
+        if (result.failure == null && row > 0) {
+            result.failure = checkChunk(chunkStart, row, arrayName, checkElement)
+        }
+    }
+
+    /**
+     * @return The number of nodes of the row that are matched by the column checks, including the row.
+     */
+    private fun readRow(parser: JsonParser, row: Int, names: MutableList<String>,
+                        readValue: (JsonParser, JsonNode) -> JsonNode): Int {
+        if (parser.currentToken != JsonToken.START_OBJECT) {
+            // Matched as usual
+            irregular.set(row)
+            irregularNodes[row] = readValue(parser, element)
+            return 0
+        }
+
+        names.clear()
+        var present = 0
+        var nodes = 1
+        var regular = true
+        var position = 0
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            val name = parser.currentName
+            parser.nextToken()
+            // Property names are interned by the parser, so rows in pattern order need no lookup
+            val column = if (position < columns.size && columns[position].name === name) {
+                columns[position]
+            } else columnsByName[name]
+            position++
+            if (column == null) {
+                parser.skipChildren()
+                regular = regular && hasWildcard
+            } else {
+                if (column.cells[row] == ABSENT) {
+                    present++
+                } else {
+                    regular = false
+                }
+                column.read(parser, row, readValue)
+                if (!column.isGeneric) {
+                    nodes++
+                }
+            }
+            names.add(name)
+        }
+        if (!regular || present < columns.size) {
+            irregular.set(row)
+            irregularNames[row] = names.distinct()
+        }
+        return nodes
+    }
+
+    /**
+     * Check the columns of a chunk of rows.
+     *
+     * @return The error of the first row that does not match or null if all rows match.
+     */
+    private fun checkChunk(chunkStart: Int,
+                           rows: Int,
+                           arrayName: String,
+                           checkElement: (JsonNode, JsonNode, String) -> AssertionError?): AssertionError? {
+        val suspects = irregular.clone() as BitSet
+        columns.forEach { it.check(rows, suspects) { pattern, value -> checkElement(pattern, value, arrayName) } }
+
+        var failure: AssertionError? = null
+        var row = suspects.nextSetBit(0)
+        while (failure == null && row >= 0) {
+            failure = checkElement(element, rebuild(row), "$arrayName[${chunkStart + row}]")
+            row = suspects.nextSetBit(row + 1)
+        }
+
+        columns.forEach { it.clear(rows) }
+        irregular.clear()
+        irregularNames.clear()
+        irregularNodes.clear()
+        return failure
+    }
+
+    /**
+     * @param row Index of the row in the current chunk.
+     * @return The row as read by the [StreamingReader] without the columnar path.
+     */
+    private fun rebuild(row: Int): JsonNode {
+        irregularNodes[row]?.let { return it }
+        val result = NODE_FACTORY.objectNode()
+        val names = irregularNames[row]
+        if (names == null) {
+            columns.forEach { result.replace(it.name, it.value(row)) }
+        } else {
+            names.forEach { result.replace(it, columnsByName[it]?.value(row) ?: StreamingReader.SKIPPED) }
+        }
+        return result
+    }
+
+    /**
+     * Column of the values of a pattern property.
+     *
+     * @property name    The property name.
+     * @property pattern The pattern of the property.
+     */
+    private inner class Column(val name: String, val pattern: JsonNode) {
+
+        private val kind = when {
+            JsonMatcher.isWildcard(pattern) -> Kind.ANY
+            pattern.isInt || pattern.isLong -> Kind.LONG
+            pattern.isDouble -> Kind.DOUBLE
+            pattern.isBoolean -> Kind.BOOLEAN
+            pattern.isNull -> Kind.NULL
+            // Mustache expressions and digests are matched by the matcher
+            pattern.isTextual && !MustacheMatcher.potentiallyMustache(pattern.textValue()) &&
+                    !pattern.textValue().startsWith(StringDigest.DIGEST_PREFIX) -> Kind.TEXT
+            else -> Kind.GENERIC
+        }
+
+        /**
+         * Whether the values are matched by the matcher, see [check].
+         */
+        val isGeneric = kind == Kind.GENERIC
+        private val expectedLong = pattern.longValue()
+        private val expectedDoubleBits = java.lang.Double.doubleToLongBits(pattern.doubleValue())
+        private val expectedText = if (kind == Kind.TEXT) pattern.textValue().toCharArray() else null
+
+        var cells = ByteArray(capacity)
+        private var longs = if (kind == Kind.LONG) LongArray(capacity) else null
+        private var doubles = if (kind == Kind.DOUBLE) DoubleArray(capacity) else null
+        private var nodes = arrayOfNulls<JsonNode>(capacity)
+
+        fun grow(capacity: Int) {
+            cells = cells.copyOf(capacity)
+            longs = longs?.copyOf(capacity)
+            doubles = doubles?.copyOf(capacity)
+            nodes = nodes.copyOf(capacity)
+        }
+
+        /**
+         * Read the value at the current token of the parser into the column.
+         */
+        fun read(parser: JsonParser, row: Int, readValue: (JsonParser, JsonNode) -> JsonNode) {
+            val token = parser.currentToken
+            cells[row] = when {
+                kind == Kind.ANY -> {
+                    parser.skipChildren()
+                    PRESENT
+                }
+                kind == Kind.LONG && token == JsonToken.VALUE_NUMBER_INT &&
+                        parser.numberType != JsonParser.NumberType.BIG_INTEGER -> {
+                    longs!![row] = parser.longValue
+                    PRIMITIVE
+                }
+                kind == Kind.DOUBLE && token == JsonToken.VALUE_NUMBER_FLOAT &&
+                        parser.numberType == JsonParser.NumberType.DOUBLE -> {
+                    doubles!![row] = parser.doubleValue
+                    PRIMITIVE
+                }
+                kind == Kind.TEXT && token == JsonToken.VALUE_STRING && textMatches(parser) -> MATCHED
+                token == JsonToken.VALUE_TRUE -> TRUE
+                token == JsonToken.VALUE_FALSE -> FALSE
+                token == JsonToken.VALUE_NULL -> NULL
+                else -> {
+                    nodes[row] = readValue(parser, pattern)
+                    NODE
+                }
+            }
+        }
+
+        private fun textMatches(parser: JsonParser): Boolean {
+            val expected = expectedText!!
+            if (parser.textLength != expected.size) {
+                return false
+            }
+            val chars = parser.textCharacters
+            val offset = parser.textOffset
+            for (i in expected.indices) {
+                if (chars[offset + i] != expected[i]) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        /**
+         * Mark the rows whose value does not match the pattern as suspects.
+         *
+         * @param checkValue Matches a value that is not stored in a primitive array against a pattern.
+         */
+        fun check(rows: Int, suspects: BitSet, checkValue: (JsonNode, JsonNode) -> AssertionError?) {
+            when (kind) {
+                Kind.ANY -> mark(rows, suspects, PRESENT)
+                Kind.TEXT -> mark(rows, suspects, MATCHED)
+                Kind.BOOLEAN -> mark(rows, suspects, if (pattern.booleanValue()) TRUE else FALSE)
+                Kind.NULL -> mark(rows, suspects, NULL)
+                Kind.LONG -> {
+                    val values = longs!!
+                    for (row in 0 until rows) {
+                        if (cells[row] != PRIMITIVE || values[row] != expectedLong) {
+                            suspects.set(row)
+                        }
+                    }
+                }
+                Kind.DOUBLE -> {
+                    val values = doubles!!
+                    for (row in 0 until rows) {
+                        if (cells[row] != PRIMITIVE ||
+                                java.lang.Double.doubleToLongBits(values[row]) != expectedDoubleBits) {
+                            suspects.set(row)
+                        }
+                    }
+                }
+                Kind.GENERIC -> for (row in 0 until rows) {
+                    if (cells[row] != NODE || checkValue(pattern, nodes[row]!!) != null) {
+                        suspects.set(row)
+                    }
+                }
+            }
+        }
+
+        private fun mark(rows: Int, suspects: BitSet, expected: Byte) {
+            for (row in 0 until rows) {
+                if (cells[row] != expected) {
+                    suspects.set(row)
+                }
+            }
+        }
+
+        /**
+         * @return The value of the row as node.
+         */
+        fun value(row: Int): JsonNode = when (cells[row]) {
+            PRESENT -> StreamingReader.SKIPPED
+            PRIMITIVE -> if (kind == Kind.LONG) {
+                val value = longs!![row]
+                if (value.toInt().toLong() == value) NODE_FACTORY.numberNode(value.toInt())
+                else NODE_FACTORY.numberNode(value)
+            } else NODE_FACTORY.numberNode(doubles!![row])
+            MATCHED -> pattern
+            TRUE -> NODE_FACTORY.booleanNode(true)
+            FALSE -> NODE_FACTORY.booleanNode(false)
+            NULL -> NODE_FACTORY.nullNode()
+            else -> nodes[row]!!
+        }
+
+        fun clear(rows: Int) {
+            cells.fill(ABSENT, 0, rows)
+            nodes.fill(null, 0, rows)
+        }
+    }
+
+    /**
+     * Type of the values of a column.
+     */
+    private enum class Kind { ANY, LONG, DOUBLE, TEXT, BOOLEAN, NULL, GENERIC }
+}
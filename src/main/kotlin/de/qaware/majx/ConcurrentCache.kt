@@ -0,0 +1,63 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A cache that many threads share without locking on lookups, e.g. of parsed patterns.
+ *
+ * A value that is not known yet is loaded by the calling thread. Threads that load the same key at the same time all
+ * use the first value that was stored, so values are loaded at most once per key and thread. The values have to be
+ * immutable (or at least not changed after loading), since they are used by several threads. A failed load is not
+ * kept.
+ *
+ * @param maxEntries Maximum number of values that are kept. Further values are not kept once the limit is reached.
+ * @param load       Loads the value of a key.
+ */
+internal class ConcurrentCache<K : Any, V : Any>(private val maxEntries: Int, private val load: (K) -> V) {
+
+    private val values = ConcurrentHashMap<K, V>()
+
+    /**
+     * Number of values that are kept.
+     */
+    val size: Int
+        get() = values.size
+
+    /**
+     * Get the value of a key, loading it if it is not known yet.
+     *
+     * @param key The key.
+     * @return The value of the key.
+     */
+    operator fun get(key: K): V {
+        values[key]?.let { return it }
+        val value = load(key)
+        if (values.size >= maxEntries) {
+            return value
+        }
+        return values.putIfAbsent(key, value) ?: value
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Formats of actual documents given as bytes. Binary formats are parsed by the Jackson parser of the format, without
+ * transcoding them to JSON text. Their Jackson data format modules are optional dependencies of majx, so the module
+ * of a binary format has to be on the class path of the caller.
+ *
+ * @property factoryClassName The name of the Jackson factory class of the format.
+ * @property artifact         The Maven coordinates of the module that contains the factory.
+ */
+enum class DataFormat(private val factoryClassName: String, private val artifact: String) {
+    /**
+     * JSON text, UTF-8 encoded.
+     */
+    JSON("com.fasterxml.jackson.core.JsonFactory", "com.fasterxml.jackson.core:jackson-core"),
+
+    /**
+     * Smile, the binary JSON format of Jackson.
+     */
+    SMILE("com.fasterxml.jackson.dataformat.smile.SmileFactory",
+            "com.fasterxml.jackson.dataformat:jackson-dataformat-smile"),
+
+    /**
+     * CBOR (RFC 7049).
+     */
+    CBOR("com.fasterxml.jackson.dataformat.cbor.CBORFactory",
+            "com.fasterxml.jackson.dataformat:jackson-dataformat-cbor"),
+
+    /**
+     * MessagePack.
+     */
+    MESSAGE_PACK("org.msgpack.jackson.dataformat.MessagePackFactory", "org.msgpack:jackson-dataformat-msgpack");
+
+    /**
+     * The object mapper of the format, with the settings of the JSON object mapper of majx.
+     */
+    private val mapper: ObjectMapper by lazy {
+        if (this == JSON) JSON_MAPPER else createObjectMapper(createFactory())
+    }
+
+    /**
+     * @param actual The bytes that contain the actual document.
+     * @param offset The offset of the document in the bytes.
+     * @param length The length of the document.
+     * @return Streaming parser for the document, has to be closed by the caller.
+     * @throws IllegalStateException If the Jackson data format module of the format is missing.
+     */
+    internal fun createParser(actual: ByteArray, offset: Int, length: Int): JsonParser =
+            mapper.factory.createParser(actual, offset, length)
+
+    /**
+     * @param actual The bytes that contain the actual document.
+     * @param offset The offset of the document in the bytes.
+     * @param length The length of the document.
+     * @return The document as JSON tree.
+     * @throws IllegalArgumentException If the document cannot be parsed.
+     * @throws IllegalStateException If the Jackson data format module of the format is missing.
+     */
+    internal fun readTree(actual: ByteArray, offset: Int, length: Int): JsonNode =
+            readTree({ mapper.readTree(actual, offset, length) }) { parseErrorMessage(actual, offset, length) }
+
+    /**
+     * @param actual The actual document, not closed.
+     * @return The document as JSON tree.
+     * @throws IllegalArgumentException If the document cannot be parsed.
+     * @throws IllegalStateException If the Jackson data format module of the format is missing.
+     */
+    internal fun readTree(actual: InputStream): JsonNode = readTree({ mapper.readTree(actual) }) { parseErrorMessage() }
+
+    /**
+     * @param actual The bytes that contain the actual document or null if the document is not available.
+     * @param offset The offset of the document in the bytes.
+     * @param length The length of the document.
+     * @return The message for a document that cannot be parsed. Only JSON documents are decoded for the message.
+     */
+    internal fun parseErrorMessage(actual: ByteArray? = null, offset: Int = 0, length: Int = 0): String =
+            if (this == JSON && actual != null) {
+                "Failed to parse actual as JSON:\n${String(actual, offset, length, Charsets.UTF_8)}"
+            } else "Failed to parse actual as $this"
+
+    /**
+     * @param e An exception thrown while parsing a document of the format.
+     * @return True if the exception reports a malformed document. The MessagePack parser reports malformed documents
+     * by unchecked exceptions instead of [IOException]s.
+     */
+    internal fun isParseError(e: Exception): Boolean =
+            e is IOException || this == MESSAGE_PACK && e.javaClass.name.startsWith(MESSAGE_PACK_PACKAGE)
+
+    private fun readTree(read: () -> JsonNode, errorMessage: () -> String): JsonNode {
+        try {
+            return read()
+        } catch (e: Exception) {
+            if (!isParseError(e)) {
+                throw e
+            }
+            throw IllegalArgumentException(errorMessage(), e)
+        }
+    }
+
+    private fun createFactory(): JsonFactory {
+        val factoryClass = try {
+            Class.forName(factoryClassName)
+        } catch (e: ClassNotFoundException) {
+            throw IllegalStateException("Data format $this requires $artifact on the class path", e)
+        }
+        return factoryClass.getConstructor().newInstance() as JsonFactory
+    }
+
+    private companion object {
+        const val MESSAGE_PACK_PACKAGE = "org.msgpack."
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+
+/**
+ * Matches a document against a pattern again and again while the document is updated by JSON patches (RFC 6902),
+ * e.g. in tests of stateful APIs.
+ *
+ * The results of the sub-trees of the document are kept between matches. A patch only invalidates the results of
+ * the containers on the paths it touches, so a match after a patch re-validates these containers (including their
+ * size and wildcard constraints) and the changed sub-trees, while all other sub-trees reuse their results. The
+ * document is always kept as tree, regardless of [MatcherConfig.streaming].
+ *
+ * An incremental matcher must not be used by several threads at the same time.
+ *
+ * @param pattern       The pattern the document is matched against.
+ * @param actual        The initial document, which is copied.
+ * @param mustacheScope The scope from which the mustache parser reads it variables. May be a map or a POJO.
+ * @param config        The config that controls certain matcher aspects.
+ * @constructor Creates a new [IncrementalMatcher] for the given [pattern] and initial document.
+ */
+class IncrementalMatcher @JvmOverloads constructor(private val pattern: JsonNode,
+                                                   actual: JsonNode,
+                                                   mustacheScope: Any? = null,
+                                                   config: MatcherConfig = DefaultMatcherConfig) {
+
+    /**
+     * Companion object provides factory methods for [IncrementalMatcher].
+     */
+    companion object {
+
+        /**
+         * Create an incremental matcher from a pattern and an initial document given as JSON strings.
+         *
+         * @param pattern The pattern JSON string.
+         * @param actual  The initial document JSON string.
+         * @return The new incremental matcher.
+         * @throws IllegalArgumentException If the pattern or the document cannot be parsed as JSON.
+         */
+        @JvmStatic
+        fun of(pattern: String, actual: String): IncrementalMatcher =
+                IncrementalMatcher(parseAndValidate(pattern, "pattern"), parseAndValidate(actual, "actual"))
+    }
+
+    private val memo = SubtreeMemo()
+
+    private val matcher = JsonMatcher(config, mustacheScope, memo)
+
+    /**
+     * The current document, i.e. the initial document with all patches applied. It must not be changed directly.
+     */
+    var document: JsonNode = actual.deepCopy()
+        private set
+
+    /**
+     * Apply a JSON patch to the document.
+     *
+     * @param patch The JSON patch, an array of operations.
+     * @throws IllegalArgumentException If the patch is malformed or cannot be applied. The operations before the
+     *                                  failed one remain applied.
+     */
+    fun applyPatch(patch: JsonNode) {
+        document = JsonPatch.of(patch).apply(document, memo::invalidate, memo::invalidateAll)
+    }
+
+    /**
+     * Apply a JSON patch given as JSON string to the document.
+     *
+     * @param patch The JSON patch string, an array of operations.
+     * @throws IllegalArgumentException If the patch cannot be parsed, is malformed or cannot be applied.
+     */
+    fun applyPatch(patch: String) = applyPatch(parseAndValidate(patch, "patch"))
+
+    /**
+     * Validate that the current document matches the pattern. Only sub-trees that changed since the previous
+     * validation are validated again.
+     *
+     * @param reason The error message to prepend to the JSON matcher error message if validation fails.
+     */
+    fun assertMatches(reason: String?) = matcher.assertMatches(reason, pattern, document)
+
+    /**
+     * Apply a JSON patch to the document and validate that the patched document matches the pattern.
+     *
+     * @param reason The error message to prepend to the JSON matcher error message if validation fails.
+     * @param patch  The JSON patch string, an array of operations.
+     * @throws IllegalArgumentException If the patch cannot be parsed, is malformed or cannot be applied.
+     */
+    fun assertMatchesAfter(reason: String?, patch: String) {
+        applyPatch(patch)
+        assertMatches(reason)
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.JsonNodeType
+import java.util.*
+
+/**
+ * A single difference between two JSON documents found by [JsonDiff].
+ *
+ * @property path     Location of the difference (absolute path from root, e.g. `$.items[3].name`).
+ * @property kind     The kind of the difference.
+ * @property expected The expected node at [path] or null if there is no such node in the expected document.
+ * @property actual   The actual node at [path] or null if there is no such node in the actual document.
+ */
+data class JsonDifference(val path: String, val kind: Kind, val expected: JsonNode?, val actual: JsonNode?) {
+
+    /**
+     * The kinds of differences between two documents.
+     */
+    enum class Kind {
+        /** The node exists in the expected document but not in the actual document. */
+        MISSING,
+        /** The node exists in the actual document but not in the expected document. */
+        UNEXPECTED,
+        /** The node exists in both documents but has a different type. */
+        TYPE_MISMATCH,
+        /** The scalar node exists in both documents but has a different value. */
+        VALUE_MISMATCH
+    }
+
+    override fun toString(): String = when (kind) {
+        Kind.MISSING -> "$path: missing, expected ${expected?.let(::compactString)}"
+        Kind.UNEXPECTED -> "$path: unexpected ${actual?.let(::compactString)}"
+        Kind.TYPE_MISMATCH -> "$path: expected type ${expected?.nodeType} but was ${actual?.nodeType}"
+        Kind.VALUE_MISMATCH -> "$path: expected ${expected?.let(::compactString)} " +
+                "but was ${actual?.let(::compactString)}"
+    }
+}
+
+/**
+ * Structural diff of two JSON documents based on Merkle hashes.
+ *
+ * Both documents are hashed bottom-up once. The diff then descends only into subtrees whose hashes differ, so
+ * the work after hashing grows with the number of differences instead of the size of the documents. In
+ * contrast to [JsonMatcher], the expected document is compared literally: magic values such as wildcards or
+ * mustache expressions are not evaluated.
+ *
+ * Object properties are compared ignoring their order, array elements are compared by position after
+ * stripping the common prefix and suffix, so that a single inserted or removed element is reported once
+ * instead of shifting all following elements.
+ */
+object JsonDiff {
+
+    /**
+     * Compute all differences between the expected and the actual document.
+     *
+     * @param expected The expected document.
+     * @param actual   The actual document.
+     * @return All differences in document order. Empty if the documents are equal.
+     */
+    fun diff(expected: JsonNode, actual: JsonNode): List<JsonDifference> {
+        val expectedHashes = MerkleHashes(expected)
+        val actualHashes = MerkleHashes(actual)
+        val differences = ArrayList<JsonDifference>()
+        diff(expected, actual, "$", expectedHashes, actualHashes, differences)
+        return differences
+    }
+
+    private fun diff(expected: JsonNode, actual: JsonNode, path: String,
+                     expectedHashes: MerkleHashes, actualHashes: MerkleHashes,
+                     differences: MutableList<JsonDifference>) {
+        if (expectedHashes[expected] == actualHashes[actual]) {
+            return
+        }
+
+        when {
+            expected.nodeType != actual.nodeType ->
+                differences.add(JsonDifference(path, JsonDifference.Kind.TYPE_MISMATCH, expected, actual))
+            expected.isObject -> {
+                expected.fields().forEach { (name, expectedChild) ->
+                    val actualChild = actual.get(name)
+                    if (actualChild == null) {
+                        differences.add(JsonDifference("$path.$name", JsonDifference.Kind.MISSING, expectedChild, null))
+                    } else {
+                        diff(expectedChild, actualChild, "$path.$name", expectedHashes, actualHashes, differences)
+                    }
+                }
+                actual.fields().forEach { (name, actualChild) ->
+                    if (!expected.has(name)) {
+                        differences.add(
+                                JsonDifference("$path.$name", JsonDifference.Kind.UNEXPECTED, null, actualChild))
+                    }
+                }
+            }
+            expected.isArray -> diffArray(expected, actual, path, expectedHashes, actualHashes, differences)
+            else -> differences.add(JsonDifference(path, JsonDifference.Kind.VALUE_MISMATCH, expected, actual))
+        }
+    }
+
+    private fun diffArray(expected: JsonNode, actual: JsonNode, path: String,
+                          expectedHashes: MerkleHashes, actualHashes: MerkleHashes,
+                          differences: MutableList<JsonDifference>) {
+        // Strip the common prefix and suffix so that inserted or removed elements do not shift the comparison
+        var start = 0
+        val commonSize = Math.min(expected.size(), actual.size())
+        while (start < commonSize && expectedHashes[expected[start]] == actualHashes[actual[start]]) {
+            start++
+        }
+        var expectedEnd = expected.size()
+        var actualEnd = actual.size()
+        while (expectedEnd > start && actualEnd > start &&
+                expectedHashes[expected[expectedEnd - 1]] == actualHashes[actual[actualEnd - 1]]) {
+            expectedEnd--
+            actualEnd--
+        }
+
+        val pairedEnd = Math.min(expectedEnd, actualEnd)
+        for (i in start until pairedEnd) {
+            diff(expected[i], actual[i], "$path[$i]", expectedHashes, actualHashes, differences)
+        }
+        for (i in pairedEnd until expectedEnd) {
+            differences.add(JsonDifference("$path[$i]", JsonDifference.Kind.MISSING, expected[i], null))
+        }
+        for (i in pairedEnd until actualEnd) {
+            differences.add(JsonDifference("$path[$i]", JsonDifference.Kind.UNEXPECTED, null, actual[i]))
+        }
+    }
+}
+
+/**
+ * Merkle hashes of all nodes of a JSON document.
+ *
+ * The hash of a container is derived from the hashes of its children. Object hashes do not depend on the order
+ * of the properties, since property order is not significant when matching. Scalars are hashed by their type and
+ * textual value, which corresponds to how [JsonMatcher] compares them.
+ *
+ * @param root The root of the document to hash.
+ */
+internal class MerkleHashes(root: JsonNode) {
+
+    private val hashes = IdentityHashMap<JsonNode, Long>()
+
+    init {
+        hash(root)
+    }
+
+    /**
+     * @param node A node of the hashed document.
+     * @return The hash of the node.
+     */
+    operator fun get(node: JsonNode): Long = hashes.getValue(node)
+
+    private fun hash(node: JsonNode): Long {
+        var result = (node.nodeType.ordinal + 1).toLong()
+        when (node.nodeType) {
+            JsonNodeType.OBJECT -> {
+                // Sum of the field hashes is independent of the property order
+                var fields = 0L
+                node.fields().forEach { (name, child) -> fields += mix(hashString(name) * PRIME + hash(child)) }
+                result = result * PRIME + fields
+            }
+            JsonNodeType.ARRAY -> node.forEach { result = result * PRIME + hash(it) }
+            else -> result = result * PRIME + hashString(node.asText())
+        }
+        result = mix(result * PRIME + node.size())
+        hashes[node] = result
+        return result
+    }
+
+    /**
+     * Companion object provides support methods for [MerkleHashes].
+     */
+    companion object {
+
+        private const val PRIME = 1099511628211L
+        private const val OFFSET_BASIS = -3750763034362895579L
+
+        /**
+         * FNV-1a hash over the characters of the string.
+         */
+        private fun hashString(value: String): Long {
+            var result = OFFSET_BASIS
+            for (c in value) {
+                result = (result xor c.toLong()) * PRIME
+            }
+            return result
+        }
+
+        /**
+         * Finalizer of SplitMix64 to spread the bits of combined hashes.
+         */
+        private fun mix(value: Long): Long {
+            var z = value
+            z = (z xor (z ushr 30)) * -4658895280553007687L
+            z = (z xor (z ushr 27)) * -7723592293110705685L
+            return z xor (z ushr 31)
+        }
+    }
+}
@@ -24,9 +24,16 @@
 package de.qaware.majx
 
 import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.node.*
+import com.fasterxml.jackson.databind.util.TokenBuffer
+import com.github.mustachejava.Mustache
 import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.Matchers.*
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.stream.IntStream
 
 /**
  * Matcher that compares an actual JSON with a pattern JSON object.
@@ -37,9 +44,65 @@ import org.hamcrest.Matchers.*
  * @property config        The config that controls certain matcher aspects.
  * @property mustacheScope The scope from which the mustache parser reads it variables. May be a map or a POJO.
  *                         This is used in case we need dynamic test expectations.
- * @constructor Creates a new [JsonMatcher] with the given [mustacheScope].
+ * @property memo          Known results of sub-trees that are kept across matches or null if there are none, see
+ *                         [IncrementalMatcher].
+ * @property compiledMustache Compiled mustache expressions that are shared with other matchers or null if every
+ *                         expression is compiled, see [MajxInstance].
+ *
+ * A matcher keeps the state of the current match (e.g. its [MatchBudget]), so it must not be used by several threads
+ * at the same time.
+ *
+ * @constructor Creates a new [JsonMatcher] with the given [mustacheScope] and [memo].
  */
-class JsonMatcher(private val config: MatcherConfig, private val mustacheScope: Any?) {
+class JsonMatcher internal constructor(private val config: MatcherConfig,
+                                       private val mustacheScope: Any?,
+                                       private val memo: SubtreeMemo?,
+                                       private val compiledMustache: ConcurrentCache<String, Mustache>? = null) {
+
+    /**
+     * Creates a new [JsonMatcher] with the given [mustacheScope].
+     *
+     * @param config        The config that controls certain matcher aspects.
+     * @param mustacheScope The scope from which the mustache parser reads it variables.
+     */
+    constructor(config: MatcherConfig, mustacheScope: Any?) : this(config, mustacheScope, null)
+
+    /**
+     * Budget of the current match or null if matches are not limited.
+     */
+    private var budget: MatchBudget? = null
+
+    /**
+     * Results of sub-trees of the current match or null if they are not kept. In random array order, the same pattern
+     * element is validated against the same actual element many times, e.g. by the searches of enclosing arrays and
+     * by the diagnostics of unmatched elements.
+     */
+    private var matchMemo: SubtreeMemo? = null
+
+    /**
+     * The last root pattern with keyed arrays applied (see [withKeyedArrays]) by the original root pattern. A matcher
+     * that matches the same pattern again (e.g. with a [memo] that is kept across matches) validates the same
+     * pattern nodes, so that their known results are found.
+     */
+    private var keyedRoot: Pair<JsonNode, JsonNode>? = null
+
+    /**
+     * Evaluated mustache expressions of the current match by expression, so that patterns that are applied many
+     * times (e.g. the element pattern of an [ArrayTemplate]) are evaluated only once.
+     */
+    private val evaluatedMustache = ConcurrentHashMap<String, String>()
+
+    /**
+     * Evaluates mustache expressions using [evaluatedMustache] or null if there is no mustache scope.
+     */
+    private val evaluateMustache: ((String) -> String)? = mustacheScope?.let { scope ->
+        { expression: String ->
+            evaluatedMustache.computeIfAbsent(expression) {
+                MustacheMatcher.evaluateMustache(it, scope, compiledMustache?.let { cache -> cache::get }
+                        ?: MustacheMatcher::compile)
+            }
+        }
+    }
 
     /**
      * Companion object provides support methods for [JsonMatcher].
@@ -51,7 +114,27 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
          *
          * A wildcard can be used in patterns if the content of the actual key or value is unimportant.
          */
-        private const val WILDCARD = "..."
+        internal const val WILDCARD = "..."
+
+        /**
+         * Maximum number of unmatched pattern elements of an array in random order that are described in detail.
+         */
+        private const val DESCRIBED_UNMATCHED_ELEMENTS = 3
+
+        /**
+         * Number of characters of an expected string that are reported if it does not match by its digest.
+         */
+        private const val DESCRIBED_DIGESTED_CHARS = 80
+
+        /**
+         * Maximum number of results of sub-trees that are kept during a match, see [matchMemo].
+         */
+        private const val MATCH_MEMO_ENTRIES = 1 shl 16
+
+        /**
+         * Maximum number of pattern nodes that are compared when the similarity of a candidate is estimated.
+         */
+        private const val SIMILARITY_NODES = 64
 
         /**
          * Format location information string from attribute name
@@ -65,7 +148,7 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
          * @param node Node to check
          * @return True if the node contains a wildcard.
          */
-        private fun isWildcard(node: JsonNode): Boolean {
+        internal fun isWildcard(node: JsonNode): Boolean {
             return node.isTextual && WILDCARD == node.textValue()
         }
 
@@ -83,7 +166,7 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
         /**
          * Check if the node contains a wildcard.
          *
-         * The wildcard is the last entry in the array or the child element with the
+         * The wildcard is an entry at any position in the array (see [ArraySegments]) or the child element with the
          * name "..." in an object.
 
          * @param node Node to check
@@ -91,12 +174,85 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
          */
         private fun containsWildcard(node: JsonNode): Boolean {
             return when (node) {
-                is ArrayNode -> node.size() > 0 && isWildcard(node.get(node.size() - 1))
+                is ArrayNode -> ArraySegments.containsWildcard(node)
                 is ObjectNode -> node.get(WILDCARD) != null && isWildcard(node.get(WILDCARD))
                 else -> throw IllegalArgumentException("Only array and object nodes can contain wildcards.")
             }
         }
 
+        /**
+         * @param pattern Pattern node.
+         * @return Whether the pattern contains arrays whose elements are matched in any order if
+         *         [MatcherConfig.randomArrayOrder] is set.
+         */
+        private fun hasRandomOrderArrays(pattern: JsonNode): Boolean = when {
+            // The items of keyed arrays are matched by key
+            KeyedArray.isKeyed(pattern) -> pattern.get(KeyedArray.ITEMS)?.any { hasRandomOrderArrays(it) } == true
+            pattern.isArray -> pattern.any { !isWildcard(it) }
+            else -> pattern.any { hasRandomOrderArrays(it) }
+        }
+
+        /**
+         * @param node    Object node.
+         * @param ignored Ignored paths at the position of the node.
+         * @return The object node without the ignored properties. The wildcard property is never ignored.
+         */
+        private fun withoutIgnored(node: ObjectNode, ignored: PathTrie.Cursor<String>): ObjectNode {
+            val isIgnored = { name: String, value: JsonNode ->
+                !(WILDCARD == name && isWildcard(value)) && ignored.child(name)?.matches == true
+            }
+            if (node.fields().asSequence().none { (name, value) -> isIgnored(name, value) }) {
+                return node
+            }
+            val result = node.objectNode()
+            node.fields().forEach { (name, value) ->
+                if (!isIgnored(name, value)) {
+                    result.replace(name, value)
+                }
+            }
+            return result
+        }
+
+        /**
+         * Estimate the structural similarity of an actual value with a pattern. Objects are compared by their common
+         * properties, arrays by position and strings by their common prefix and suffix. The estimate considers at
+         * most [SIMILARITY_NODES] pattern nodes, so it is cheap even for large values.
+         *
+         * @param pattern   Pattern value.
+         * @param actual    Actual value.
+         * @param remaining Number of pattern nodes that may still be considered, shared by the whole estimate.
+         * @return The similarity, higher values are more similar.
+         */
+        private fun similarity(pattern: JsonNode, actual: JsonNode, remaining: IntArray = intArrayOf(SIMILARITY_NODES)):
+                Double {
+            if (remaining[0]-- <= 0) {
+                return 0.0
+            }
+            if (isWildcard(pattern)) {
+                return 1.0
+            }
+            if (pattern.nodeType != actual.nodeType) {
+                return 0.0
+            }
+            return 1.0 + when {
+                pattern.isObject -> pattern.fields().asSequence().sumByDouble { (name, value) ->
+                    actual.get(name)?.let { 1.0 + similarity(value, it, remaining) } ?: 0.0
+                }
+                pattern.isArray -> (0 until Math.min(pattern.size(), actual.size())).sumByDouble {
+                    similarity(pattern.get(it), actual.get(it), remaining)
+                }
+                pattern.asText() == actual.asText() -> 2.0
+                pattern.isTextual -> {
+                    val patternText = pattern.textValue()
+                    val actualText = actual.textValue()
+                    val common = patternText.commonPrefixWith(actualText).length +
+                            patternText.commonSuffixWith(actualText).length
+                    2.0 * Math.min(common, patternText.length) / Math.max(patternText.length, actualText.length)
+                }
+                else -> 0.0
+            }
+        }
+
         /**
          * Validate that array or object sizes are correct. If there is a wildcard in the pattern object this means that the
          * actual object may contain more elements than the pattern object.
@@ -111,7 +267,7 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
                                                                locationInfo: String) {
             if (containsWildcard(pattern)) {
                 // Wildcard: Number of elements must be greater or equal to the number of actually specified elements
-                val specifiedElems = pattern.size() - 1
+                val specifiedElems = if (pattern is ArrayNode) pattern.count { !isWildcard(it) } else pattern.size() - 1
                 val actualContainerType = if (actual.isArray()) "array" else "object"
                 assertThat<Int>("${locationInfo}Actual $actualContainerType size too small",
                         actual.size(),
@@ -157,35 +313,376 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
      * @param pattern Pattern object.
      * @param actual   Actual value.
      */
-    fun assertMatches(reason: String?, pattern: JsonNode, actual: JsonNode) {
+    fun assertMatches(reason: String?, pattern: JsonNode, actual: JsonNode) =
+            assertMatches(reason, pattern, { _ -> actual }) { convertToString(actual) }
+
+    /**
+     * Recursively validate that the actual JSON string matches the pattern JSON (potentially with wildcards). Uses
+     * default root. In streaming mode (see [MatcherConfig.streaming]), the actual JSON is read guided by the pattern.
+     *
+     * @param reason  The error message to prepend to the JSON matcher error message if validation fails.
+     * @param pattern Pattern object.
+     * @param actual  Actual JSON string.
+     * @throws IllegalArgumentException If the actual JSON cannot be parsed.
+     */
+    fun assertMatches(reason: String?, pattern: JsonNode, actual: String) {
+        if (config.streaming) {
+            // The streamed node lacks the skipped sub-trees, so the error output is created from the complete JSON
+            assertMatches(reason, pattern, { streamingReader().read(actual, it) }) {
+                convertToString(convertToJsonNode(actual))
+            }
+        } else {
+            assertMatches(reason, pattern, parseAndValidate(actual, "actual"))
+        }
+    }
+
+    /**
+     * Recursively validate that the actual document of the given data format matches the pattern JSON (potentially
+     * with wildcards). Uses default root. The document is parsed by the Jackson parser of the format, and only
+     * converted to JSON text for the error output. In streaming mode (see [MatcherConfig.streaming]), the actual
+     * document is read guided by the pattern.
+     *
+     * @param reason  The error message to prepend to the JSON matcher error message if validation fails.
+     * @param pattern Pattern object.
+     * @param actual  Actual document.
+     * @param format  The data format of the actual document.
+     * @throws IllegalArgumentException If the actual document cannot be parsed.
+     * @throws IllegalStateException If the Jackson data format module of the format is missing.
+     */
+    fun assertMatches(reason: String?, pattern: JsonNode, actual: ByteArray, format: DataFormat) =
+            assertMatches(reason, pattern, actual, 0, actual.size, format)
+
+    /**
+     * Recursively validate that the remaining bytes of the buffer, a document of the given data format, match the
+     * pattern JSON (potentially with wildcards). Uses default root. The bytes of heap buffers are parsed in place,
+     * without copying or decoding them, and the position of the buffer is not changed. In streaming mode
+     * (see [MatcherConfig.streaming]), the actual document is read guided by the pattern.
+     *
+     * @param reason  The error message to prepend to the JSON matcher error message if validation fails.
+     * @param pattern Pattern object.
+     * @param actual  Buffer with the actual document between its position and its limit.
+     * @param format  The data format of the actual document.
+     * @throws IllegalArgumentException If the actual document cannot be parsed.
+     * @throws IllegalStateException If the Jackson data format module of the format is missing.
+     */
+    fun assertMatches(reason: String?, pattern: JsonNode, actual: ByteBuffer, format: DataFormat) {
+        if (actual.hasArray()) {
+            assertMatches(reason, pattern, actual.array(), actual.arrayOffset() + actual.position(),
+                    actual.remaining(), format)
+        } else {
+            // Direct buffers, e.g. of memory mapped files, are not backed by an array that Jackson could parse
+            val bytes = ByteArray(actual.remaining())
+            actual.duplicate().get(bytes)
+            assertMatches(reason, pattern, bytes, format)
+        }
+    }
+
+    /**
+     * Recursively validate that the actual document of the given data format matches the pattern JSON (potentially
+     * with wildcards). Uses default root. The document is parsed by the Jackson parser of the format. In streaming
+     * mode (see [MatcherConfig.streaming]), the stream is read completely first, because the error output needs the
+     * complete document.
+     *
+     * @param reason  The error message to prepend to the JSON matcher error message if validation fails.
+     * @param pattern Pattern object.
+     * @param actual  Actual document, not closed.
+     * @param format  The data format of the actual document.
+     * @throws IllegalArgumentException If the actual document cannot be parsed.
+     * @throws IllegalStateException If the Jackson data format module of the format is missing.
+     */
+    fun assertMatches(reason: String?, pattern: JsonNode, actual: InputStream, format: DataFormat) {
+        if (config.streaming) {
+            assertMatches(reason, pattern, actual.readBytes(), format)
+        } else {
+            assertMatches(reason, pattern, format.readTree(actual))
+        }
+    }
+
+    /**
+     * Validate that the JSON serialization of the given POJO matches the pattern, without building a tree of the
+     * serialization. The events of the serialization are guided by the pattern: values that cannot influence the
+     * match result, e.g. values matched by a wildcard, are discarded as they are produced. The remaining events are
+     * buffered as tokens and read like in streaming mode (see [MatcherConfig.streaming]).
+     *
+     * @param reason  The error message to prepend to the JSON matcher error message if validation fails.
+     * @param pattern Pattern object.
+     * @param pojo    The POJO to serialize.
+     * @param mapper  The object mapper that serializes the POJO.
+     */
+    fun assertPojoMatches(reason: String?, pattern: JsonNode, pojo: Any?, mapper: ObjectMapper) {
+        // The error output is created from the complete serialization
+        assertMatches(reason, pattern, { effectivePattern ->
+            val buffer = TokenBuffer(mapper, false)
+            mapper.writeValue(PatternGuidedGenerator(buffer, effectivePattern, config), pojo)
+            streamingReader().read(buffer.asParser(), effectivePattern)
+        }) { convertToString(mapper.valueToTree(pojo)) }
+    }
+
+    /**
+     * Validate that the nodes at the given JSON pointers match their patterns. The actual JSON is traversed once
+     * for all pointers and all failed assertions are reported together.
+     *
+     * @param reason   The error message to prepend to the JSON matcher error message if validation fails.
+     * @param patterns The patterns by JSON pointer (RFC 6901), e.g. `/items/0`.
+     * @param actual   Actual value.
+     * @throws IllegalArgumentException If one of the JSON pointers is invalid.
+     */
+    fun assertMatchesAt(reason: String?, patterns: Map<String, JsonNode>, actual: JsonNode) {
+        startMatch(patterns.values)
+        assertMatchesAt(reason, patterns, pointerTrie(patterns), actual) { convertToString(actual) }
+    }
+
+    /**
+     * Validate that the nodes at the given JSON pointers match their patterns. The actual JSON is parsed and
+     * traversed once for all pointers and all failed assertions are reported together. In streaming mode
+     * (see [MatcherConfig.streaming]), sub-trees that are not targeted by any pointer are skipped while parsing.
+     *
+     * @param reason   The error message to prepend to the JSON matcher error message if validation fails.
+     * @param patterns The patterns by JSON pointer (RFC 6901), e.g. `/items/0`.
+     * @param actual   Actual JSON string.
+     * @throws IllegalArgumentException If one of the JSON pointers is invalid or the actual JSON cannot be parsed.
+     */
+    fun assertMatchesAt(reason: String?, patterns: Map<String, JsonNode>, actual: String) {
+        val selection = pointerTrie(patterns)
+        startMatch(patterns.values)
+        if (config.streaming) {
+            val actualNode = streamingReader().readSelected(actual, selection)
+            assertMatchesAt(reason, patterns, selection, actualNode) { convertToString(convertToJsonNode(actual)) }
+        } else {
+            val actualNode = parseAndValidate(actual, "actual")
+            assertMatchesAt(reason, patterns, selection, actualNode) { convertToString(actualNode) }
+        }
+    }
+
+    /**
+     * Reset the state of the matcher for a new match.
+     *
+     * @param patterns The patterns of the match.
+     */
+    private fun startMatch(patterns: Collection<JsonNode>) {
+        budget = MatchBudget.start(config)
+        evaluatedMustache.clear()
+        matchMemo = if (memo == null && config.randomArrayOrder && patterns.any { hasRandomOrderArrays(it) }) {
+            SubtreeMemo(MATCH_MEMO_ENTRIES)
+        } else null
+    }
+
+    /**
+     * @return A reader for streaming mode that matches the elements of array templates while reading.
+     */
+    private fun streamingReader() = StreamingReader(config, budget, this::checkElement)
+
+    /**
+     * Start a match whose actual JSON is pushed in pieces, see [PushMatcher].
+     *
+     * @param pattern Pattern object.
+     * @return The pattern that the pushed values are checked against (see [checkPushed]).
+     */
+    internal fun startPushedMatch(pattern: JsonNode): JsonNode {
+        startMatch(listOf(pattern))
+        return withKeyedArrays(pattern)
+    }
+
+    /**
+     * Continue a match whose actual JSON is pushed in pieces with the next piece. The budgets of the config apply to
+     * each piece.
+     */
+    internal fun resumePushedMatch() {
+        budget = MatchBudget.start(config)
+    }
+
+    /**
+     * Validate a completed value of an actual JSON that is pushed in pieces.
+     *
+     * @param pattern       The pattern of the value.
+     * @param actual        Actual value.
+     * @param attributeName Name of the value (absolute path from root).
+     * @param ignored       Ignored paths at the position of the value.
+     * @return The error if the value does not match or null if it matches.
+     * @throws MatchBudgetExceededError If the match exceeds a budget of the config.
+     */
+    internal fun checkPushed(pattern: JsonNode, actual: JsonNode, attributeName: String,
+                             ignored: PathTrie.Cursor<String>?): AssertionError? =
+            checkElement(pattern, actual, attributeName, ignored)
+
+    /**
+     * @param reason       The error message to prepend to the JSON matcher error message.
+     * @param error        The error of a value of an actual JSON that is pushed in pieces.
+     * @param actualAsText The actual JSON received so far.
+     * @param pattern      Pattern object.
+     * @return The error of the match.
+     */
+    internal fun pushedMatchError(reason: String?, error: AssertionError, actualAsText: String, pattern: JsonNode):
+            AssertionError = matchError(reason, error.message, error, actualAsText, convertToString(pattern))
+
+    /**
+     * @param pattern  Pattern node.
+     * @param segments Path of the pattern node.
+     * @return The pattern with the arrays at the paths of [MatcherConfig.keyedArrays] turned into keyed arrays.
+     */
+    private fun withKeyedArrays(pattern: JsonNode, segments: List<String> = emptyList()): JsonNode {
+        val keyedPaths = config.keyedPaths ?: return pattern
+        if (segments.isEmpty()) {
+            keyedRoot?.let { (root, keyed) -> if (root === pattern) return keyed }
+        }
+        var cursor: PathTrie.Cursor<String>? = keyedPaths.cursor()
+        segments.forEach { cursor = cursor?.child(it) }
+        val keyed = KeyedArray.applyKeyedPaths(pattern, cursor)
+        if (segments.isEmpty()) {
+            keyedRoot = pattern to keyed
+        }
+        return keyed
+    }
+
+    /**
+     * @param patterns The patterns by JSON pointer.
+     * @return The pointer assertions in a trie of their paths.
+     * @throws IllegalArgumentException If one of the JSON pointers is invalid.
+     */
+    private fun pointerTrie(patterns: Map<String, JsonNode>): PathTrie<PointerAssertion> {
+        val result = PathTrie<PointerAssertion>()
+        patterns.entries.forEachIndexed { index, (pointer, pattern) ->
+            val segments = PathTrie.pointerSegments(pointer)
+            result.put(segments, PointerAssertion(index, pointer, withKeyedArrays(pattern, segments)))
+        }
+        return result
+    }
+
+    private fun assertMatches(reason: String?,
+                              pattern: JsonNode,
+                              readActual: (JsonNode) -> JsonNode,
+                              actualAsText: () -> String) {
+        startMatch(listOf(pattern))
         try {
-            validate(pattern, actual, "$")
+            val effectivePattern = withKeyedArrays(pattern)
+            validate(effectivePattern, readActual(effectivePattern), "$", config.ignoredPaths?.cursor())
+        } catch (ex: MatchBudgetExceededError) {
+            // The actual JSON may be huge, so only the report of the budget is given
+            throw if (reason != null) MatchBudgetExceededError("$reason: ${ex.message}", ex) else ex
         } catch (ex: AssertionError) {
-            val actualAsText = convertToString(actual)
-            val expectedAsText = convertToString(pattern)
+            throw matchError(reason, ex.message, ex, actualAsText(), convertToString(pattern))
+        }
+    }
+
+    private fun assertMatches(reason: String?,
+                              pattern: JsonNode,
+                              actual: ByteArray,
+                              offset: Int,
+                              length: Int,
+                              format: DataFormat) {
+        if (config.streaming) {
+            assertMatches(reason, pattern, { streamingReader().read(actual, offset, length, format, it) }) {
+                convertToString(format.readTree(actual, offset, length))
+            }
+        } else {
+            assertMatches(reason, pattern, format.readTree(actual, offset, length))
+        }
+    }
+
+    private fun assertMatchesAt(reason: String?,
+                                patterns: Map<String, JsonNode>,
+                                selection: PathTrie<PointerAssertion>,
+                                actual: JsonNode,
+                                actualAsText: () -> String) {
+        val failures = sortedMapOf<Int, String>()
+        validateAt(selection.root, actual, "$", failures, config.ignoredPaths?.cursor())
+        if (failures.isNotEmpty()) {
+            val message = "${failures.size} of ${patterns.size} pointer assertions failed:\n" +
+                    failures.values.joinToString("\n")
+            val patternsNode = JsonNodeFactory.instance.objectNode()
+            patterns.forEach { (pointer, pattern) -> patternsNode.replace(pointer, pattern) }
+            throw matchError(reason, message, null, actualAsText(), convertToString(patternsNode))
+        }
+    }
+
+    /**
+     * Validate the pointer assertions of the given trie node and its children.
+     *
+     * @param selection     The trie node of the currently processed path.
+     * @param actual        Actual value at the path or null if there is no such value.
+     * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param failures      The error messages of the failed assertions by assertion index.
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
+     */
+    private fun validateAt(selection: PathTrie.Node<PointerAssertion>,
+                           actual: JsonNode?,
+                           attributeName: String,
+                           failures: MutableMap<Int, String>,
+                           ignored: PathTrie.Cursor<String>?) {
+        for (assertion in selection.values) {
+            if (actual == null) {
+                failures[assertion.index] = "${assertion.pointer}: ${formatLocation(attributeName)}No value found"
+            } else {
+                try {
+                    validate(assertion.pattern, actual, attributeName, ignored)
+                } catch (ex: MatchBudgetExceededError) {
+                    throw ex
+                } catch (ex: AssertionError) {
+                    failures[assertion.index] = "${assertion.pointer}: ${ex.message}"
+                }
+            }
+        }
+
+        selection.children.forEach { (segment, child) ->
+            val childIgnored = ignored?.child(segment)
+            when {
+                actual != null && actual.isArray ->
+                    validateAt(child, segment.toIntOrNull()?.let { actual.get(it) }, "$attributeName[$segment]",
+                            failures, childIgnored)
+                actual != null && actual.isObject ->
+                    validateAt(child, actual.get(segment), "$attributeName.$segment", failures, childIgnored)
+                else -> validateAt(child, null, "$attributeName.$segment", failures, childIgnored)
+            }
+        }
+    }
 
-            val mustacheScopeString = if (this.mustacheScope != null) {
-                """
+    private fun matchError(reason: String?,
+                           message: String?,
+                           cause: Throwable?,
+                           actualAsText: String,
+                           expectedAsText: String): AssertionError {
+        val mustacheScopeString = if (this.mustacheScope != null) {
+            """
 
-                |--------------------------------------------------------------------------------------------
-                |Mustache Scope
-                |--------------------------------------------------------------------------------------------
-                |${printMustacheScope(this.mustacheScope)}
-                """
-            } else ""
+            |--------------------------------------------------------------------------------------------
+            |Mustache Scope
+            |--------------------------------------------------------------------------------------------
+            |${printMustacheScope(this.mustacheScope)}
+            """
+        } else ""
 
-            val reasonOutput: String = if (reason != null) "$reason: " else ""
-            throw AssertionError("""$reasonOutput${ex.message}.
+        val reasonOutput: String = if (reason != null) "$reason: " else ""
+        return AssertionError("""$reasonOutput$message.
 
-                |--------------------------------------------------------------------------------------------
-                |Actual JSON
-                |--------------------------------------------------------------------------------------------
-                |$actualAsText
+            |--------------------------------------------------------------------------------------------
+            |Actual JSON
+            |--------------------------------------------------------------------------------------------
+            |$actualAsText
+
+            |--------------------------------------------------------------------------------------------
+            |Pattern
+            |--------------------------------------------------------------------------------------------
+            |$expectedAsText$mustacheScopeString""".trimMargin(), cause)
+    }
 
-                |--------------------------------------------------------------------------------------------
-                |Pattern
-                |--------------------------------------------------------------------------------------------
-                |$expectedAsText$mustacheScopeString""".trimMargin(), ex)
+    /**
+     * Recursively validate that the actual JSON matches the pattern JSON (potentially with wildcards) without
+     * reporting where it does not match.
+     *
+     * @param pattern Pattern object.
+     * @param actual  Actual value.
+     * @return Whether the actual JSON matches the pattern.
+     * @throws MatchBudgetExceededError If the match exceeds a budget of the config.
+     */
+    fun matches(pattern: JsonNode, actual: JsonNode): Boolean {
+        startMatch(listOf(pattern))
+        return try {
+            validate(withKeyedArrays(pattern), actual, "$", config.ignoredPaths?.cursor())
+            true
+        } catch (ex: MatchBudgetExceededError) {
+            throw ex
+        } catch (ignored: AssertionError) {
+            false
         }
     }
 
@@ -209,9 +706,45 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
      * @param pattern       Pattern object.
      * @param actual        Actual value.
      * @param attributeName Name of currently processed attribute (absolut path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
      */
-    private fun validate(pattern: JsonNode, actual: JsonNode, attributeName: String) {
-        if (isWildcard(pattern)) {
+    private fun validate(pattern: JsonNode, actual: JsonNode, attributeName: String,
+                         ignored: PathTrie.Cursor<String>?) {
+        budget?.visit(attributeName)
+        if (isWildcard(pattern) || ignored?.matches == true) {
+            return
+        }
+        val memo = memo ?: matchMemo
+        if (memo != null && actual.isContainerNode) {
+            memo.validate(pattern, actual, attributeName) { validateNode(pattern, actual, attributeName, ignored) }
+        } else {
+            validateNode(pattern, actual, attributeName, ignored)
+        }
+    }
+
+    /**
+     * Validate that the actual value matches the pattern, without looking up known results.
+     *
+     * @param pattern       Pattern object, not a wildcard.
+     * @param actual        Actual value.
+     * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute, not ignored itself.
+     */
+    private fun validateNode(pattern: JsonNode, actual: JsonNode, attributeName: String,
+                             ignored: PathTrie.Cursor<String>?) {
+        val template = ArrayTemplate.of(pattern)
+        if (template != null) {
+            validateTemplate(template, actual, attributeName, ignored)
+            return
+        }
+        val keyed = KeyedArray.of(pattern)
+        if (keyed != null) {
+            validateKeyed(keyed, actual, attributeName, ignored)
+            return
+        }
+        val sparse = SparseArray.of(pattern)
+        if (sparse != null) {
+            validateSparse(sparse, actual, attributeName, ignored)
             return
         }
 
@@ -220,8 +753,8 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
                 actual.nodeType, `is`(pattern.nodeType))
 
         when {
-            pattern is ObjectNode && actual is ObjectNode -> validateObject(pattern, actual, attributeName)
-            pattern is ArrayNode && actual is ArrayNode -> validateArray(pattern, actual, attributeName)
+            pattern is ObjectNode && actual is ObjectNode -> validateObject(pattern, actual, attributeName, ignored)
+            pattern is ArrayNode && actual is ArrayNode -> validateArray(pattern, actual, attributeName, ignored)
             pattern is TextNode && actual is TextNode -> validateString(pattern, actual, attributeName)
             pattern is ValueNode && actual is ValueNode -> validateScalar(pattern, actual, attributeName)
             else -> {
@@ -239,21 +772,26 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
      * @param pattern       Pattern object.
      * @param actual        Actual value.
      * @param attributeName Name of currently processed attribute (absolut path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
      */
-    private fun validateObject(pattern: ObjectNode, actual: ObjectNode, attributeName: String) {
+    private fun validateObject(pattern: ObjectNode, actual: ObjectNode, attributeName: String,
+                               ignored: PathTrie.Cursor<String>?) {
         val locationInfo = formatLocation(attributeName)
-        validateCorrectSize<ObjectNode>(pattern, actual, locationInfo)
+        // Ignored properties are neither required nor compared
+        val expected = if (ignored != null) withoutIgnored(pattern, ignored) else pattern
+        val present = if (ignored != null) withoutIgnored(actual, ignored) else actual
+        validateCorrectSize<ObjectNode>(expected, present, locationInfo)
 
-        val expectedFieldNames = pattern.fieldNames()
+        val expectedFieldNames = expected.fieldNames()
         while (expectedFieldNames.hasNext()) {
             val expectedFieldName = expectedFieldNames.next()
-            if (WILDCARD == expectedFieldName && isWildcard(pattern.get(WILDCARD))) {
+            if (WILDCARD == expectedFieldName && isWildcard(expected.get(WILDCARD))) {
                 continue
             }
             assertThat("$locationInfo Expected field name '$expectedFieldName' not found.",
-                    actual.get(expectedFieldName), notNullValue())
-            validate(pattern.get(expectedFieldName), actual.get(expectedFieldName),
-                    "$attributeName.$expectedFieldName")
+                    present.get(expectedFieldName), notNullValue())
+            validate(expected.get(expectedFieldName), present.get(expectedFieldName),
+                    "$attributeName.$expectedFieldName", ignored?.child(expectedFieldName))
         }
     }
 
@@ -263,15 +801,168 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
      * @param pattern       Pattern array.
      * @param actual        Actual array.
      * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
      */
-    private fun validateArray(pattern: ArrayNode, actual: ArrayNode, attributeName: String) {
+    private fun validateArray(pattern: ArrayNode, actual: ArrayNode, attributeName: String,
+                              ignored: PathTrie.Cursor<String>?) {
         val locationInfo: String = formatLocation(attributeName)
         validateCorrectSize(pattern, actual, locationInfo)
 
         if (config.randomArrayOrder) {
-            validateArrayRandom(attributeName, pattern, actual)
+            validateArrayRandom(attributeName, pattern, actual, ignored)
         } else {
-            validateArrayOrdered(attributeName, pattern, actual)
+            validateArrayOrdered(attributeName, pattern, actual, ignored)
+        }
+    }
+
+    /**
+     * Validate that the actual value is an array whose elements all match the element pattern of the template. The
+     * elements of large arrays are matched in parallel (see [MatcherConfig.parallelThreshold]). In any case, the
+     * first element that does not match is reported.
+     *
+     * @param template      The array template.
+     * @param actual        Actual value.
+     * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
+     */
+    private fun validateTemplate(template: ArrayTemplate, actual: JsonNode, attributeName: String,
+                                 ignored: PathTrie.Cursor<String>?) {
+        val locationInfo = formatLocation(attributeName)
+        assertThat(locationInfo + "Incorrect type of attribute", actual.nodeType, `is`(JsonNodeType.ARRAY))
+        template.minSize?.let {
+            assertThat("${locationInfo}Actual array size too small", actual.size(), greaterThanOrEqualTo(it))
+        }
+        template.maxSize?.let {
+            assertThat("${locationInfo}Actual array size too large", actual.size(), lessThanOrEqualTo(it))
+        }
+
+        val size = actual.size()
+        val sampling = config.sampling?.takeIf { it.isSampling(size) }
+        val failure = if (actual is CheckedArrayNode) {
+            // Already matched while reading in streaming mode
+            actual.failure
+        } else {
+            val check = { index: Int ->
+                if (sampling == null || sampling.isSampled(index, size)) {
+                    checkElement(template.element, actual.get(index), "$attributeName[$index]",
+                            ignored?.child(index.toString()))
+                } else null
+            }
+            if (size >= config.parallelThreshold) {
+                // The failure of the first element is found by the ordered stream, as in the sequential case
+                IntStream.range(0, size).parallel().mapToObj(check).filter { it != null }.findFirst().orElse(null)
+            } else {
+                (0 until size).asSequence().map(check).firstOrNull { it != null }
+            }
+        }
+        failure?.let { throw sampledError(it, sampling, attributeName, size) }
+    }
+
+    /**
+     * @param error         Error of an element of an array.
+     * @param sampling      The sample of the elements of the array or null if all elements are checked.
+     * @param attributeName Name of the array (absolute path from root).
+     * @param size          Number of compared elements of the array.
+     * @return The error, extended by the checked elements if the array is sampled.
+     */
+    private fun sampledError(error: AssertionError, sampling: ArraySampling?, attributeName: String, size: Int):
+            AssertionError {
+        if (sampling == null) {
+            return error
+        }
+        return LazyAssertionError { "${error.message}\n${sampling.describe(attributeName, size)}" }
+    }
+
+    /**
+     * Validate that the actual value is an array that contains an element with the same key for each element of the
+     * keyed array, and that these elements match. The actual elements are indexed by their key, so each pattern
+     * element is matched against exactly one actual element.
+     *
+     * @param keyed         The keyed array.
+     * @param actual        Actual value.
+     * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
+     */
+    private fun validateKeyed(keyed: KeyedArray, actual: JsonNode, attributeName: String,
+                              ignored: PathTrie.Cursor<String>?) {
+        val locationInfo = formatLocation(attributeName)
+        assertThat(locationInfo + "Incorrect type of attribute", actual.nodeType, `is`(JsonNodeType.ARRAY))
+        if (keyed.wildcard) {
+            assertThat("${locationInfo}Actual array size too small", actual.size(),
+                    greaterThanOrEqualTo(keyed.items.size))
+        } else {
+            assertThat("${locationInfo}Sizes of arrays do not match.", actual.size(), equalTo(keyed.items.size))
+        }
+
+        // Index of the actual elements by key, -1 for keys of several elements. Ignored elements have no key.
+        val indexByKey = HashMap<String, Int>(actual.size() * 2)
+        actual.forEachIndexed { index, element ->
+            val keyNode = element.at(keyed.keyPointer)
+            if (keyNode.isValueNode && ignored?.child(index.toString())?.matches != true) {
+                val key = literalKey(keyNode)
+                indexByKey[key] = if (indexByKey.containsKey(key)) -1 else index
+            }
+        }
+
+        // Pattern keys with mustache expressions may evaluate to the same key and claim the same element
+        val claimed = HashSet<Int>()
+        keyed.items.forEach { item ->
+            val patternKey = item.at(keyed.keyPointer)
+            val key = if (patternKey.isTextual && evaluateMustache != null) {
+                literalKey(TextNode.valueOf(evaluateMustache.invoke(patternKey.textValue())))
+            } else literalKey(patternKey)
+            val keyInfo = "key ${keyed.keyPointer} = $patternKey"
+            val index = indexByKey[key] ?: throw AssertionError("${locationInfo}No element with $keyInfo found")
+            if (index < 0) {
+                throw AssertionError("${locationInfo}Several elements with $keyInfo found")
+            }
+            require(claimed.add(index)) { "${locationInfo}Several elements of keyed array have the $keyInfo" }
+            validate(item, actual.get(index), "$attributeName[$index]", ignored?.child(index.toString()))
+        }
+    }
+
+    /**
+     * Validate that the actual value is an array whose elements at the indices of the sparse array match their
+     * patterns. The other elements are not matched.
+     *
+     * @param sparse        The sparse array.
+     * @param actual        Actual value.
+     * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
+     */
+    private fun validateSparse(sparse: SparseArray, actual: JsonNode, attributeName: String,
+                               ignored: PathTrie.Cursor<String>?) {
+        val locationInfo = formatLocation(attributeName)
+        assertThat(locationInfo + "Incorrect type of attribute", actual.nodeType, `is`(JsonNodeType.ARRAY))
+        if (sparse.size != null) {
+            assertThat("${locationInfo}Sizes of arrays do not match.", actual.size(), equalTo(sparse.size))
+        }
+        assertThat("${locationInfo}Actual array size too small", actual.size(), greaterThanOrEqualTo(sparse.minSize))
+
+        sparse.resolve(actual.size()).forEach { (index, element) ->
+            validate(element, actual.get(index), "$attributeName[$index]", ignored?.child(index.toString()))
+        }
+    }
+
+    /**
+     * Validate an element of an array template.
+     *
+     * @param pattern       The element pattern.
+     * @param actual        Actual element.
+     * @param attributeName Name of the element (absolute path from root).
+     * @param ignored       Ignored paths at the position of the element.
+     * @return The error if the element does not match or null if it matches.
+     * @throws MatchBudgetExceededError If the match exceeds a budget of the config.
+     */
+    private fun checkElement(pattern: JsonNode, actual: JsonNode, attributeName: String,
+                             ignored: PathTrie.Cursor<String>?): AssertionError? {
+        return try {
+            validate(pattern, actual, attributeName, ignored)
+            null
+        } catch (ex: MatchBudgetExceededError) {
+            throw ex
+        } catch (ex: AssertionError) {
+            ex
         }
     }
 
@@ -281,66 +972,192 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
      * @param pattern       Pattern array.
      * @param actual        Actual array.
      * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
      */
-    private fun validateArrayRandom(attributeName: String, pattern: ArrayNode, actual: ArrayNode) {
+    private fun validateArrayRandom(attributeName: String, pattern: ArrayNode, actual: ArrayNode,
+                                    ignored: PathTrie.Cursor<String>?) {
         val locationInfo: String = formatLocation(attributeName)
 
         val wildcardMatchMode = containsWildcard(pattern)
 
-        val actualNodes: List<JsonNode> = actual.toList()
-        val expectedNodes: List<JsonNode> = if (wildcardMatchMode) pattern.filterNot(::isWildcard) else pattern.toList()
+        // Ignored elements are neither required nor candidates for a pattern element
+        val isIgnored = { index: Int -> ignored?.child(index.toString())?.matches == true }
+        val actualNodes: List<IndexedValue<JsonNode>> = actual.withIndex().filterNot { isIgnored(it.index) }
+        val expectedNodes: List<IndexedValue<JsonNode>> = pattern.withIndex().filterNot { (index, node) ->
+            (wildcardMatchMode && isWildcard(node)) || isIgnored(index)
+        }
 
-        // For each element in expected find at least one element in actual that does not fail validation
-        expectedNodes.forEach { expectedNode ->
-            if (!hasItem(actualNodes, expectedNode)) {
-                if (wildcardMatchMode) {
+        // For each element in expected find at least one element in actual that does not fail validation. The found
+        // elements are kept for the diagnostics.
+        val found = IntArray(expectedNodes.size)
+        expectedNodes.forEachIndexed { position, expectedNode ->
+            val index = findItem(actualNodes, expectedNode.value, attributeName, ignored)
+            if (index == null) {
+                val summary = if (wildcardMatchMode) {
                     // Wildcard found -> actual must contain all pattern elements (and may contain additional elements)
-                    throw AssertionError("$locationInfo Actual array does not contain all pattern " +
-                            "array elements ignoring order")
+                    "$locationInfo Actual array does not contain all pattern array elements ignoring order"
                 } else {
                     // No wildcard -> sets must be equal
-                    throw AssertionError("$locationInfo Arrays are not equal ignoring order")
+                    "$locationInfo Arrays are not equal ignoring order"
+                }
+                // Most failures are caught while searching enclosing arrays, so the diagnostics are only created
+                // if the message is actually read
+                throw LazyAssertionError {
+                    summary + describeUnmatched(attributeName, expectedNodes, position, found, actualNodes, ignored)
+                }
+            }
+            found[position] = index
+        }
+    }
+
+    /**
+     * Describe the unmatched pattern elements of an array in random order, each with the closest actual element and
+     * where it differs. The search of the match is continued after the first unmatched pattern element until
+     * [DESCRIBED_UNMATCHED_ELEMENTS] are found, the remaining pattern elements are not checked. The closest element is
+     * estimated by [similarity] among the actual elements that are not found for other pattern elements, and only the
+     * closest one is validated. So the description costs at most the rest of the match and one more validation per
+     * described element.
+     *
+     * @param attributeName Name of the array (absolute path from root).
+     * @param expected      The pattern elements with their index.
+     * @param unmatched     Position in [expected] of the first unmatched pattern element.
+     * @param found         Indices of the actual elements that are found for the pattern elements before it.
+     * @param actual        The actual elements with their index.
+     * @param ignored       Ignored paths at the position of the array.
+     * @return The description, starting with a line break.
+     */
+    private fun describeUnmatched(attributeName: String,
+                                  expected: List<IndexedValue<JsonNode>>,
+                                  unmatched: Int,
+                                  found: IntArray,
+                                  actual: List<IndexedValue<JsonNode>>,
+                                  ignored: PathTrie.Cursor<String>?): String {
+        val builder = StringBuilder()
+        try {
+            val claimed = HashSet<Int>()
+            (0 until unmatched).forEach { claimed.add(found[it]) }
+            val described = mutableListOf(expected[unmatched])
+            var position = unmatched + 1
+            while (described.size < DESCRIBED_UNMATCHED_ELEMENTS && position < expected.size) {
+                val expectedNode = expected[position++]
+                val index = findItem(actual, expectedNode.value, attributeName, ignored)
+                if (index == null) described.add(expectedNode) else claimed.add(index)
+            }
+            val unclaimed = actual.filterNot { it.index in claimed }
+            val candidates = if (unclaimed.isEmpty()) actual else unclaimed
+            described.forEach { (patternIndex, expectedNode) ->
+                builder.append("\nUnmatched pattern element [$patternIndex] ${compactString(expectedNode)}")
+                val closest = candidates.maxBy { similarity(expectedNode, it.value) }
+                if (closest != null) {
+                    val difference = try {
+                        validate(expectedNode, closest.value, "$attributeName[${closest.index}]",
+                                ignored?.child(closest.index.toString()))
+                        null
+                    } catch (ex: MatchBudgetExceededError) {
+                        throw ex
+                    } catch (ex: AssertionError) {
+                        ex.message
+                    }
+                    builder.append(", closest actual element [${closest.index}] ${compactString(closest.value)}")
+                    difference?.lines()?.forEach { builder.append("\n  ").append(it) }
                 }
             }
+            if (position < expected.size) {
+                builder.append("\n... and ${expected.size - position} more pattern elements that are not checked")
+            }
+        } catch (ex: MatchBudgetExceededError) {
+            builder.append("\nNo further diagnostics, the match budget is exceeded")
         }
+        return builder.toString()
     }
 
     /**
-     * Returns whether the given list contains at least one item that matches the given pattern.
+     * Returns the index of the first item of the given list that matches the given pattern.
      *
-     * @param list The list.
-     * @param pattern The pattern.
-     * @return Whether the list contains an item that matches the given pattern.
+     * @param list          The list of items with their index.
+     * @param pattern       The pattern.
+     * @param attributeName Name of the list (absolute path from root).
+     * @param ignored       Ignored paths at the position of the list.
+     * @return The index of the first item that matches the given pattern or null if there is none.
      */
-    private fun hasItem(list: List<JsonNode>, pattern: JsonNode): Boolean {
-        for (actualNode in list) {
+    private fun findItem(list: List<IndexedValue<JsonNode>>, pattern: JsonNode, attributeName: String,
+                         ignored: PathTrie.Cursor<String>?): Int? {
+        for ((index, actualNode) in list) {
+            budget?.compare(attributeName)
             // I know it is bad practice to use exeptions for control flow but currently the validation works
             // this way. When we restructure the code to return a list of validation errors instead of throwing, this
             // function will become cleaner.
             try {
-                validate(pattern, actualNode, "ignored")
-                return true
+                validate(pattern, actualNode, "$attributeName[$index]", ignored?.child(index.toString()))
+                return index
+            } catch (ex: MatchBudgetExceededError) {
+                throw ex
             } catch (ignored: AssertionError) {
                 // Ignored
             }
         }
-        return false
+        return null
     }
 
     /**
      * Recursively validate that the actual value matches the pattern array in fixed order (potentially with wildcards).
      *
-     * The fixed order is dictated by the pattern.
+     * The fixed order is dictated by the pattern. Of large arrays, only the elements of the sample are checked (see
+     * [MatcherConfig.sampling]).
      *
      * @param pattern       Pattern array.
      * @param actual        Actual array.
      * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
      */
-    private fun validateArrayOrdered(attributeName: String, pattern: ArrayNode, actual: ArrayNode) {
-        // If pattern contains wildcard only the elements up to the wildcard must match.
-        val maxIndex = if (containsWildcard(pattern)) pattern.size() - 2 else pattern.size() - 1
-        for (i in 0..maxIndex) {
-            validate(pattern.get(i), actual.get(i), "$attributeName[$i]")
+    private fun validateArrayOrdered(attributeName: String, pattern: ArrayNode, actual: ArrayNode,
+                                     ignored: PathTrie.Cursor<String>?) {
+        // If pattern contains wildcards only the elements up to the first wildcard are matched by position.
+        val segments = ArraySegments.of(pattern)
+        val size = segments?.prefix?.count() ?: pattern.size()
+        val sampling = config.sampling?.takeIf { it.isSampling(size) }
+        for (i in 0 until size) {
+            if (sampling == null) {
+                validate(pattern.get(i), actual.get(i), "$attributeName[$i]", ignored?.child(i.toString()))
+            } else if (sampling.isSampled(i, size)) {
+                checkElement(pattern.get(i), actual.get(i), "$attributeName[$i]", ignored?.child(i.toString()))
+                        ?.let { throw sampledError(it, sampling, attributeName, size) }
+            }
+        }
+        if (segments != null) {
+            validateSegments(attributeName, segments, actual, ignored)
+        }
+    }
+
+    /**
+     * Validate the segments of a pattern array after its first wildcard. The suffix is matched by position from the
+     * end of the actual array, the infixes in order between the prefix and the suffix (see [ArraySegments]).
+     *
+     * @param segments      Segments of the pattern array.
+     * @param actual        Actual array, at least as large as the number of specified pattern elements.
+     * @param attributeName Name of currently processed attribute (absolute path from root).
+     * @param ignored       Ignored paths at the position of the currently processed attribute.
+     */
+    private fun validateSegments(attributeName: String, segments: ArraySegments, actual: ArrayNode,
+                                 ignored: PathTrie.Cursor<String>?) {
+        val pattern = segments.pattern
+        val suffixStart = actual.size() - segments.suffix.count()
+        var start = segments.prefix.count()
+        for (infix in segments.infixes) {
+            val position = segments.find(infix, start, suffixStart) { patternIndex, actualIndex ->
+                budget?.compare(attributeName)
+                checkElement(pattern.get(patternIndex), actual.get(actualIndex), "$attributeName[$actualIndex]",
+                        ignored?.child(actualIndex.toString())) == null
+            }
+            position ?: throw AssertionError("${formatLocation(attributeName)}Pattern elements " +
+                    "[${infix.first}..${infix.last}] ${compactString(segments.elements(infix))} not found in order " +
+                    "between actual elements [$start] and [${suffixStart - 1}]")
+            start = position + infix.count()
+        }
+        for (i in segments.suffix) {
+            val actualIndex = suffixStart + i - segments.suffix.first
+            validate(pattern.get(i), actual.get(actualIndex), "$attributeName[$actualIndex]",
+                    ignored?.child(actualIndex.toString()))
         }
     }
 
@@ -354,8 +1171,43 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
     private fun validateString(pattern: TextNode, actual: TextNode, attributeName: String) {
         val locationInfo = formatLocation(attributeName)
         val patternText = pattern.textValue()
-        MustacheMatcher.assertEqual(locationInfo + "Value does not match", patternText, actual.textValue(),
-                mustacheScope)
+        if (actual is DigestTextNode || patternText.startsWith(StringDigest.DIGEST_PREFIX)) {
+            validateDigest(patternText, actual, locationInfo)
+        } else {
+            MustacheMatcher.assertEqual(locationInfo + "Value does not match", patternText, actual.textValue(),
+                    evaluateMustache)
+        }
+    }
+
+    /**
+     * Validate string match by comparing the SHA-256 digests of the strings. The pattern may either be a digest
+     * magic value (see [StringDigest.DIGEST_PREFIX]) or a string that is hashed, potentially after evaluating it as
+     * mustache expression.
+     *
+     * @param patternText  Pattern string.
+     * @param actual       Actual value, potentially only represented by its digest.
+     * @param locationInfo Location information for error output.
+     */
+    private fun validateDigest(patternText: String, actual: TextNode, locationInfo: String) {
+        // The expected string or null if the pattern is a digest
+        val expected = if (patternText.startsWith(StringDigest.DIGEST_PREFIX)) null
+        else evaluateMustache?.invoke(patternText) ?: patternText
+        val expectedDigest = expected?.let { StringDigest.sha256(it) }
+                ?: patternText.substring(StringDigest.DIGEST_PREFIX.length).toLowerCase()
+        val actualDigest = if (actual is DigestTextNode) actual.digest else StringDigest.sha256(actual.textValue())
+        if (actualDigest == expectedDigest) {
+            return
+        }
+        // Digests alone do not tell how the strings differ, so the start of the expected string is reported
+        val strings = if (expected == null) "" else {
+            val start = if (expected.length > DESCRIBED_DIGESTED_CHARS) {
+                expected.substring(0, DESCRIBED_DIGESTED_CHARS) + "..."
+            } else expected
+            val actualLength = if (actual is DigestTextNode) actual.length else actual.textValue().length
+            "\nExpected string (${expected.length} characters): \"$start\"\nActual string: $actualLength characters"
+        }
+        assertThat("${locationInfo}Value does not match (compared by SHA-256 digest)$strings",
+                actualDigest, `is`(expectedDigest))
     }
 
     /**
@@ -370,3 +1222,23 @@ class JsonMatcher(private val config: MatcherConfig, private val mustacheScope:
         assertThat(locationInfo + "Element does not match", actual.asText(), `is`<String>(pattern.asText()))
     }
 }
+
+/**
+ * An assertion that the node at a JSON pointer matches a pattern.
+ *
+ * @property index   Position of the assertion in the order of declaration.
+ * @property pointer The JSON pointer.
+ * @property pattern The pattern for the node at the pointer.
+ */
+internal class PointerAssertion(val index: Int, val pointer: String, val pattern: JsonNode)
+
+/**
+ * An assertion error whose message is only created when it is read, e.g. because it contains expensive
+ * diagnostics.
+ *
+ * @param message Creates the message.
+ */
+private class LazyAssertionError(message: () -> String) : AssertionError() {
+
+    override val message: String by lazy(message)
+}
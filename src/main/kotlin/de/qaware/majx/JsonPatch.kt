@@ -0,0 +1,201 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.ObjectNode
+
+/**
+ * A JSON patch (RFC 6902) that is applied to a document in place.
+ *
+ * Containers are changed in place instead of being copied, so that unchanged sub-trees keep their identity, see
+ * [SubtreeMemo]. Operations are applied one after the other. If an operation fails, the preceding operations remain
+ * applied.
+ *
+ * @property operations The operations of the patch.
+ */
+internal class JsonPatch private constructor(private val operations: List<Operation>) {
+
+    /**
+     * An operation of a JSON patch.
+     *
+     * @property op    Name of the operation, e.g. `add`.
+     * @property path  Segments of the target location.
+     * @property from  Segments of the source location of `move` and `copy`, otherwise null.
+     * @property value The value of `add`, `replace` and `test`, otherwise null.
+     */
+    private class Operation(val op: String, val path: List<String>, val from: List<String>?, val value: JsonNode?)
+
+    /**
+     * Companion object provides support methods for [JsonPatch].
+     */
+    companion object {
+
+        private val OPERATIONS = setOf("add", "remove", "replace", "move", "copy", "test")
+
+        /**
+         * Compares numbers by their value, as `test` requires (RFC 6902, section 4.6), so that e.g. `1.0` equals `1`.
+         * Other nodes are compared with [JsonNode.equals]. Only the result 0 (equal) is meaningful.
+         */
+        private val NUMERIC_EQUALITY = Comparator<JsonNode> { a, b ->
+            if (a.isNumber && b.isNumber) a.decimalValue().compareTo(b.decimalValue()) else if (a == b) 0 else 1
+        }
+
+        /**
+         * @param patch The JSON patch, an array of operations.
+         * @return The parsed JSON patch.
+         * @throws IllegalArgumentException If the JSON patch is malformed.
+         */
+        fun of(patch: JsonNode): JsonPatch {
+            require(patch.isArray) { "JSON patch must be an array of operations, but is $patch" }
+            return JsonPatch(patch.mapIndexed { index, operation ->
+                val op = operation.get("op")?.textValue()
+                require(op in OPERATIONS) { "Operation $index of JSON patch has no valid op: $operation" }
+                val path = operation.get("path")?.textValue()
+                requireNotNull(path) { "Operation $index of JSON patch has no path: $operation" }
+                val from = if (op == "move" || op == "copy") {
+                    val from = operation.get("from")?.textValue()
+                    requireNotNull(from) { "Operation $index of JSON patch has no from: $operation" }
+                    PathTrie.pointerSegments(from)
+                } else null
+                val value = if (op == "add" || op == "replace" || op == "test") {
+                    requireNotNull(operation.get("value")) { "Operation $index of JSON patch has no value: $operation" }
+                } else null
+                Operation(op!!, PathTrie.pointerSegments(path), from, value)
+            })
+        }
+
+        private fun pointer(segments: List<String>): String =
+                segments.joinToString("") { "/" + it.replace("~", "~0").replace("/", "~1") }
+    }
+
+    /**
+     * Apply the patch to a document.
+     *
+     * @param document The document, changed in place.
+     * @param changed  Called with each container whose children are changed.
+     * @param removed  Called with each node that is removed or replaced.
+     * @return The patched document, which is a different node only if the root is replaced.
+     * @throws IllegalArgumentException If an operation cannot be applied, e.g. because its path does not exist or a
+     *                                  `test` fails.
+     */
+    fun apply(document: JsonNode, changed: (JsonNode) -> Unit, removed: (JsonNode) -> Unit): JsonNode {
+        var result = document
+        operations.forEach { operation ->
+            val path = operation.path
+            result = when (operation.op) {
+                "add" -> add(result, path, operation.value!!.deepCopy(), changed, removed)
+                "remove" -> {
+                    remove(result, path, changed, removed)
+                    result
+                }
+                "replace" -> {
+                    get(result, path)
+                    if (path.isNotEmpty()) {
+                        remove(result, path, changed, removed)
+                    }
+                    add(result, path, operation.value!!.deepCopy(), changed, removed)
+                }
+                "move" -> {
+                    val from = operation.from!!
+                    require(path.size <= from.size || path.subList(0, from.size) != from) {
+                        "Cannot move ${pointer(from)} into its descendant ${pointer(path)}"
+                    }
+                    val value = get(result, from)
+                    if (path == from) result else {
+                        remove(result, from, changed) {}
+                        add(result, path, value, changed, removed)
+                    }
+                }
+                "copy" -> add(result, path, get(result, operation.from!!).deepCopy(), changed, removed)
+                else -> {
+                    require(get(result, path).equals(NUMERIC_EQUALITY, operation.value)) {
+                        "Test of JSON patch failed at ${pointer(path)}: expected ${operation.value}"
+                    }
+                    result
+                }
+            }
+        }
+        return result
+    }
+
+    private fun get(document: JsonNode, path: List<String>): JsonNode {
+        var node = document
+        path.forEach { segment ->
+            node = when (node) {
+                is ObjectNode -> node.get(segment)
+                is ArrayNode -> segment.toIntOrNull()?.takeIf { it >= 0 }?.let { node.get(it) }
+                else -> null
+            } ?: throw IllegalArgumentException("Path ${pointer(path)} of JSON patch does not exist")
+        }
+        return node
+    }
+
+    private fun add(document: JsonNode, path: List<String>, value: JsonNode, changed: (JsonNode) -> Unit,
+                    removed: (JsonNode) -> Unit): JsonNode {
+        if (path.isEmpty()) {
+            removed(document)
+            return value
+        }
+        val parent = parent(document, path, changed)
+        val name = path.last()
+        when (parent) {
+            is ObjectNode -> parent.replace(name, value)?.let(removed)
+            is ArrayNode -> {
+                val index = if (name == "-") parent.size() else name.toIntOrNull()
+                require(index != null && index >= 0 && index <= parent.size()) {
+                    "Index of path ${pointer(path)} of JSON patch is out of bounds"
+                }
+                parent.insert(index, value)
+            }
+            else -> throw IllegalArgumentException("Parent of path ${pointer(path)} of JSON patch is no container")
+        }
+        return document
+    }
+
+    private fun remove(document: JsonNode, path: List<String>, changed: (JsonNode) -> Unit,
+                       removed: (JsonNode) -> Unit) {
+        require(path.isNotEmpty()) { "The root cannot be removed by a JSON patch" }
+        val node = get(document, path)
+        when (val parent = parent(document, path, changed)) {
+            is ObjectNode -> parent.remove(path.last())
+            is ArrayNode -> parent.remove(path.last().toInt())
+        }
+        removed(node)
+    }
+
+    /**
+     * @return The parent of the path, after the containers on the way have been reported as changed.
+     */
+    private fun parent(document: JsonNode, path: List<String>, changed: (JsonNode) -> Unit): JsonNode {
+        var node = document
+        changed(node)
+        for (depth in 0 until path.size - 1) {
+            node = get(document, path.subList(0, depth + 1))
+            changed(node)
+        }
+        return node
+    }
+}
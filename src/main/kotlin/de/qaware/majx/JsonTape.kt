@@ -0,0 +1,335 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.BooleanNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.NullNode
+import com.fasterxml.jackson.databind.node.ObjectNode
+import java.lang.ref.WeakReference
+import java.math.BigInteger
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.AbstractList
+import java.util.AbstractMap
+import java.util.AbstractSet
+
+/**
+ * A compact index of a UTF-8 encoded JSON document over its raw bytes, e.g. a memory mapped file.
+ *
+ * The index is a flat tape with one entry per value and per property name: the offset of its first byte in the
+ * document. The type of a value is given by that byte. Objects and arrays have a second entry, the tape index after
+ * their last child, so that the matcher can skip them. Strings and numbers are decoded when the matcher reads them.
+ * The tape takes 4 bytes per value, which is a fraction of the size of the document for typical JSON, while a
+ * [JsonNode] tree takes several times the size of the document.
+ *
+ * The matcher runs on the tape through a view as [JsonNode] tree (see [asJsonNode]). The view nodes are created when
+ * they are read and only weakly referenced by their container, so that repeated reads return the same node as long
+ * as it is used, e.g. for the results of sub-trees that the matcher keeps by identity, while the heap used for the
+ * view stays bounded by the nodes the matcher holds. Containers are indexed when their view is created, so that
+ * elements are accessed randomly (e.g. for any array order) and properties are found by their name in constant time.
+ * Like Jackson, objects with duplicate property names keep the last value at the place of the first name.
+ *
+ * Unlike the other parsers of majx, the tape does not accept comments (`//` and `/* */`), only standard JSON.
+ *
+ * Documents are limited to 2 GB, like byte buffers.
+ *
+ * @property bytes The document.
+ * @property tape  The tape of the document.
+ */
+class JsonTape private constructor(private val bytes: ByteBuffer, private val tape: IntArray) {
+
+    /**
+     * Companion object provides factory methods for [JsonTape].
+     */
+    companion object {
+
+        private val NODE_FACTORY = JsonNodeFactory.instance
+
+        /**
+         * Index the remaining bytes of the buffer. The buffer must not be changed while the tape is used. Comments are
+         * not accepted.
+         *
+         * @param bytes Buffer with the UTF-8 encoded JSON document between its position and its limit.
+         * @return The tape of the document.
+         * @throws IllegalArgumentException If the document is not valid JSON.
+         */
+        @JvmStatic
+        fun of(bytes: ByteBuffer): JsonTape {
+            val document = bytes.slice()
+            return JsonTape(document, TapeBuilder(document).build())
+        }
+
+        /**
+         * Index the document. The array must not be changed while the tape is used. Comments are not accepted.
+         *
+         * @param bytes The UTF-8 encoded JSON document.
+         * @return The tape of the document.
+         * @throws IllegalArgumentException If the document is not valid JSON.
+         */
+        @JvmStatic
+        fun of(bytes: ByteArray): JsonTape = of(ByteBuffer.wrap(bytes))
+
+        /**
+         * Index the file as memory mapped document, so that the document is not read into the heap.
+         *
+         * @param file A UTF-8 encoded JSON file of at most 2 GB.
+         * @return The tape of the document.
+         * @throws IllegalArgumentException If the file is too large or not valid JSON.
+         * @throws java.io.IOException If the file cannot be read.
+         */
+        @JvmStatic
+        fun map(file: Path): JsonTape = FileChannel.open(file, StandardOpenOption.READ).use { channel ->
+            require(channel.size() <= Int.MAX_VALUE) { "Failed to map actual: $file is larger than 2 GB" }
+            of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()))
+        }
+    }
+
+    /**
+     * The number of entries of the tape. The tape takes 4 bytes per entry.
+     */
+    val entries: Int
+        get() = tape.size
+
+    /**
+     * @return A new view of the document as [JsonNode] tree that the matcher can run on. The view must not be changed.
+     */
+    fun asJsonNode(): JsonNode = view(0)
+
+    private fun byteAt(offset: Int): Int = bytes.get(offset).toInt() and 0xff
+
+    /**
+     * @param index Tape index of a value.
+     * @return Tape index after the value.
+     */
+    private fun next(index: Int): Int = if (isContainer(tape[index])) tape[index + 1] else index + 1
+
+    private fun isContainer(offset: Int): Boolean = byteAt(offset).let { it == '{'.toInt() || it == '['.toInt() }
+
+    /**
+     * @param index Tape index of a value.
+     * @return The view of the value.
+     */
+    private fun view(index: Int): JsonNode {
+        val offset = tape[index]
+        return when (byteAt(offset).toChar()) {
+            '{' -> ObjectNode(NODE_FACTORY, PropertiesView(index))
+            '[' -> ArrayNode(NODE_FACTORY, ElementsView(index))
+            '"' -> NODE_FACTORY.textNode(decodeString(offset))
+            't' -> BooleanNode.TRUE
+            'f' -> BooleanNode.FALSE
+            'n' -> NullNode.instance
+            else -> decodeNumber(offset)
+        }
+    }
+
+    private fun decodeNumber(offset: Int): JsonNode {
+        var end = offset
+        var integral = true
+        while (end < bytes.limit()) {
+            val c = byteAt(end).toChar()
+            if (c == '.' || c == 'e' || c == 'E') {
+                integral = false
+            } else if (c != '-' && c != '+' && c !in '0'..'9') {
+                break
+            }
+            end++
+        }
+        val text = decodeAscii(offset, end)
+        if (!integral) {
+            return NODE_FACTORY.numberNode(text.toDouble())
+        }
+        // Integers are represented by the smallest node type, like the ones that Jackson parses
+        val value = BigInteger(text)
+        return when (value.bitLength()) {
+            in 0..31 -> NODE_FACTORY.numberNode(value.toInt())
+            in 32..63 -> NODE_FACTORY.numberNode(value.toLong())
+            else -> NODE_FACTORY.numberNode(value)
+        }
+    }
+
+    private fun decodeAscii(start: Int, end: Int): String {
+        val chars = CharArray(end - start)
+        for (i in chars.indices) {
+            chars[i] = byteAt(start + i).toChar()
+        }
+        return String(chars)
+    }
+
+    private fun decodeUtf8(start: Int, end: Int): String {
+        val segment = ByteArray(end - start)
+        bytes.duplicate().apply { position(start) }.get(segment)
+        return String(segment, Charsets.UTF_8)
+    }
+
+    /**
+     * @param offset Offset of the opening quote of a string, which the tape builder validated.
+     * @return The string.
+     */
+    private fun decodeString(offset: Int): String {
+        val result = StringBuilder()
+        var start = offset + 1
+        var i = start
+        while (true) {
+            when (byteAt(i).toChar()) {
+                '"' -> return result.append(decodeUtf8(start, i)).toString()
+                '\\' -> {
+                    result.append(decodeUtf8(start, i))
+                    val escaped = byteAt(i + 1).toChar()
+                    i += 2
+                    result.append(when (escaped) {
+                        'b' -> '\b'
+                        'f' -> '\u000C'
+                        'n' -> '\n'
+                        'r' -> '\r'
+                        't' -> '\t'
+                        'u' -> decodeAscii(i, i + 4).toInt(16).toChar().also { i += 4 }
+                        else -> escaped
+                    })
+                    start = i
+                }
+                else -> i++
+            }
+        }
+    }
+
+    /**
+     * @param index Tape index of a container.
+     * @param step  Returns the tape index of the next child for the tape index of a child.
+     * @return The tape indices of the children of the container.
+     */
+    private inline fun children(index: Int, step: (Int) -> Int): IntArray {
+        var count = 0
+        var i = index + 2
+        while (i < tape[index + 1]) {
+            count++
+            i = step(i)
+        }
+        val result = IntArray(count)
+        i = index + 2
+        for (child in result.indices) {
+            result[child] = i
+            i = step(i)
+        }
+        return result
+    }
+
+    /**
+     * Views of the children of a container. A child is viewed when it is read and only weakly referenced, so that
+     * repeated reads return the same node as long as it is used elsewhere. Two threads that read a child at the same
+     * time may create two equal nodes, which is harmless.
+     *
+     * @param size Number of children.
+     */
+    private class ChildViews(size: Int) {
+
+        private val viewed = arrayOfNulls<WeakReference<JsonNode>>(size)
+
+        /**
+         * @param child Index of a child.
+         * @param view  Creates the view of the child.
+         * @return The view of the child.
+         */
+        inline fun get(child: Int, view: () -> JsonNode): JsonNode =
+                viewed[child]?.get() ?: view().also { viewed[child] = WeakReference(it) }
+    }
+
+    /**
+     * The properties of an object.
+     *
+     * @property index Tape index of the object.
+     */
+    private inner class PropertiesView(private val index: Int) : AbstractMap<String, JsonNode>() {
+
+        /**
+         * Tape indices of the property names.
+         */
+        private val properties: IntArray = children(index) { next(it + 1) }
+
+        /**
+         * The index of each property by its name, in the order of the names. For duplicate names, the last property is
+         * found at the place of the first name, like in a tree that Jackson parses.
+         */
+        private val positions: Map<String, Int> by lazy {
+            val result = LinkedHashMap<String, Int>(properties.size * 2)
+            properties.forEachIndexed { position, property -> result[decodeString(tape[property])] = position }
+            result
+        }
+
+        private val viewed = ChildViews(properties.size)
+
+        private fun value(position: Int): JsonNode = viewed.get(position) { view(properties[position] + 1) }
+
+        override fun get(key: String): JsonNode? = positions[key]?.let { value(it) }
+
+        override fun containsKey(key: String): Boolean = positions.containsKey(key)
+
+        override val size: Int
+            get() = positions.size
+
+        override val entries: MutableSet<MutableMap.MutableEntry<String, JsonNode>>
+            get() = object : AbstractSet<MutableMap.MutableEntry<String, JsonNode>>() {
+
+                override val size: Int
+                    get() = positions.size
+
+                override fun iterator(): MutableIterator<MutableMap.MutableEntry<String, JsonNode>> =
+                        object : MutableIterator<MutableMap.MutableEntry<String, JsonNode>> {
+
+                            private val names = positions.entries.iterator()
+
+                            override fun hasNext(): Boolean = names.hasNext()
+
+                            override fun next(): MutableMap.MutableEntry<String, JsonNode> {
+                                val (name, position) = names.next()
+                                return SimpleImmutableEntry(name, value(position))
+                            }
+
+                            override fun remove() = throw UnsupportedOperationException("Views are read-only")
+                        }
+            }
+    }
+
+    /**
+     * The elements of an array. The tape indices of the elements are collected when the view is created, so that the
+     * elements are accessed randomly.
+     *
+     * @property index Tape index of the array.
+     */
+    private inner class ElementsView(private val index: Int) : AbstractList<JsonNode>() {
+
+        private val elements: IntArray = children(index) { next(it) }
+
+        private val viewed = ChildViews(elements.size)
+
+        override fun get(index: Int): JsonNode = viewed.get(index) { view(elements[index]) }
+
+        override val size: Int
+            get() = elements.size
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.JsonNodeType
+
+/**
+ * Read-only access to the nodes of a JSON tree that is not a Jackson [JsonNode] tree, e.g. `Map`/`List` documents
+ * or the trees of other JSON libraries.
+ *
+ * The matcher runs on such a tree through a view (see [viewAsJsonNode]) that accesses the nodes through the
+ * adapter when the matcher reads them. The tree is neither serialized nor copied.
+ *
+ * @param T Type of the nodes of the tree.
+ */
+interface JsonTreeAdapter<T> {
+
+    /**
+     * @param node A node of the tree.
+     * @return The type of the node, one of [JsonNodeType.OBJECT], [JsonNodeType.ARRAY], [JsonNodeType.STRING],
+     *         [JsonNodeType.NUMBER], [JsonNodeType.BOOLEAN] and [JsonNodeType.NULL].
+     * @throws IllegalArgumentException If the node is not a JSON value.
+     */
+    fun nodeType(node: T): JsonNodeType
+
+    /**
+     * @param node An object or array node.
+     * @return The number of properties or elements.
+     */
+    fun size(node: T): Int
+
+    /**
+     * @param node An object node.
+     * @return The names of the properties in their order.
+     */
+    fun propertyNames(node: T): Iterator<String>
+
+    /**
+     * @param node An object node.
+     * @param name Name of a property.
+     * @return Whether the object node has the property.
+     */
+    fun hasProperty(node: T, name: String): Boolean
+
+    /**
+     * @param node An object node.
+     * @param name Name of a property of the object node.
+     * @return The value of the property.
+     */
+    fun property(node: T, name: String): T
+
+    /**
+     * @param node  An array node.
+     * @param index Index of an element of the array node.
+     * @return The element.
+     */
+    fun element(node: T, index: Int): T
+
+    /**
+     * @param node A string node.
+     * @return The string.
+     */
+    fun textValue(node: T): String
+
+    /**
+     * @param node A number node.
+     * @return The number.
+     */
+    fun numberValue(node: T): Number
+
+    /**
+     * @param node A boolean node.
+     * @return The boolean.
+     */
+    fun booleanValue(node: T): Boolean
+}
+
+/**
+ * Adapter for Jackson trees. The matcher runs on Jackson trees directly, so this adapter is only needed for code that
+ * is generic in the tree type.
+ */
+object JacksonTreeAdapter : JsonTreeAdapter<JsonNode> {
+
+    override fun nodeType(node: JsonNode): JsonNodeType = node.nodeType
+
+    override fun size(node: JsonNode): Int = node.size()
+
+    override fun propertyNames(node: JsonNode): Iterator<String> = node.fieldNames()
+
+    override fun hasProperty(node: JsonNode, name: String): Boolean = node.has(name)
+
+    override fun property(node: JsonNode, name: String): JsonNode = node.get(name)
+
+    override fun element(node: JsonNode, index: Int): JsonNode = node.get(index)
+
+    override fun textValue(node: JsonNode): String = node.textValue()
+
+    override fun numberValue(node: JsonNode): Number = node.numberValue()
+
+    override fun booleanValue(node: JsonNode): Boolean = node.booleanValue()
+}
+
+/**
+ * Adapter for documents of `Map`, `List`, `String`, `Number`, `Boolean` and `null`, e.g. as created by generic
+ * deserializers. Maps must have `String` keys.
+ */
+object MapListTreeAdapter : JsonTreeAdapter<Any?> {
+
+    override fun nodeType(node: Any?): JsonNodeType = when (node) {
+        null -> JsonNodeType.NULL
+        is Map<*, *> -> JsonNodeType.OBJECT
+        is List<*> -> JsonNodeType.ARRAY
+        is CharSequence -> JsonNodeType.STRING
+        is Number -> JsonNodeType.NUMBER
+        is Boolean -> JsonNodeType.BOOLEAN
+        else -> throw IllegalArgumentException("Not a JSON value: ${node.javaClass.name}")
+    }
+
+    override fun size(node: Any?): Int = if (node is Map<*, *>) node.size else (node as List<*>).size
+
+    override fun propertyNames(node: Any?): Iterator<String> = (node as Map<*, *>).keys.map { it as String }.iterator()
+
+    override fun hasProperty(node: Any?, name: String): Boolean = (node as Map<*, *>).containsKey(name)
+
+    override fun property(node: Any?, name: String): Any? = (node as Map<*, *>)[name]
+
+    override fun element(node: Any?, index: Int): Any? = (node as List<*>)[index]
+
+    override fun textValue(node: Any?): String = node.toString()
+
+    override fun numberValue(node: Any?): Number = node as Number
+
+    override fun booleanValue(node: Any?): Boolean = node as Boolean
+}
+
+/**
+ * Create a view of a tree as [JsonNode] tree that the matcher can run on. The nodes of the view are created when
+ * they are first read, and each node of the tree is represented by the same view node, so that the view costs
+ * nothing for sub-trees that the matcher skips. The view is read-only and reflects the tree at the time the nodes
+ * are first read.
+ *
+ * @param node    The root of the tree.
+ * @param adapter The adapter for the tree.
+ * @param T       Type of the nodes of the tree.
+ * @return The view of the tree, the node itself if it already is a [JsonNode].
+ * @throws IllegalArgumentException If a node of the tree is not a JSON value.
+ */
+fun <T> viewAsJsonNode(node: T, adapter: JsonTreeAdapter<T>): JsonNode =
+        if (node is JsonNode) node else TreeView(adapter).view(node)
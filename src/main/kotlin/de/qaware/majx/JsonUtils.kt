@@ -23,9 +23,16 @@
  */
 package de.qaware.majx
 
+import com.fasterxml.jackson.core.JsonParser
 import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.SerializationFeature
 
-private val JSON_MAPPER = createObjectMapper()
+/**
+ * The object mapper of majx, e.g. for parsing and printing JSON.
+ */
+internal val JSON_MAPPER = createObjectMapper()
+
+private val COMPACT_WRITER = JSON_MAPPER.writer().without(SerializationFeature.INDENT_OUTPUT)
 
 /**
  * Convert the json node into a string.
@@ -42,3 +49,20 @@ fun convertToString(`object`: JsonNode): String = JSON_MAPPER.writeValueAsString
  * @return Converted object
  */
 fun convertToJsonNode(s: String): JsonNode = JSON_MAPPER.readTree(s)
+
+/**
+ * Create a streaming parser for the string.
+ *
+ * @param s String that should be parsed
+ * @return Parser, has to be closed by the caller
+ */
+internal fun createParser(s: String): JsonParser = JSON_MAPPER.factory.createParser(s)
+
+/**
+ * @param node The node to print.
+ * @return The node as single line JSON, abbreviated if it is long.
+ */
+internal fun compactString(node: JsonNode): String {
+    val text = COMPACT_WRITER.writeValueAsString(node)
+    return if (text.length > 80) text.substring(0, 77) + "..." else text
+}
@@ -0,0 +1,173 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonPointer
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.ObjectNode
+
+/**
+ * Pattern for arrays of entities whose elements are matched by a key instead of their position.
+ *
+ * A keyed array is written as object with the magic properties [KEYED_BY] and [ITEMS], e.g.
+ * `{ "...keyedBy" : "/id", "...items" : [ { "id" : 1, "state" : "done" }, { "id" : 2, "state" : "open" } ] }`.
+ * The key is a JSON pointer into the elements. Each pattern element is matched against the actual element with the
+ * same key, regardless of the order of the actual elements, so the keys of the pattern elements must be distinct. A
+ * wildcard as last pattern element allows additional actual elements. Keyed arrays can also be configured by path,
+ * see [MatcherConfig.keyedArrays].
+ *
+ * @property keyPointer The JSON pointer to the key of the elements.
+ * @property items      The pattern elements, without the wildcard.
+ * @property wildcard   Whether the actual array may contain additional elements.
+ */
+internal class KeyedArray private constructor(val keyPointer: JsonPointer,
+                                              val items: List<JsonNode>,
+                                              val wildcard: Boolean) {
+
+    /**
+     * Companion object provides support methods for [KeyedArray].
+     */
+    companion object {
+
+        /**
+         * Magic property that holds the JSON pointer to the key of the elements.
+         */
+        const val KEYED_BY = "...keyedBy"
+
+        /**
+         * Magic property that holds the pattern elements.
+         */
+        const val ITEMS = "...items"
+
+        /**
+         * @param pattern Pattern node.
+         * @return Whether the pattern node is a keyed array.
+         */
+        fun isKeyed(pattern: JsonNode): Boolean = pattern.isObject && pattern.has(KEYED_BY)
+
+        /**
+         * @param pattern Pattern node.
+         * @return The keyed array or null if the pattern node is not a keyed array.
+         * @throws IllegalArgumentException If the keyed array is malformed.
+         */
+        fun of(pattern: JsonNode): KeyedArray? {
+            if (!isKeyed(pattern)) {
+                return null
+            }
+            pattern.fieldNames().forEach {
+                require(it == KEYED_BY || it == ITEMS) {
+                    "Keyed array must only contain the properties $KEYED_BY and $ITEMS, but contains $it"
+                }
+            }
+            val keyedBy = pattern.get(KEYED_BY)
+            require(keyedBy.isTextual) { "$KEYED_BY of keyed array must be a JSON pointer, but is $keyedBy" }
+            val items = pattern.get(ITEMS)
+            require(items != null && items.isArray) { "$ITEMS of keyed array must be an array, but is $items" }
+            return of(JsonPointer.compile(keyedBy.textValue()), items as ArrayNode)
+        }
+
+        private fun of(keyPointer: JsonPointer, items: ArrayNode): KeyedArray {
+            val wildcard = items.size() > 0 && JsonMatcher.isWildcard(items.get(items.size() - 1))
+            val elements = if (wildcard) items.toList().dropLast(1) else items.toList()
+            // Index of the pattern elements by key, since each actual element is matched against one pattern element
+            val indexByKey = HashMap<String, Int>(elements.size * 2)
+            elements.forEachIndexed { index, element ->
+                val key = element.at(keyPointer)
+                require(key.isValueNode && !JsonMatcher.isWildcard(key)) {
+                    "Element $index of keyed array has no key at $keyPointer"
+                }
+                val other = indexByKey.put(literalKey(key), index)
+                require(other == null) {
+                    "Elements $other and $index of keyed array have the same key $keyPointer = $key"
+                }
+            }
+            return KeyedArray(keyPointer, elements, wildcard)
+        }
+
+        /**
+         * Turn the array patterns at the configured paths into keyed arrays.
+         *
+         * @param pattern Pattern node.
+         * @param keyed   The configured paths at the position of the pattern node, with the key pointers as values.
+         * @return The pattern with keyed arrays, the pattern itself if nothing is changed.
+         */
+        fun applyKeyedPaths(pattern: JsonNode, keyed: PathTrie.Cursor<String>?): JsonNode {
+            if (keyed == null) {
+                return pattern
+            }
+            val keyPointer = keyed.values.lastOrNull()
+            return when {
+                keyPointer != null && pattern is ArrayNode -> {
+                    val items = applyToChildren(pattern, keyed) as ArrayNode
+                    val result = JsonNodeFactory.instance.objectNode()
+                    result.put(KEYED_BY, keyPointer)
+                    result.replace(ITEMS, items)
+                    result
+                }
+                isKeyed(pattern) || ArrayTemplate.isTemplate(pattern) || SparseArray.isSparse(pattern) -> {
+                    // The elements of the magic array patterns are at the positions of array elements
+                    val result = JsonNodeFactory.instance.objectNode()
+                    var changed = false
+                    pattern.fields().forEach { (name, value) ->
+                        val element = if (name == ITEMS || name == SparseArray.AT) applyToChildren(value, keyed)
+                        else if (name == ArrayTemplate.EACH) applyKeyedPaths(value, keyed.child(PathTrie.ANY_SEGMENT))
+                        else value
+                        changed = changed || element !== value
+                        result.replace(name, element)
+                    }
+                    if (changed) result else pattern
+                }
+                else -> applyToChildren(pattern, keyed)
+            }
+        }
+
+        private fun applyToChildren(pattern: JsonNode, keyed: PathTrie.Cursor<String>): JsonNode {
+            when (pattern) {
+                is ArrayNode -> {
+                    val elements = pattern.mapIndexed { index, element ->
+                        applyKeyedPaths(element, keyed.child(index.toString()))
+                    }
+                    if (elements.indices.all { elements[it] === pattern.get(it) }) {
+                        return pattern
+                    }
+                    return JsonNodeFactory.instance.arrayNode().addAll(elements)
+                }
+                is ObjectNode -> {
+                    val fields = pattern.fields().asSequence().map { (name, value) ->
+                        name to applyKeyedPaths(value, keyed.child(name))
+                    }.toList()
+                    if (fields.all { (name, value) -> value === pattern.get(name) }) {
+                        return pattern
+                    }
+                    val result = JsonNodeFactory.instance.objectNode()
+                    fields.forEach { (name, value) -> result.replace(name, value) }
+                    return result
+                }
+                else -> return pattern
+            }
+        }
+    }
+}
@@ -25,7 +25,10 @@
 package de.qaware.majx
 
 import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
 import java.io.IOException
+import java.io.InputStream
+import java.nio.ByteBuffer
 
 /**
  * Asserts that the given actual JSON matches the given JSON pattern.
@@ -261,6 +264,391 @@ fun assertJsonMatchesAnyArrayOrder(reason: String?, pattern: JsonNode, actual: J
     assertJsonMatchesInternal(mustacheScope, reason, pattern, actual, config)
 }
 
+/**
+ * Asserts that the given actual JSON matches the given JSON pattern by evaluating mustache expressions
+ * with the given mustache scope, using the given matcher config.
+ *
+ * The mustache scope may be a <code>Map<String,String></code> or a POJO.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param actual The actual JSON string to match against the pattern.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects, e.g. [MatcherConfig.streaming].
+ * @see <a href="https://github.com/qaware/majx">README</a> for details.
+ */
+fun assertJsonMatches(reason: String?, pattern: String, actual: String, mustacheScope: Any?, config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatches(reason, parseAndValidate(pattern, "pattern"), actual)
+
+/**
+ * Asserts that the given actual UTF-8 encoded JSON matches the given JSON pattern string. The bytes are parsed
+ * directly, they are only decoded to a string for the error output of a failed match.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The actual UTF-8 encoded JSON to match against the pattern, e.g. an HTTP response body.
+ */
+fun assertJsonMatches(pattern: String, actual: ByteArray) = assertJsonMatches(pattern, actual, DataFormat.JSON)
+
+/**
+ * Asserts that the remaining bytes of the given buffer, UTF-8 encoded JSON, match the given JSON pattern string.
+ * The bytes are parsed directly, they are only decoded to a string for the error output of a failed match. The
+ * position of the buffer is not changed.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The buffer with the actual UTF-8 encoded JSON between its position and its limit.
+ */
+fun assertJsonMatches(pattern: String, actual: ByteBuffer) = assertJsonMatches(pattern, actual, DataFormat.JSON)
+
+/**
+ * Asserts that the given actual UTF-8 encoded JSON stream matches the given JSON pattern string. The bytes are
+ * parsed directly, they are only decoded to a string for the error output of a failed match. The stream is not
+ * closed.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The actual UTF-8 encoded JSON stream to match against the pattern.
+ */
+fun assertJsonMatches(pattern: String, actual: InputStream) = assertJsonMatches(pattern, actual, DataFormat.JSON)
+
+/**
+ * Asserts that the given actual document of the given data format, e.g. Smile or CBOR, matches the given JSON
+ * pattern string. The document is parsed by the Jackson parser of the format, without transcoding it to JSON text.
+ *
+ * If the document does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The actual document to match against the pattern.
+ * @param format The data format of the actual document.
+ * @see DataFormat
+ */
+fun assertJsonMatches(pattern: String, actual: ByteArray, format: DataFormat) =
+        assertJsonMatches(null, pattern, actual, format, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the given actual document of the given data format, e.g. Smile or CBOR, matches the given JSON
+ * pattern string by evaluating mustache expressions with the given mustache scope, using the given matcher config.
+ * The document is parsed by the Jackson parser of the format, without transcoding it to JSON text.
+ *
+ * If the document does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param actual The actual document to match against the pattern.
+ * @param format The data format of the actual document.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects, e.g. [MatcherConfig.streaming].
+ * @see DataFormat
+ */
+fun assertJsonMatches(reason: String?, pattern: String, actual: ByteArray, format: DataFormat, mustacheScope: Any?,
+                      config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatches(reason, parseAndValidate(pattern, "pattern"), actual, format)
+
+/**
+ * Asserts that the remaining bytes of the given buffer, a document of the given data format, match the given JSON
+ * pattern string. The document is parsed by the Jackson parser of the format, without transcoding it to JSON text.
+ * The position of the buffer is not changed.
+ *
+ * If the document does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The buffer with the actual document between its position and its limit.
+ * @param format The data format of the actual document.
+ * @see DataFormat
+ */
+fun assertJsonMatches(pattern: String, actual: ByteBuffer, format: DataFormat) =
+        assertJsonMatches(null, pattern, actual, format, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the remaining bytes of the given buffer, a document of the given data format, match the given JSON
+ * pattern string by evaluating mustache expressions with the given mustache scope, using the given matcher config.
+ * The document is parsed by the Jackson parser of the format, without transcoding it to JSON text. The position of
+ * the buffer is not changed.
+ *
+ * If the document does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param actual The buffer with the actual document between its position and its limit.
+ * @param format The data format of the actual document.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects, e.g. [MatcherConfig.streaming].
+ * @see DataFormat
+ */
+fun assertJsonMatches(reason: String?, pattern: String, actual: ByteBuffer, format: DataFormat, mustacheScope: Any?,
+                      config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatches(reason, parseAndValidate(pattern, "pattern"), actual, format)
+
+/**
+ * Asserts that the given actual document stream of the given data format, e.g. Smile or CBOR, matches the given
+ * JSON pattern string. The document is parsed by the Jackson parser of the format, without transcoding it to JSON
+ * text. The stream is not closed.
+ *
+ * If the document does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The actual document stream to match against the pattern.
+ * @param format The data format of the actual document.
+ * @see DataFormat
+ */
+fun assertJsonMatches(pattern: String, actual: InputStream, format: DataFormat) =
+        assertJsonMatches(null, pattern, actual, format, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the given actual document stream of the given data format, e.g. Smile or CBOR, matches the given
+ * JSON pattern string by evaluating mustache expressions with the given mustache scope, using the given matcher
+ * config. The document is parsed by the Jackson parser of the format, without transcoding it to JSON text. The
+ * stream is not closed.
+ *
+ * If the document does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param actual The actual document stream to match against the pattern.
+ * @param format The data format of the actual document.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects, e.g. [MatcherConfig.streaming].
+ * @see DataFormat
+ */
+fun assertJsonMatches(reason: String?, pattern: String, actual: InputStream, format: DataFormat, mustacheScope: Any?,
+                      config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatches(reason, parseAndValidate(pattern, "pattern"), actual, format)
+
+/**
+ * Asserts that the given actual JSON [JsonNode] matches the given JSON pattern [JsonNode] by evaluating
+ * mustache expressions with the given mustache scope, using the given matcher config.
+ *
+ * The mustache scope may be a <code>Map<String,String></code> or a POJO.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON node.
+ * @param actual The actual JSON node to match against the pattern.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects.
+ * @see <a href="https://github.com/qaware/majx">README</a> for details.
+ */
+fun assertJsonMatches(reason: String?, pattern: JsonNode, actual: JsonNode, mustacheScope: Any?,
+                      config: MatcherConfig) =
+        assertJsonMatchesInternal(mustacheScope, reason, pattern, actual, config)
+
+/**
+ * Asserts that the given actual JSON tree of another representation, e.g. <code>Map</code>/<code>List</code> or
+ * Gson, matches the given JSON pattern string. The tree is accessed through the adapter, without converting it.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The actual JSON tree to match against the pattern.
+ * @param adapter The adapter for the actual JSON tree, e.g. [MapListTreeAdapter].
+ * @see JsonTreeAdapter
+ */
+fun <T> assertJsonTreeMatches(pattern: String, actual: T, adapter: JsonTreeAdapter<T>) =
+        assertJsonTreeMatches(null, pattern, actual, adapter, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the given actual JSON tree of another representation, e.g. <code>Map</code>/<code>List</code> or
+ * Gson, matches the given JSON pattern string by evaluating mustache expressions with the given mustache scope,
+ * using the given matcher config. The tree is accessed through the adapter, without converting it.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param actual The actual JSON tree to match against the pattern.
+ * @param adapter The adapter for the actual JSON tree, e.g. [MapListTreeAdapter].
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects.
+ * @see JsonTreeAdapter
+ */
+fun <T> assertJsonTreeMatches(reason: String?, pattern: String, actual: T, adapter: JsonTreeAdapter<T>,
+                              mustacheScope: Any?, config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatches(reason, parseAndValidate(pattern, "pattern"),
+                viewAsJsonNode(actual, adapter))
+
+/**
+ * Asserts that the JSON document indexed by the given tape matches the given JSON pattern string. The values of the
+ * document are decoded when the matcher reads them, so that the heap use stays a fraction of the document size.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param actual The tape of the actual JSON document, e.g. of a memory mapped file (see [JsonTape.map]).
+ */
+fun assertJsonMatches(pattern: String, actual: JsonTape) =
+        assertJsonMatches(null, pattern, actual, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the JSON document indexed by the given tape matches the given JSON pattern string by evaluating
+ * mustache expressions with the given mustache scope, using the given matcher config. The values of the document
+ * are decoded when the matcher reads them, so that the heap use stays a fraction of the document size. Streaming
+ * mode (see [MatcherConfig.streaming]) does not apply, the tape is matched like a tree.
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param actual The tape of the actual JSON document, e.g. of a memory mapped file (see [JsonTape.map]).
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects.
+ */
+fun assertJsonMatches(reason: String?, pattern: String, actual: JsonTape, mustacheScope: Any?, config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatches(reason, parseAndValidate(pattern, "pattern"),
+                actual.asJsonNode())
+
+/**
+ * Asserts that the JSON serialization of the given POJO, e.g. a DTO, matches the given JSON pattern string.
+ *
+ * The POJO is serialized by the object mapper of majx without building a JSON tree, and values that cannot
+ * influence the match result are discarded while serializing (see [JsonMatcher.assertPojoMatches]).
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param pattern The pattern JSON string.
+ * @param pojo The POJO whose serialization is matched against the pattern.
+ */
+fun assertPojoMatches(pattern: String, pojo: Any?) =
+        assertPojoMatches(null, pattern, pojo, null, DefaultMatcherConfig, JSON_MAPPER)
+
+/**
+ * Asserts that the JSON serialization of the given POJO, e.g. a DTO, matches the given JSON pattern string by
+ * evaluating mustache expressions with the given mustache scope, using the given matcher config.
+ *
+ * The POJO is serialized by the given object mapper without building a JSON tree, and values that cannot influence
+ * the match result are discarded while serializing (see [JsonMatcher.assertPojoMatches]).
+ *
+ * If the JSON does not match, an [AssertionError] is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param pattern The pattern JSON string.
+ * @param pojo The POJO whose serialization is matched against the pattern.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects.
+ * @param mapper The object mapper that serializes the POJO.
+ */
+fun assertPojoMatches(reason: String?, pattern: String, pojo: Any?, mustacheScope: Any?, config: MatcherConfig,
+                      mapper: ObjectMapper) =
+        JsonMatcher(config, mustacheScope).assertPojoMatches(reason, parseAndValidate(pattern, "pattern"), pojo,
+                mapper)
+
+/**
+ * Asserts that the sub-trees of the given actual JSON at the given JSON pointers match their JSON patterns.
+ *
+ * The actual JSON is parsed and traversed only once for all pointers. If one or more sub-trees do not match,
+ * a single [AssertionError] listing all failed pointers is thrown.
+ *
+ * @param actual The actual JSON string.
+ * @param patterns The pattern JSON strings by JSON pointer (RFC 6901), e.g. <code>/items/0</code>.
+ */
+fun assertJsonMatchesAt(actual: String, patterns: Map<String, String>) =
+        assertJsonMatchesAt(null, actual, patterns, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the sub-trees of the given actual JSON [JsonNode] at the given JSON pointers match their
+ * JSON patterns.
+ *
+ * The actual JSON is traversed only once for all pointers. If one or more sub-trees do not match,
+ * a single [AssertionError] listing all failed pointers is thrown.
+ *
+ * @param actual The actual JSON node.
+ * @param patterns The pattern JSON strings by JSON pointer (RFC 6901), e.g. <code>/items/0</code>.
+ */
+fun assertJsonMatchesAt(actual: JsonNode, patterns: Map<String, String>) =
+        assertJsonMatchesAt(null, actual, patterns, null, DefaultMatcherConfig)
+
+/**
+ * Asserts that the sub-trees of the given actual JSON at the given JSON pointers match their JSON patterns by
+ * evaluating mustache expressions with the given mustache scope, using the given matcher config.
+ *
+ * The actual JSON is parsed and traversed only once for all pointers. In streaming mode
+ * (see [MatcherConfig.streaming]), sub-trees that are not targeted by any pointer are skipped while parsing.
+ * If one or more sub-trees do not match, a single [AssertionError] listing all failed pointers is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param actual The actual JSON string.
+ * @param patterns The pattern JSON strings by JSON pointer (RFC 6901), e.g. <code>/items/0</code>.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects.
+ */
+fun assertJsonMatchesAt(reason: String?, actual: String, patterns: Map<String, String>, mustacheScope: Any?,
+                        config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatchesAt(reason, parsePatterns(patterns), actual)
+
+/**
+ * Asserts that the sub-trees of the given actual JSON [JsonNode] at the given JSON pointers match their
+ * JSON patterns by evaluating mustache expressions with the given mustache scope, using the given matcher config.
+ *
+ * The actual JSON is traversed only once for all pointers. If one or more sub-trees do not match,
+ * a single [AssertionError] listing all failed pointers is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param actual The actual JSON node.
+ * @param patterns The pattern JSON strings by JSON pointer (RFC 6901), e.g. <code>/items/0</code>.
+ * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+ * @param config The config that controls certain matcher aspects.
+ */
+fun assertJsonMatchesAt(reason: String?, actual: JsonNode, patterns: Map<String, String>, mustacheScope: Any?,
+                        config: MatcherConfig) =
+        JsonMatcher(config, mustacheScope).assertMatchesAt(reason, parsePatterns(patterns), actual)
+
+/**
+ * Asserts that the given actual JSON equals the given expected JSON and reports all differences at once.
+ *
+ * The expected JSON is compared literally, magic values like wildcards are not evaluated. Use this to compare two
+ * complete documents, e.g. the responses of two versions of a service. See [JsonDiff] for details.
+ *
+ * If the JSON does not match, an [AssertionError] listing every differing location is thrown.
+ *
+ * @param expected The expected JSON string.
+ * @param actual The actual JSON string to compare with the expected JSON.
+ */
+fun assertJsonEquals(expected: String, actual: String) =
+        assertJsonEquals(null, parseAndValidate(expected, "expected"), parseAndValidate(actual, "actual"))
+
+/**
+ * Asserts that the given actual JSON [JsonNode] equals the given expected JSON [JsonNode] and reports all
+ * differences at once.
+ *
+ * The expected JSON is compared literally, magic values like wildcards are not evaluated. Use this to compare two
+ * complete documents, e.g. the responses of two versions of a service. See [JsonDiff] for details.
+ *
+ * If the JSON does not match, an [AssertionError] listing every differing location is thrown.
+ *
+ * @param expected The expected JSON node.
+ * @param actual The actual JSON node to compare with the expected JSON.
+ */
+fun assertJsonEquals(expected: JsonNode, actual: JsonNode) =
+        assertJsonEquals(null, expected, actual)
+
+/**
+ * Asserts that the given actual JSON [JsonNode] equals the given expected JSON [JsonNode] and reports all
+ * differences at once.
+ *
+ * The expected JSON is compared literally, magic values like wildcards are not evaluated. Use this to compare two
+ * complete documents, e.g. the responses of two versions of a service. See [JsonDiff] for details.
+ *
+ * If the JSON does not match, an [AssertionError] listing every differing location is thrown.
+ *
+ * @param reason A custom message to prepend to the generated majx error.
+ * @param expected The expected JSON node.
+ * @param actual The actual JSON node to compare with the expected JSON.
+ */
+fun assertJsonEquals(reason: String?, expected: JsonNode, actual: JsonNode) {
+    val differences = JsonDiff.diff(expected, actual)
+    if (differences.isNotEmpty()) {
+        val reasonOutput: String = if (reason != null) "$reason: " else ""
+        throw AssertionError("${reasonOutput}Documents differ at ${differences.size} location(s):\n" +
+                differences.joinToString("\n"))
+    }
+}
+
 private fun assertJsonMatchesInternal(
         mustacheScope: Any?,
         reason: String?,
@@ -278,10 +666,19 @@ private fun assertJsonMatchesInternal(
  * @param paramName The name of the param to inlcude in the exception message.
  * @throws IllegalArgumentException If the string cannot be parsed as JSON (invalid, ...).
  */
-private fun parseAndValidate(paramValue: String, paramName: String): JsonNode {
+internal fun parseAndValidate(paramValue: String, paramName: String): JsonNode {
     try {
         return convertToJsonNode(paramValue)
     } catch (ioe: IOException) {
         throw IllegalArgumentException("Failed to parse $paramName as JSON:\n$paramValue", ioe)
     }
 }
+
+/**
+ * Returns the given pattern strings as JSON nodes if valid or throws an exception if not.
+ *
+ * @param patterns The pattern strings by JSON pointer.
+ * @throws IllegalArgumentException If one of the patterns cannot be parsed as JSON (invalid, ...).
+ */
+private fun parsePatterns(patterns: Map<String, String>): Map<String, JsonNode> =
+        patterns.mapValues { (pointer, pattern) -> parseAndValidate(pattern, "pattern at $pointer") }
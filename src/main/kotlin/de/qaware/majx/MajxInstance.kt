@@ -0,0 +1,154 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+
+/**
+ * An immutable set of the majx assertions with a fixed config, which caches what it can share between matches. An
+ * instance is thread safe, so it is meant to be created once (e.g. in a static field) and used by all tests, also
+ * when they run in parallel.
+ *
+ * The parsed patterns and the compiled mustache expressions are kept in caches that all threads share without
+ * locking. The actual JSON strings are not cached, since they usually differ for each match. Each match uses its own
+ * [JsonMatcher], so the state of a match (e.g. its [MatchBudget] and the mustache expressions evaluated with its scope)
+ * is never shared.
+ *
+ * @property config          The config that controls certain matcher aspects.
+ * @param maxCacheEntries Maximum number of entries that each cache keeps.
+ * @constructor Creates a new [MajxInstance] with the given [config].
+ */
+class MajxInstance @JvmOverloads constructor(val config: MatcherConfig = DefaultMatcherConfig,
+                                             maxCacheEntries: Int = DEFAULT_MAX_CACHE_ENTRIES) {
+
+    /**
+     * Companion object provides defaults for [MajxInstance].
+     */
+    companion object {
+
+        /**
+         * Default for the maximum number of entries that each cache keeps.
+         */
+        const val DEFAULT_MAX_CACHE_ENTRIES = 4096
+    }
+
+    private val patterns = ConcurrentCache(maxCacheEntries) { pattern: String -> parseAndValidate(pattern, "pattern") }
+
+    private val compiledMustache = ConcurrentCache(maxCacheEntries) { expression: String ->
+        MustacheMatcher.compile(expression)
+    }
+
+    /**
+     * Get the parsed pattern of a JSON string. The pattern must not be changed.
+     *
+     * @param pattern The pattern JSON string.
+     * @return The pattern JSON node.
+     * @throws IllegalArgumentException If the pattern cannot be parsed as JSON.
+     */
+    fun pattern(pattern: String): JsonNode = patterns[pattern]
+
+    /**
+     * Asserts that the given actual JSON matches the given JSON pattern.
+     *
+     * @param pattern The pattern JSON string.
+     * @param actual  The actual JSON string to match against the pattern.
+     * @throws AssertionError If the JSON does not match.
+     * @throws IllegalArgumentException If the pattern or the actual JSON cannot be parsed.
+     */
+    fun assertJsonMatches(pattern: String, actual: String) = assertJsonMatches(null, pattern, actual)
+
+    /**
+     * Asserts that the given actual JSON matches the given JSON pattern by evaluating mustache expressions with the
+     * given mustache scope.
+     *
+     * @param reason        A custom message to prepend to the generated majx error.
+     * @param pattern       The pattern JSON string.
+     * @param actual        The actual JSON string to match against the pattern.
+     * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+     * @throws AssertionError If the JSON does not match.
+     * @throws IllegalArgumentException If the pattern or the actual JSON cannot be parsed.
+     */
+    @JvmOverloads
+    fun assertJsonMatches(reason: String?, pattern: String, actual: String, mustacheScope: Any? = null) {
+        if (config.streaming) {
+            matcher(mustacheScope).assertMatches(reason, patterns[pattern], actual)
+        } else {
+            matcher(mustacheScope).assertMatches(reason, patterns[pattern], parseAndValidate(actual, "actual"))
+        }
+    }
+
+    /**
+     * Asserts that the given actual JSON [JsonNode] matches the given JSON pattern.
+     *
+     * @param pattern The pattern JSON string.
+     * @param actual  The actual JSON node to match against the pattern.
+     * @throws AssertionError If the JSON does not match.
+     * @throws IllegalArgumentException If the pattern cannot be parsed.
+     */
+    fun assertJsonMatches(pattern: String, actual: JsonNode) = assertJsonMatches(null, pattern, actual)
+
+    /**
+     * Asserts that the given actual JSON [JsonNode] matches the given JSON pattern by evaluating mustache expressions
+     * with the given mustache scope.
+     *
+     * @param reason        A custom message to prepend to the generated majx error.
+     * @param pattern       The pattern JSON string.
+     * @param actual        The actual JSON node to match against the pattern.
+     * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+     * @throws AssertionError If the JSON does not match.
+     * @throws IllegalArgumentException If the pattern cannot be parsed.
+     */
+    @JvmOverloads
+    fun assertJsonMatches(reason: String?, pattern: String, actual: JsonNode, mustacheScope: Any? = null) =
+            matcher(mustacheScope).assertMatches(reason, patterns[pattern], actual)
+
+    /**
+     * Asserts that the given actual JSON [JsonNode] matches the given JSON pattern [JsonNode].
+     *
+     * @param pattern The pattern JSON node.
+     * @param actual  The actual JSON node to match against the pattern.
+     * @throws AssertionError If the JSON does not match.
+     */
+    fun assertJsonMatches(pattern: JsonNode, actual: JsonNode) = assertJsonMatches(null, pattern, actual)
+
+    /**
+     * Asserts that the given actual JSON [JsonNode] matches the given JSON pattern [JsonNode] by evaluating mustache
+     * expressions with the given mustache scope.
+     *
+     * @param reason        A custom message to prepend to the generated majx error.
+     * @param pattern       The pattern JSON node.
+     * @param actual        The actual JSON node to match against the pattern.
+     * @param mustacheScope A Map<String,String> or a POJO containing mustache expressions.
+     * @throws AssertionError If the JSON does not match.
+     */
+    @JvmOverloads
+    fun assertJsonMatches(reason: String?, pattern: JsonNode, actual: JsonNode, mustacheScope: Any? = null) =
+            matcher(mustacheScope).assertMatches(reason, pattern, actual)
+
+    /**
+     * @param mustacheScope The scope from which the mustache parser reads it variables.
+     * @return A new matcher for one match that uses the shared compiled mustache expressions.
+     */
+    private fun matcher(mustacheScope: Any?) = JsonMatcher(config, mustacheScope, null, compiledMustache)
+}
@@ -0,0 +1,152 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Thrown if a match exceeds one of the budgets of the [MatcherConfig], e.g. [MatcherConfig.maxNodeVisits].
+ *
+ * The message reports where the match spent its effort, so that expensive patterns can be identified.
+ *
+ * @param message The detail message.
+ * @param cause   The error that is reported with another message or null if there is none.
+ */
+class MatchBudgetExceededError @JvmOverloads constructor(message: String, cause: Throwable? = null) :
+        AssertionError(message, cause)
+
+/**
+ * Keeps track of the effort of a single match and cancels it cooperatively when it exceeds the budgets of the
+ * config or the thread that started the match is interrupted. Safe to use from several threads of the same match, e.g.
+ * the workers of a parallel stream.
+ *
+ * @property config The config that defines the budgets.
+ */
+internal class MatchBudget(private val config: MatcherConfig) {
+
+    /**
+     * Companion object provides support methods for [MatchBudget].
+     */
+    companion object {
+
+        /**
+         * Time and interruption are checked whenever the count of node visits reaches a multiple of this interval.
+         */
+        private const val TIME_CHECK_INTERVAL = 1024L
+
+        /**
+         * Number of array locations to report in the error message.
+         */
+        private const val REPORTED_LOCATIONS = 5
+
+        private val ARRAY_INDEX = Regex("\\[\\d+]")
+
+        /**
+         * @param config The config that defines the budgets.
+         * @return A new budget for a match or null if the config does not limit matches.
+         */
+        fun start(config: MatcherConfig): MatchBudget? = if (config.hasBudget) MatchBudget(config) else null
+    }
+
+    /**
+     * The thread that started the match. Its interruption cancels the match also in other threads.
+     */
+    private val thread = Thread.currentThread()
+
+    private val start = System.nanoTime()
+    private val deadline = config.timeout?.let { start + it.toNanos() }
+    private val visits = AtomicLong()
+    private val comparisons = AtomicLong()
+    private val comparisonsByLocation = ConcurrentHashMap<String, AtomicLong>()
+
+    /**
+     * Record a visit of a node.
+     *
+     * @param attributeName Name of the visited attribute (absolute path from root).
+     * @throws MatchBudgetExceededError If the match exceeded a budget or the thread that started it was interrupted.
+     */
+    fun visit(attributeName: String) = visit(1, attributeName, -1)
+
+    /**
+     * Record the visits of the nodes of an array element at once, e.g. of a row of a [ColumnarTemplate].
+     *
+     * @param arrayName Name of the array (absolute path from root).
+     * @param index     Index of the element.
+     * @param nodes     Number of visited nodes, including the element.
+     * @throws MatchBudgetExceededError If the match exceeded a budget or the thread that started it was interrupted.
+     */
+    fun visitElement(arrayName: String, index: Int, nodes: Int) = visit(nodes, arrayName, index)
+
+    /**
+     * @param nodes Number of visited nodes.
+     * @param name  Name of the visited attribute or of its array (absolute path from root).
+     * @param index Index of the visited element in the array or -1 for the attribute itself.
+     */
+    private fun visit(nodes: Int, name: String, index: Int) {
+        val count = visits.addAndGet(nodes.toLong())
+        if (count > config.maxNodeVisits) {
+            exceeded(attributeName(name, index), "more than ${config.maxNodeVisits} node visits")
+        }
+        if (count / TIME_CHECK_INTERVAL != (count - nodes) / TIME_CHECK_INTERVAL) {
+            if (deadline != null && System.nanoTime() - deadline > 0) {
+                exceeded(attributeName(name, index), "timeout of ${config.timeout!!.toMillis()} ms")
+            }
+            if (thread.isInterrupted) {
+                exceeded(attributeName(name, index), "thread interrupted")
+            }
+        }
+    }
+
+    private fun attributeName(name: String, index: Int): String = if (index < 0) name else "$name[$index]"
+
+    /**
+     * Record a comparison of a pattern element with a candidate element of an array.
+     *
+     * @param attributeName Name of the array (absolute path from root).
+     * @throws MatchBudgetExceededError If the match exceeded the budget of comparisons.
+     */
+    fun compare(attributeName: String) {
+        comparisonsByLocation.computeIfAbsent(attributeName) { AtomicLong() }.incrementAndGet()
+        if (comparisons.incrementAndGet() > config.maxComparisons) {
+            exceeded(attributeName, "more than ${config.maxComparisons} candidate comparisons")
+        }
+    }
+
+    private fun exceeded(attributeName: String, budget: String): Nothing {
+        val elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        // Aggregate the comparisons by array location in the pattern, independent of the enclosing array indices
+        val byLocation = comparisonsByLocation.entries
+                .groupBy({ it.key.replace(ARRAY_INDEX, "[*]") }, { it.value.get() })
+                .mapValues { it.value.sum() }
+                .entries.sortedByDescending { it.value }
+                .take(REPORTED_LOCATIONS)
+        val locations = if (byLocation.isEmpty()) "" else "\nCandidate comparisons by array:" +
+                byLocation.joinToString("") { "\n  ${it.key}: ${it.value}" }
+        throw MatchBudgetExceededError("Error at location $attributeName: Match budget exceeded ($budget).\n" +
+                "Node visits: ${visits.get()}, candidate comparisons: ${comparisons.get()}, " +
+                "elapsed: $elapsed ms$locations")
+    }
+}
@@ -23,20 +23,183 @@
  */
 package de.qaware.majx
 
+import java.time.Duration
+
 /**
  * Configuration for the [JsonMatcher].
  */
-open class MatcherConfig(
+open class MatcherConfig @JvmOverloads constructor(
 
         /**
          * Whether array ordering should be matched exactly (false) or random (true).
          */
-        val randomArrayOrder: Boolean
-)
+        val randomArrayOrder: Boolean = false,
+
+        /**
+         * Whether actual JSON strings are read in streaming mode. In streaming mode, the actual JSON is read guided by
+         * the pattern, and sub-trees that cannot influence the match result (e.g. values matched by a wildcard) are
+         * skipped by the parser instead of being built.
+         */
+        val streaming: Boolean = false,
+
+        /**
+         * Paths of volatile values that are ignored, as JSON pointers (RFC 6901), e.g. `/meta/timestamp`. A segment
+         * `*` matches any single property name or array index, a segment `**` matches any number of segments. So
+         * the pointer with the segments `items`, `*` and `traceId` ignores the trace ids of all items, the pointer
+         * with the segments `**` and `etag` ignores all `etag` properties.
+         *
+         * Ignored object properties are neither required nor compared. Ignored array elements are not compared, but
+         * still count for the size of the array. In streaming mode, ignored values are skipped by the parser.
+         */
+        val ignorePaths: List<String> = emptyList(),
+
+        /**
+         * Length in characters above which string values of the actual JSON are compared by their SHA-256 digest in
+         * streaming mode. Such strings are hashed while they are read, without building a [String]. By default, no
+         * strings are hashed.
+         */
+        val digestThreshold: Int = Int.MAX_VALUE,
+
+        /**
+         * Maximum number of nodes a single match may visit, including the visits while searching for matching
+         * elements of arrays in random order. If exceeded, a [MatchBudgetExceededError] is thrown.
+         */
+        val maxNodeVisits: Long = Long.MAX_VALUE,
+
+        /**
+         * Maximum number of comparisons of pattern elements with candidate elements of arrays in random order a single
+         * match may make. If exceeded, a [MatchBudgetExceededError] is thrown.
+         */
+        val maxComparisons: Long = Long.MAX_VALUE,
+
+        /**
+         * Maximum duration of a single match or null for no limit. If exceeded, a [MatchBudgetExceededError] is
+         * thrown. A match with a budget is also cancelled if its thread is interrupted.
+         */
+        val timeout: Duration? = null,
+
+        /**
+         * Size of arrays from which on the elements of an array template (see [ArrayTemplate]) are matched in
+         * parallel. Smaller arrays are matched in the calling thread.
+         */
+        val parallelThreshold: Int = 10_000,
+
+        /**
+         * Sample of the elements of large arrays in fixed order and of arrays matched by an [ArrayTemplate] that are
+         * checked, or null to check all elements. Arrays in random order are always checked completely.
+         */
+        val sampling: ArraySampling? = null,
+
+        /**
+         * Arrays whose elements are matched by a key instead of their position, see [KeyedArray]. Maps the paths of
+         * the arrays, as JSON pointers with the wildcard segments of [ignorePaths], to JSON pointers to the keys
+         * within the elements, e.g. `/orders` to `/id`.
+         */
+        val keyedArrays: Map<String, String> = emptyMap()
+) {
+
+    /**
+     * Whether the config limits the effort of a match.
+     */
+    internal val hasBudget: Boolean =
+            maxNodeVisits != Long.MAX_VALUE || maxComparisons != Long.MAX_VALUE || timeout != null
+
+    /**
+     * The [ignorePaths] compiled into a trie or null if there are none.
+     */
+    internal val ignoredPaths: PathTrie<String>? = if (ignorePaths.isEmpty()) null else {
+        val trie = PathTrie<String>()
+        ignorePaths.forEach { trie.put(PathTrie.pointerSegments(it), it) }
+        trie
+    }
+
+    /**
+     * The paths of the [keyedArrays] compiled into a trie with the key pointers as values or null if there are none.
+     */
+    internal val keyedPaths: PathTrie<String>? = if (keyedArrays.isEmpty()) null else {
+        val trie = PathTrie<String>()
+        keyedArrays.forEach { (path, keyPointer) -> trie.put(PathTrie.pointerSegments(path), keyPointer) }
+        trie
+    }
+
+    /**
+     * @param randomArrayOrder Whether array ordering should be matched exactly (false) or random (true).
+     * @return A copy of this config with the given array ordering.
+     */
+    fun withRandomArrayOrder(randomArrayOrder: Boolean): MatcherConfig = copy(randomArrayOrder = randomArrayOrder)
+
+    /**
+     * @param streaming Whether actual JSON strings are read in streaming mode.
+     * @return A copy of this config with the given streaming mode.
+     */
+    fun withStreaming(streaming: Boolean): MatcherConfig = copy(streaming = streaming)
+
+    /**
+     * @param ignorePaths Paths of volatile values that are ignored, see [MatcherConfig.ignorePaths].
+     * @return A copy of this config with the given ignored paths.
+     * @throws IllegalArgumentException If one of the paths is not a valid JSON pointer.
+     */
+    fun withIgnorePaths(ignorePaths: List<String>): MatcherConfig = copy(ignorePaths = ignorePaths)
+
+    /**
+     * @param digestThreshold Length in characters above which strings are compared by their digest in streaming mode.
+     * @return A copy of this config with the given digest threshold.
+     */
+    fun withDigestThreshold(digestThreshold: Int): MatcherConfig = copy(digestThreshold = digestThreshold)
+
+    /**
+     * @param maxNodeVisits Maximum number of nodes a single match may visit.
+     * @return A copy of this config with the given budget of node visits.
+     */
+    fun withMaxNodeVisits(maxNodeVisits: Long): MatcherConfig = copy(maxNodeVisits = maxNodeVisits)
+
+    /**
+     * @param maxComparisons Maximum number of candidate comparisons a single match may make.
+     * @return A copy of this config with the given budget of candidate comparisons.
+     */
+    fun withMaxComparisons(maxComparisons: Long): MatcherConfig = copy(maxComparisons = maxComparisons)
+
+    /**
+     * @param timeout Maximum duration of a single match or null for no limit.
+     * @return A copy of this config with the given timeout.
+     */
+    fun withTimeout(timeout: Duration?): MatcherConfig = copy(timeout = timeout)
+
+    /**
+     * @param parallelThreshold Size of arrays from which on the elements of an array template are matched in parallel.
+     * @return A copy of this config with the given parallel threshold.
+     */
+    fun withParallelThreshold(parallelThreshold: Int): MatcherConfig = copy(parallelThreshold = parallelThreshold)
+
+    /**
+     * @param sampling Sample of the elements of large arrays that are checked, or null to check all elements.
+     * @return A copy of this config with the given sampling.
+     */
+    fun withSampling(sampling: ArraySampling?): MatcherConfig = copy(sampling = sampling)
+
+    /**
+     * @param keyedArrays JSON pointers to the keys of the elements of keyed arrays by the paths of the arrays.
+     * @return A copy of this config with the given keyed arrays.
+     */
+    fun withKeyedArrays(keyedArrays: Map<String, String>): MatcherConfig = copy(keyedArrays = keyedArrays)
+
+    private fun copy(randomArrayOrder: Boolean = this.randomArrayOrder,
+                     streaming: Boolean = this.streaming,
+                     ignorePaths: List<String> = this.ignorePaths,
+                     digestThreshold: Int = this.digestThreshold,
+                     maxNodeVisits: Long = this.maxNodeVisits,
+                     maxComparisons: Long = this.maxComparisons,
+                     timeout: Duration? = this.timeout,
+                     parallelThreshold: Int = this.parallelThreshold,
+                     sampling: ArraySampling? = this.sampling,
+                     keyedArrays: Map<String, String> = this.keyedArrays): MatcherConfig =
+            MatcherConfig(randomArrayOrder, streaming, ignorePaths, digestThreshold, maxNodeVisits, maxComparisons,
+                    timeout, parallelThreshold, sampling, keyedArrays)
+}
 
 /**
  * The default configuration.
  */
 object DefaultMatcherConfig : MatcherConfig(
         randomArrayOrder = false
-)
\ No newline at end of file
+)
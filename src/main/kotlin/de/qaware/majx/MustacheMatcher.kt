@@ -24,6 +24,7 @@
 package de.qaware.majx
 
 import com.github.mustachejava.DefaultMustacheFactory
+import com.github.mustachejava.Mustache
 import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.Matchers.`is`
 import java.io.StringReader
@@ -42,14 +43,23 @@ object MustacheMatcher {
      * @param mustacheScope Scope for evaluation
      * @return Evaluated string
      */
-    fun evaluateMustache(expression: String, mustacheScope: Any): String {
+    fun evaluateMustache(expression: String, mustacheScope: Any): String =
+            evaluateMustache(expression, mustacheScope, this::compile)
+
+    /**
+     * Evaluate the mustache expression.
+     *
+     * @param expression    Expression to evaluate. If this is not a mustache expression (doesn't contain braces) we
+     *                       just return it.
+     * @param mustacheScope Scope for evaluation
+     * @param compile       Compiles the expression, e.g. using a cache of compiled expressions.
+     * @return Evaluated string
+     */
+    internal fun evaluateMustache(expression: String, mustacheScope: Any, compile: (String) -> Mustache): String {
         // This is potentially a mustache expression. We don't start the mustache parser unless we know that there might
         // be a mustache expression to improve performance.
         if (potentiallyMustache(expression)) {
-            // We could set this as a static variable (it is thread safe) but it just does a bit of caching that we
-            // don't need
-            val mf = DefaultMustacheFactory()
-            val compiledPattern = mf.compile(StringReader(expression), "temporaryExpression")
+            val compiledPattern = compile(expression)
             // Create output stream and evaluate mustache expression
             val writer = StringWriter()
             compiledPattern.execute(writer, mustacheScope)
@@ -59,6 +69,19 @@ object MustacheMatcher {
         }
     }
 
+    /**
+     * Compile the mustache expression. The compiled expression is thread safe, so it may be cached and shared.
+     *
+     * @param expression Expression to compile.
+     * @return Compiled expression.
+     */
+    internal fun compile(expression: String): Mustache {
+        // We could set this as a static variable (it is thread safe) but it just does a bit of caching that we
+        // don't need
+        val mf = DefaultMustacheFactory()
+        return mf.compile(StringReader(expression), "temporaryExpression")
+    }
+
     /**
      * Assert that the actual value is equal to the pattern after the pattern is evaluated as a mustache expression.
 
@@ -67,9 +90,22 @@ object MustacheMatcher {
      * @param actual        Actual value
      * @param mustacheScope Scope for evaluation. May be null to deactivate mustache evaluation.
      */
-    fun assertEqual(error: String, pattern: String, actual: String, mustacheScope: Any?) {
-        if (mustacheScope != null && potentiallyMustache(pattern)) {
-            val computedPattern = evaluateMustache(pattern, mustacheScope)
+    fun assertEqual(error: String, pattern: String, actual: String, mustacheScope: Any?) =
+            assertEqual(error, pattern, actual, mustacheScope?.let { scope ->
+                { expression: String -> evaluateMustache(expression, scope) }
+            })
+
+    /**
+     * Assert that the actual value is equal to the pattern after the pattern is evaluated as a mustache expression.
+     *
+     * @param error    Error for assertion (if the actual values does not match the pattern)
+     * @param pattern  Pattern that may be a mustache expression
+     * @param actual   Actual value
+     * @param evaluate Evaluates mustache expressions. May be null to deactivate mustache evaluation.
+     */
+    internal fun assertEqual(error: String, pattern: String, actual: String, evaluate: ((String) -> String)?) {
+        if (evaluate != null && potentiallyMustache(pattern)) {
+            val computedPattern = evaluate(pattern)
             val errorComplete = error + ". Pattern was evaluated as mustache expression. " +
                     "Original pattern: " + pattern
             assertThat(errorComplete, actual, `is`(computedPattern))
@@ -82,7 +118,7 @@ object MustacheMatcher {
      * @param expression Expression to look at
      * @return true if this is potentially a mustache expression. false if this is definitely not a mustache expression
      */
-    private fun potentiallyMustache(expression: String): Boolean {
+    internal fun potentiallyMustache(expression: String): Boolean {
         return expression.contains("{{") && expression.contains("}}")
     }
 }
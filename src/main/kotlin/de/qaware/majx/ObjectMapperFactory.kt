@@ -24,6 +24,7 @@
 package de.qaware.majx
 
 import com.fasterxml.jackson.annotation.JsonInclude
+import com.fasterxml.jackson.core.JsonFactory
 import com.fasterxml.jackson.core.JsonParser
 import com.fasterxml.jackson.databind.DeserializationFeature
 import com.fasterxml.jackson.databind.ObjectMapper
@@ -35,8 +36,15 @@ import java.util.*
 /**
  * @return New object mapper with standard settings
  */
-fun createObjectMapper(): ObjectMapper {
-    val mapper = ObjectMapper()
+fun createObjectMapper(): ObjectMapper = configureObjectMapper(ObjectMapper())
+
+/**
+ * @param factory The factory of the data format, e.g. a Smile or CBOR factory.
+ * @return New object mapper for the data format with standard settings
+ */
+fun createObjectMapper(factory: JsonFactory): ObjectMapper = configureObjectMapper(ObjectMapper(factory))
+
+private fun configureObjectMapper(mapper: ObjectMapper): ObjectMapper {
 
     // Configure POJO to JSON features
     configureSerializationFeatures(mapper)
@@ -0,0 +1,170 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonPointer
+
+/**
+ * Trie of paths into a JSON document with values attached to the complete paths.
+ *
+ * A path is a list of segments, each segment is a property name or an array index. When the trie is traversed
+ * with a [Cursor], the segment [ANY_SEGMENT] matches exactly one arbitrary segment and [ANY_SEGMENTS] matches
+ * any number of arbitrary segments, including none.
+ *
+ * @param T Type of the values attached to the paths.
+ */
+internal class PathTrie<T> {
+
+    /**
+     * Companion object provides support methods for [PathTrie].
+     */
+    companion object {
+
+        /**
+         * Segment that matches exactly one arbitrary segment.
+         */
+        const val ANY_SEGMENT = "*"
+
+        /**
+         * Segment that matches any number of arbitrary segments, including none.
+         */
+        const val ANY_SEGMENTS = "**"
+
+        /**
+         * Add the node and all nodes that are reachable from it through [ANY_SEGMENTS] without consuming a segment.
+         *
+         * @param nodes The nodes to add to.
+         * @param node  The node to add.
+         */
+        private fun <T> addWithClosure(nodes: MutableList<Node<T>>, node: Node<T>) {
+            var current: Node<T>? = node
+            while (current != null && nodes.none { it === current }) {
+                nodes.add(current)
+                current = current.children[ANY_SEGMENTS]
+            }
+        }
+
+        /**
+         * Split a JSON pointer (RFC 6901) into its segments.
+         *
+         * @param pointer The JSON pointer, e.g. `/items/0/name`.
+         * @return The unescaped segments of the pointer.
+         * @throws IllegalArgumentException If the pointer is not a valid JSON pointer.
+         */
+        fun pointerSegments(pointer: String): List<String> {
+            val segments = ArrayList<String>()
+            var current = JsonPointer.compile(pointer)
+            while (!current.matches()) {
+                segments.add(current.matchingProperty)
+                current = current.tail()
+            }
+            return segments
+        }
+    }
+
+    /**
+     * The root of the trie, i.e. the node for the empty path.
+     */
+    val root = Node<T>()
+
+    /**
+     * Attach a value to the given path.
+     *
+     * @param segments The segments of the path.
+     * @param value    The value to attach.
+     */
+    fun put(segments: List<String>, value: T) {
+        var node = root
+        for (segment in segments) {
+            node = node.children.getOrPut(segment) { Node(segment == ANY_SEGMENTS) }
+        }
+        node.values.add(value)
+    }
+
+    /**
+     * @return A cursor at the root of the trie.
+     */
+    fun cursor(): Cursor<T> {
+        val nodes = ArrayList<Node<T>>()
+        addWithClosure(nodes, root)
+        return Cursor(nodes)
+    }
+
+    /**
+     * A position in the trie while walking down a JSON document. Resolves the wildcard segments, so it may be at
+     * several nodes of the trie at once.
+     *
+     * @param T Type of the values attached to the paths.
+     */
+    class Cursor<T> internal constructor(private val nodes: List<Node<T>>) {
+
+        /**
+         * Whether a path of the trie ends at the position of this cursor.
+         */
+        val matches: Boolean
+            get() = nodes.any { it.values.isNotEmpty() }
+
+        /**
+         * The values of the paths of the trie that end at the position of this cursor.
+         */
+        val values: List<T>
+            get() = nodes.flatMap { it.values }
+
+        /**
+         * @param segment The next segment of the document path.
+         * @return The cursor after the segment or null if no path of the trie continues with the segment.
+         */
+        fun child(segment: String): Cursor<T>? {
+            val next = ArrayList<Node<T>>()
+            for (node in nodes) {
+                node.children[segment]?.let { addWithClosure(next, it) }
+                node.children[ANY_SEGMENT]?.let { addWithClosure(next, it) }
+                if (node.anyDepth) {
+                    // Consume the segment and stay, since any number of segments is matched
+                    addWithClosure(next, node)
+                }
+            }
+            return if (next.isEmpty()) null else Cursor(next)
+        }
+    }
+
+    /**
+     * A node of the trie.
+     *
+     * @param T Type of the values attached to the paths.
+     * @property anyDepth Whether the node is reached through the segment [ANY_SEGMENTS].
+     */
+    class Node<T>(val anyDepth: Boolean = false) {
+
+        /**
+         * The child nodes by path segment.
+         */
+        val children: MutableMap<String, Node<T>> = LinkedHashMap()
+
+        /**
+         * The values attached to the path that ends at this node.
+         */
+        val values: MutableList<T> = ArrayList()
+    }
+}
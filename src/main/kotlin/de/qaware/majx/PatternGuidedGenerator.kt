@@ -0,0 +1,407 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.Base64Variant
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.SerializableString
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.fasterxml.jackson.databind.node.TextNode
+import java.io.InputStream
+import java.io.Reader
+import java.math.BigDecimal
+import java.math.BigInteger
+
+/**
+ * Generator that passes the events of a serialization on to another generator, guided by the pattern the result will
+ * be matched against. Values that cannot influence the match result are discarded as they are produced and
+ * replaced by a `null` placeholder, so that containers keep their size and property names.
+ *
+ * A value is discarded if the [StreamingReader] would skip it as well: values matched by a wildcard, properties that
+ * are not in the pattern, ignored values (see [MatcherConfig.ignorePaths]), elements after the pattern elements of
+ * arrays in fixed order and the unreferenced elements of a [SparseArray]. Values without a guiding pattern, e.g. the
+ * elements of arrays in random order, are passed on completely.
+ *
+ * @param target  The generator the events are passed on to.
+ * @param pattern The pattern of the serialized value.
+ * @param config  The config that controls certain matcher aspects.
+ */
+internal class PatternGuidedGenerator(private val target: JsonGenerator,
+                                      private val pattern: JsonNode,
+                                      private val config: MatcherConfig) : JsonGeneratorDelegate(target, false) {
+
+    /**
+     * Companion object provides support methods for [PatternGuidedGenerator].
+     */
+    companion object {
+
+        /**
+         * Pattern of values that are discarded.
+         */
+        private val DISCARDED: JsonNode = TextNode.valueOf(JsonMatcher.WILDCARD)
+    }
+
+    /**
+     * A container that is being written.
+     *
+     * @property pattern The pattern of the container or null if its children are passed on completely.
+     * @property ignored Ignored paths at the position of the container.
+     */
+    private class Frame(val pattern: JsonNode?, val ignored: PathTrie.Cursor<String>?) {
+
+        /**
+         * Name of the current property of an object.
+         */
+        var name: String? = null
+
+        /**
+         * Index of the next element of an array.
+         */
+        var index = 0
+
+        /**
+         * The referenced elements of a sparse array by actual index, if they are known while writing, see
+         * [SparseArray.referenced].
+         */
+        val sparse: Map<Int, JsonNode?>? = pattern?.let { SparseArray.of(it) }?.referenced()
+    }
+
+    /**
+     * The pattern and ignored paths of a value that is passed on.
+     */
+    private class Child(val pattern: JsonNode?, val ignored: PathTrie.Cursor<String>?)
+
+    private val frames = ArrayList<Frame>()
+
+    /**
+     * Depth of the discarded container that is being written or 0 if no container is discarded.
+     */
+    private var discardDepth = 0
+
+    /**
+     * @return The pattern and ignored paths of the next value or null if the next value is discarded.
+     */
+    private fun nextChild(): Child? {
+        val frame = frames.lastOrNull() ?: return Child(pattern, config.ignoredPaths?.cursor())
+        val parentPattern = frame.pattern
+        val segment = frame.name ?: frame.index++.toString()
+        val ignored = frame.ignored?.child(segment)
+        if (ignored?.matches == true) {
+            return null
+        }
+        val childPattern = when {
+            parentPattern == null -> return Child(null, ignored)
+            frame.name != null -> parentPattern.get(segment) ?: return null
+            else -> elementPattern(frame, segment.toInt()) ?: return Child(null, ignored)
+        }
+        return if (JsonMatcher.isWildcard(childPattern)) null else Child(childPattern, ignored)
+    }
+
+    /**
+     * @param frame An array that is being written.
+     * @param index Index of the next element.
+     * @return The pattern of the element, [DISCARDED] if the element is discarded or null if the element is passed
+     *         on completely.
+     */
+    private fun elementPattern(frame: Frame, index: Int): JsonNode? {
+        val pattern = frame.pattern
+        val sparse = frame.sparse
+        val template = pattern?.let { ArrayTemplate.of(it) }
+        return when {
+            template != null -> template.element
+            sparse != null -> if (sparse.containsKey(index)) sparse[index] else DISCARDED
+            pattern !is ArrayNode || config.randomArrayOrder -> null
+            else -> {
+                val segments = ArraySegments.of(pattern)
+                when {
+                    segments == null -> if (index < pattern.size()) pattern.get(index) else DISCARDED
+                    index < segments.prefix.count() -> pattern.get(index)
+                    // The elements after the first wildcard may be matched by later segments
+                    segments.infixes.isNotEmpty() || !segments.suffix.isEmpty() -> null
+                    else -> DISCARDED
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a scalar value.
+     *
+     * @return Whether the value is passed on.
+     */
+    private fun scalar(): Boolean {
+        if (discardDepth > 0) {
+            return false
+        }
+        if (nextChild() == null) {
+            target.writeNull()
+            return false
+        }
+        return true
+    }
+
+    /**
+     * Start an object or array.
+     *
+     * @param isObject Whether an object is started.
+     * @return Whether the container is passed on.
+     */
+    private fun start(isObject: Boolean): Boolean {
+        if (discardDepth > 0) {
+            discardDepth++
+            return false
+        }
+        val child = nextChild()
+        if (child == null) {
+            target.writeNull()
+            discardDepth = 1
+            return false
+        }
+        // Guidance only applies if the pattern has the type of the container, otherwise the types do not match
+        val pattern = child.pattern?.takeIf { if (isObject) it.isPlainObject() else it.isArray || it.isArrayPattern() }
+        frames.add(Frame(pattern, child.ignored))
+        return true
+    }
+
+    /**
+     * End an object or array.
+     *
+     * @return Whether the end is passed on.
+     */
+    private fun end(): Boolean {
+        if (discardDepth > 0) {
+            discardDepth--
+            return false
+        }
+        frames.removeAt(frames.size - 1)
+        return true
+    }
+
+    private fun JsonNode.isPlainObject() =
+            this is ObjectNode && !ArrayTemplate.isTemplate(this) && !KeyedArray.isKeyed(this) &&
+                    !SparseArray.isSparse(this)
+
+    private fun JsonNode.isArrayPattern() =
+            ArrayTemplate.isTemplate(this) || SparseArray.isSparse(this)
+
+    override fun writeStartArray() {
+        if (start(false)) target.writeStartArray()
+    }
+
+    override fun writeStartArray(size: Int) {
+        if (start(false)) target.writeStartArray(size)
+    }
+
+    override fun writeStartArray(forValue: Any?) {
+        if (start(false)) target.writeStartArray(forValue)
+    }
+
+    override fun writeStartArray(forValue: Any?, size: Int) {
+        if (start(false)) target.writeStartArray(forValue, size)
+    }
+
+    override fun writeEndArray() {
+        if (end()) target.writeEndArray()
+    }
+
+    override fun writeStartObject() {
+        if (start(true)) target.writeStartObject()
+    }
+
+    override fun writeStartObject(forValue: Any?) {
+        if (start(true)) target.writeStartObject(forValue)
+    }
+
+    override fun writeStartObject(forValue: Any?, size: Int) {
+        if (start(true)) target.writeStartObject(forValue, size)
+    }
+
+    override fun writeEndObject() {
+        if (end()) target.writeEndObject()
+    }
+
+    override fun writeFieldName(name: String) {
+        if (discardDepth == 0) {
+            frames.last().name = name
+            target.writeFieldName(name)
+        }
+    }
+
+    override fun writeFieldName(name: SerializableString) {
+        if (discardDepth == 0) {
+            frames.last().name = name.value
+            target.writeFieldName(name)
+        }
+    }
+
+    override fun writeFieldId(id: Long) = writeFieldName(id.toString())
+
+    override fun writeArray(array: IntArray, offset: Int, length: Int) {
+        writeStartArray(array, length)
+        for (i in offset until offset + length) writeNumber(array[i])
+        writeEndArray()
+    }
+
+    override fun writeArray(array: LongArray, offset: Int, length: Int) {
+        writeStartArray(array, length)
+        for (i in offset until offset + length) writeNumber(array[i])
+        writeEndArray()
+    }
+
+    override fun writeArray(array: DoubleArray, offset: Int, length: Int) {
+        writeStartArray(array, length)
+        for (i in offset until offset + length) writeNumber(array[i])
+        writeEndArray()
+    }
+
+    override fun writeArray(array: Array<out String>, offset: Int, length: Int) {
+        writeStartArray(array, length)
+        for (i in offset until offset + length) writeString(array[i])
+        writeEndArray()
+    }
+
+    override fun writeString(text: String?) {
+        if (scalar()) target.writeString(text)
+    }
+
+    override fun writeString(reader: Reader?, length: Int) {
+        if (scalar()) target.writeString(reader, length) else reader?.skip(length.toLong())
+    }
+
+    override fun writeString(text: CharArray?, offset: Int, length: Int) {
+        if (scalar()) target.writeString(text, offset, length)
+    }
+
+    override fun writeString(text: SerializableString?) {
+        if (scalar()) target.writeString(text)
+    }
+
+    override fun writeRawUTF8String(text: ByteArray?, offset: Int, length: Int) {
+        if (scalar()) target.writeRawUTF8String(text, offset, length)
+    }
+
+    override fun writeUTF8String(text: ByteArray?, offset: Int, length: Int) {
+        if (scalar()) target.writeUTF8String(text, offset, length)
+    }
+
+    override fun writeRawValue(text: String?) {
+        if (scalar()) target.writeRawValue(text)
+    }
+
+    override fun writeRawValue(text: String?, offset: Int, length: Int) {
+        if (scalar()) target.writeRawValue(text, offset, length)
+    }
+
+    override fun writeRawValue(text: CharArray?, offset: Int, length: Int) {
+        if (scalar()) target.writeRawValue(text, offset, length)
+    }
+
+    override fun writeBinary(variant: Base64Variant?, data: ByteArray?, offset: Int, length: Int) {
+        if (scalar()) target.writeBinary(variant, data, offset, length)
+    }
+
+    override fun writeBinary(variant: Base64Variant?, data: InputStream?, length: Int): Int {
+        if (scalar()) {
+            return target.writeBinary(variant, data, length)
+        }
+        // The data has to be consumed anyway
+        val buffer = ByteArray(8192)
+        var total = 0
+        while (data != null && (length < 0 || total < length)) {
+            val read = data.read(buffer, 0, if (length < 0) buffer.size else Math.min(buffer.size, length - total))
+            if (read < 0) {
+                break
+            }
+            total += read
+        }
+        return total
+    }
+
+    override fun writeNumber(value: Short) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(value: Int) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(value: Long) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(value: BigInteger?) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(value: Double) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(value: Float) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(value: BigDecimal?) {
+        if (scalar()) target.writeNumber(value)
+    }
+
+    override fun writeNumber(encodedValue: String?) {
+        if (scalar()) target.writeNumber(encodedValue)
+    }
+
+    override fun writeNumber(encodedValue: CharArray?, offset: Int, length: Int) {
+        if (scalar()) target.writeNumber(encodedValue, offset, length)
+    }
+
+    override fun writeBoolean(state: Boolean) {
+        if (scalar()) target.writeBoolean(state)
+    }
+
+    override fun writeNull() {
+        if (scalar()) target.writeNull()
+    }
+
+    override fun writeEmbeddedObject(value: Any?) {
+        if (scalar()) target.writeEmbeddedObject(value)
+    }
+
+    override fun writeObjectRef(id: Any?) {
+        if (scalar()) target.writeObjectRef(id)
+    }
+
+    override fun writeObjectId(id: Any?) {
+        if (discardDepth == 0) target.writeObjectId(id)
+    }
+
+    override fun writeTypeId(id: Any?) {
+        if (discardDepth == 0) target.writeTypeId(id)
+    }
+
+    override fun writeOmittedField(fieldName: String?) {
+        if (discardDepth == 0) target.writeOmittedField(fieldName)
+    }
+}
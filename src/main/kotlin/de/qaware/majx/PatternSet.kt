@@ -0,0 +1,237 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import java.util.*
+
+/**
+ * A set of named patterns that classifies actual JSON documents by the patterns they match.
+ *
+ * On construction, the literal scalar values that the patterns expect at object paths (e.g. `type` or
+ * `header.version`) are compiled into an index. Classifying a document looks up its values at these paths once,
+ * which rules out all patterns with a different literal at one of them. Only the remaining candidates are
+ * matched completely.
+ *
+ * @param patterns      The patterns by their names. The iteration order defines the order of the results.
+ * @param config        The config that controls certain matcher aspects.
+ * @param mustacheScope The scope from which the mustache parser reads it variables. May be a map or a POJO.
+ * @constructor Creates a new [PatternSet] from the given [patterns].
+ */
+class PatternSet @JvmOverloads constructor(patterns: Map<String, JsonNode>,
+                                           config: MatcherConfig = DefaultMatcherConfig,
+                                           private val mustacheScope: Any? = null) {
+
+    /**
+     * Companion object provides factory methods for [PatternSet].
+     */
+    companion object {
+
+        /**
+         * Create a pattern set from patterns given as JSON strings.
+         *
+         * @param patterns The pattern JSON strings by their names.
+         * @return The new pattern set.
+         * @throws IllegalArgumentException If one of the patterns cannot be parsed as JSON.
+         */
+        @JvmStatic
+        fun of(patterns: Map<String, String>): PatternSet =
+                PatternSet(patterns.mapValues { (name, pattern) -> parseAndValidate(pattern, "pattern '$name'") })
+    }
+
+    private val names: List<String> = patterns.keys.toList()
+    private val patternNodes: List<JsonNode> = patterns.values.toList()
+    private val matcher = JsonMatcher(config, mustacheScope)
+
+    /**
+     * Index of the literal scalar values by object path (the path segments are the property names).
+     */
+    private val discriminators: List<Discriminator>
+
+    init {
+        val literalsByPath = LinkedHashMap<List<String>, MutableMap<Int, String>>()
+        patternNodes.forEachIndexed { index, pattern ->
+            collectLiterals(pattern, emptyList(), config.ignoredPaths?.cursor()) { path, key ->
+                literalsByPath.getOrPut(path, ::HashMap)[index] = key
+            }
+        }
+        discriminators = literalsByPath.map { (path, literals) ->
+            val unconstrained = BitSet()
+            unconstrained.set(0, patternNodes.size)
+            val byLiteral = HashMap<String, BitSet>()
+            literals.forEach { (index, key) ->
+                unconstrained.clear(index)
+                byLiteral.getOrPut(key, ::BitSet).set(index)
+            }
+            Discriminator(path, byLiteral, unconstrained)
+        }
+    }
+
+    /**
+     * Find all patterns that the given actual JSON matches.
+     *
+     * @param actual The actual JSON node to classify.
+     * @return The names of all matching patterns. Empty if no pattern matches.
+     */
+    fun matchAll(actual: JsonNode): List<String> {
+        val result = ArrayList<String>()
+        forEachMatch(actual) { index ->
+            result.add(names[index])
+            true
+        }
+        return result
+    }
+
+    /**
+     * Find all patterns that the given actual JSON matches.
+     *
+     * @param actual The actual JSON string to classify.
+     * @return The names of all matching patterns. Empty if no pattern matches.
+     */
+    fun matchAll(actual: String): List<String> = matchAll(parseAndValidate(actual, "actual"))
+
+    /**
+     * Find the first pattern that the given actual JSON matches.
+     *
+     * @param actual The actual JSON node to classify.
+     * @return The name of the first matching pattern or null if no pattern matches.
+     */
+    fun matchFirst(actual: JsonNode): String? {
+        var result: String? = null
+        forEachMatch(actual) { index ->
+            result = names[index]
+            false
+        }
+        return result
+    }
+
+    /**
+     * Find the first pattern that the given actual JSON matches.
+     *
+     * @param actual The actual JSON string to classify.
+     * @return The name of the first matching pattern or null if no pattern matches.
+     */
+    fun matchFirst(actual: String): String? = matchFirst(parseAndValidate(actual, "actual"))
+
+    /**
+     * Call the given action for every matching pattern in order.
+     *
+     * @param actual The actual JSON node to classify.
+     * @param action Called with the index of each matching pattern. Returns whether to continue.
+     */
+    private fun forEachMatch(actual: JsonNode, action: (Int) -> Boolean) {
+        val candidates = BitSet()
+        candidates.set(0, patternNodes.size)
+        for (discriminator in discriminators) {
+            discriminator.restrict(actual, candidates)
+            if (candidates.isEmpty) {
+                return
+            }
+        }
+
+        var index = candidates.nextSetBit(0)
+        while (index >= 0) {
+            if (matcher.matches(patternNodes[index], actual) && !action(index)) {
+                return
+            }
+            index = candidates.nextSetBit(index + 1)
+        }
+    }
+
+    /**
+     * Collect the literal scalar values of the pattern that are reachable through objects only. Values at ignored
+     * paths (see [MatcherConfig.ignorePaths]) are skipped, since the matcher accepts any value there.
+     *
+     * @param pattern The pattern node.
+     * @param path    The path of property names leading to the pattern node.
+     * @param ignored Ignored paths at the position of the pattern node.
+     * @param collect Called with the path and the key of each literal.
+     */
+    private fun collectLiterals(pattern: JsonNode,
+                                path: List<String>,
+                                ignored: PathTrie.Cursor<String>?,
+                                collect: (List<String>, String) -> Unit) {
+        when {
+            ignored?.matches == true -> return
+            // The elements of array templates, keyed arrays and sparse arrays are inside an array, so they are not
+            // reachable through objects only
+            pattern.isObject && !ArrayTemplate.isTemplate(pattern) && !KeyedArray.isKeyed(pattern) &&
+                    !SparseArray.isSparse(pattern) ->
+                pattern.fields().forEach { (name, child) ->
+                    if (name != JsonMatcher.WILDCARD) {
+                        collectLiterals(child, path + name, ignored?.child(name), collect)
+                    }
+                }
+            pattern.isValueNode && path.isNotEmpty() && isLiteral(pattern) -> collect(path, literalKey(pattern))
+        }
+    }
+
+    /**
+     * @param pattern Scalar pattern node.
+     * @return Whether the pattern node only matches a single value.
+     */
+    private fun isLiteral(pattern: JsonNode): Boolean {
+        if (!pattern.isTextual) {
+            return true
+        }
+        return !JsonMatcher.isWildcard(pattern) && !pattern.textValue().startsWith(StringDigest.DIGEST_PREFIX) &&
+                (mustacheScope == null || !MustacheMatcher.potentiallyMustache(pattern.textValue()))
+    }
+
+    /**
+     * A path at which some patterns expect literal values.
+     *
+     * @property path          The property names leading to the value.
+     * @property byLiteral     The patterns by the literal they expect at the path.
+     * @property unconstrained The patterns without a literal at the path.
+     */
+    private class Discriminator(val path: List<String>,
+                                val byLiteral: Map<String, BitSet>,
+                                val unconstrained: BitSet) {
+
+        /**
+         * Remove all candidates that expect a different literal at the path than the actual JSON contains.
+         *
+         * @param actual     The actual JSON root node.
+         * @param candidates The candidates to restrict.
+         */
+        fun restrict(actual: JsonNode, candidates: BitSet) {
+            var node: JsonNode? = actual
+            for (name in path) {
+                node = if (node != null && node.isObject) node.get(name) else null
+            }
+            val allowed = unconstrained.clone() as BitSet
+            if (node != null && node.isValueNode) {
+                byLiteral[literalKey(node)]?.let { allowed.or(it) }
+            }
+            candidates.and(allowed)
+        }
+    }
+}
+
+/**
+ * @param node Scalar node.
+ * @return A key that is equal for two scalar nodes if and only if [JsonMatcher] considers them equal.
+ */
+internal fun literalKey(node: JsonNode): String = "${node.nodeType}:${node.asText()}"
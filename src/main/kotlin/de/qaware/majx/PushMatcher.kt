@@ -0,0 +1,331 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonProcessingException
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.core.async.ByteArrayFeeder
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.ObjectNode
+
+/**
+ * Matches a UTF-8 encoded JSON document against a pattern while its bytes arrive in chunks, e.g. from an HTTP
+ * response body.
+ *
+ * The chunks are parsed by Jackson's non-blocking parser as far as they go. Each completed value is validated as soon
+ * as its pattern is certain, i.e. the values of object properties, the elements of ordered arrays up to the first
+ * wildcard and the elements of array templates. Containers are also checked for the type of their pattern when they
+ * start. So a mismatch of these values fails [feed] before the rest of the document has arrived. All other
+ * constraints, e.g. sizes and arrays in any order, are validated as soon as the document is complete. Validated
+ * sub-trees are not validated again.
+ *
+ * The received document is kept as tree for the final validation and the error output. The budgets of the config
+ * apply to each chunk. A push matcher must not be used by several threads at the same
+ * time.
+ *
+ * @param pattern       The pattern the document is matched against.
+ * @param reason        The error message to prepend to the JSON matcher error message if validation fails.
+ * @param mustacheScope The scope from which the mustache parser reads it variables. May be a map or a POJO.
+ * @param config        The config that controls certain matcher aspects.
+ * @constructor Creates a new [PushMatcher] for the given [pattern].
+ */
+class PushMatcher @JvmOverloads constructor(private val pattern: JsonNode,
+                                            private val reason: String? = null,
+                                            mustacheScope: Any? = null,
+                                            private val config: MatcherConfig = DefaultMatcherConfig) {
+
+    /**
+     * Companion object provides factory methods for [PushMatcher].
+     */
+    companion object {
+
+        private val NODE_FACTORY = JsonNodeFactory.instance
+
+        /**
+         * Create a push matcher from a pattern given as JSON string.
+         *
+         * @param pattern The pattern JSON string.
+         * @return The new push matcher.
+         * @throws IllegalArgumentException If the pattern cannot be parsed as JSON.
+         */
+        @JvmStatic
+        fun of(pattern: String): PushMatcher = PushMatcher(parseAndValidate(pattern, "pattern"))
+
+        /**
+         * @param pattern A pattern.
+         * @return Whether the pattern is an object that matches arrays.
+         */
+        private fun isArrayPattern(pattern: JsonNode): Boolean =
+                ArrayTemplate.isTemplate(pattern) || KeyedArray.isKeyed(pattern) || SparseArray.isSparse(pattern)
+    }
+
+    private val matcher = JsonMatcher(config, mustacheScope, SubtreeMemo())
+
+    private val effectivePattern = matcher.startPushedMatch(pattern)
+
+    private val parser = JSON_MAPPER.factory.createNonBlockingByteArrayParser()
+
+    private val feeder = parser.nonBlockingInputFeeder as ByteArrayFeeder
+
+    /**
+     * The open containers, the innermost last.
+     */
+    private val frames = ArrayList<Frame>()
+
+    /**
+     * The document received so far.
+     */
+    private var root: JsonNode? = null
+
+    private var failure: Throwable? = null
+
+    private var endOfInput = false
+
+    /**
+     * Whether the document is complete. A number at the root is only complete at the end of the input.
+     */
+    var isComplete: Boolean = false
+        private set
+
+    /**
+     * Parse and validate the next chunk of the document. The chunk must not be changed until this method returns.
+     *
+     * @param chunk  Bytes that contain the chunk.
+     * @param offset Offset of the chunk in the bytes.
+     * @param length Length of the chunk.
+     * @throws AssertionError If a value of the document does not match its pattern.
+     * @throws IllegalArgumentException If the document cannot be parsed.
+     * @throws IllegalStateException If the end of the input was already signaled.
+     */
+    fun feed(chunk: ByteArray, offset: Int, length: Int) = process {
+        check(!endOfInput) { "End of input was already signaled" }
+        matcher.resumePushedMatch()
+        feeder.feedInput(chunk, offset, offset + length)
+        readAvailable()
+    }
+
+    /**
+     * Parse and validate the next chunk of the document. The chunk must not be changed until this method returns.
+     *
+     * @param chunk The chunk.
+     * @throws AssertionError If a value of the document does not match its pattern.
+     * @throws IllegalArgumentException If the document cannot be parsed.
+     * @throws IllegalStateException If the end of the input was already signaled.
+     */
+    fun feed(chunk: ByteArray) = feed(chunk, 0, chunk.size)
+
+    /**
+     * Signal the end of the document.
+     *
+     * @throws AssertionError If the document does not match the pattern.
+     * @throws IllegalArgumentException If the document is incomplete or cannot be parsed.
+     */
+    fun endOfInput() = process {
+        if (!endOfInput) {
+            endOfInput = true
+            feeder.endOfInput()
+            readAvailable()
+        }
+        require(isComplete) { "Failed to parse actual as JSON: Unexpected end of input" }
+    }
+
+    /**
+     * Run an action unless the match already failed, in which case the failure is thrown again.
+     */
+    private fun process(action: () -> Unit) {
+        failure?.let { throw it }
+        try {
+            action()
+        } catch (e: AssertionError) {
+            failure = e
+            throw e
+        } catch (e: IllegalArgumentException) {
+            failure = e
+            throw e
+        }
+    }
+
+    private fun readAvailable() {
+        while (true) {
+            val token = try {
+                parser.nextToken()
+            } catch (e: JsonProcessingException) {
+                throw IllegalArgumentException("Failed to parse actual as JSON: ${e.originalMessage}", e)
+            }
+            when (token) {
+                null, JsonToken.NOT_AVAILABLE -> return
+                JsonToken.FIELD_NAME -> frames.last().name = parser.currentName
+                JsonToken.START_OBJECT, JsonToken.START_ARRAY -> {
+                    val node = if (token == JsonToken.START_OBJECT) NODE_FACTORY.objectNode() else
+                        NODE_FACTORY.arrayNode()
+                    val position = attach(node)
+                    position.pattern?.let { checkType(it, node, position) }
+                    frames.add(Frame(node, position))
+                }
+                JsonToken.END_OBJECT, JsonToken.END_ARRAY -> completed(frames.removeAt(frames.size - 1).position)
+                else -> completed(attach(scalar(token)))
+            }
+        }
+    }
+
+    private fun scalar(token: JsonToken): JsonNode = when (token) {
+        JsonToken.VALUE_STRING -> NODE_FACTORY.textNode(parser.text)
+        JsonToken.VALUE_NUMBER_INT -> when (parser.numberType) {
+            JsonParser.NumberType.INT -> NODE_FACTORY.numberNode(parser.intValue)
+            JsonParser.NumberType.LONG -> NODE_FACTORY.numberNode(parser.longValue)
+            else -> NODE_FACTORY.numberNode(parser.bigIntegerValue)
+        }
+        JsonToken.VALUE_NUMBER_FLOAT -> NODE_FACTORY.numberNode(parser.doubleValue)
+        JsonToken.VALUE_TRUE -> NODE_FACTORY.booleanNode(true)
+        JsonToken.VALUE_FALSE -> NODE_FACTORY.booleanNode(false)
+        else -> NODE_FACTORY.nullNode()
+    }
+
+    /**
+     * Add a started value to the document.
+     *
+     * @param value The value.
+     * @return The position of the value.
+     * @throws IllegalArgumentException If the document is already complete.
+     */
+    private fun attach(value: JsonNode): Position {
+        if (frames.isEmpty()) {
+            require(root == null) { "Failed to parse actual as JSON: Unexpected content after the document" }
+            root = value
+            val ignored = config.ignoredPaths?.cursor()
+            return Position(effectivePattern.takeUnless { ignored?.matches == true }, "$", ignored)
+                    .also { it.value = value }
+        }
+        return frames.last().attach(value)
+    }
+
+    /**
+     * Check whether a started container has the type of its pattern, so that a wrong type fails early.
+     */
+    private fun checkType(pattern: JsonNode, node: JsonNode, position: Position) {
+        val typeMatches = if (node.isObject) pattern.isObject && !isArrayPattern(pattern) else
+            pattern.isArray || isArrayPattern(pattern)
+        if (!typeMatches) {
+            check(pattern, node, position)
+        }
+    }
+
+    /**
+     * Validate a completed value if its pattern is certain.
+     *
+     * @param position The position of the value.
+     */
+    private fun completed(position: Position) {
+        if (frames.isEmpty()) {
+            isComplete = true
+            matcher.assertMatches(reason, pattern, position.value)
+        } else {
+            position.pattern?.let { check(it, position.value, position) }
+        }
+    }
+
+    private fun check(pattern: JsonNode, value: JsonNode, position: Position) {
+        matcher.checkPushed(pattern, value, position.attributeName, position.ignored)?.let {
+            throw matcher.pushedMatchError(reason, it, convertToString(root!!), this.pattern)
+        }
+    }
+
+    /**
+     * The position of a value in the document.
+     *
+     * @property value         The value.
+     * @property pattern       The pattern of the value if it is certain and not a wildcard, null otherwise.
+     * @property attributeName Name of the value (absolute path from root).
+     * @property ignored       Ignored paths at the position of the value.
+     */
+    private class Position(val pattern: JsonNode?, val attributeName: String, val ignored: PathTrie.Cursor<String>?) {
+
+        lateinit var value: JsonNode
+    }
+
+    /**
+     * An open container of the document.
+     *
+     * @property node     The container received so far.
+     * @property position The position of the container.
+     */
+    private inner class Frame(val node: JsonNode, val position: Position) {
+
+        /**
+         * The name of the current property of an object.
+         */
+        var name: String? = null
+
+        /**
+         * The pattern of all elements of an array, if certain.
+         */
+        private val elementPattern: JsonNode? = position.pattern
+                ?.takeIf { node.isArray && config.sampling == null }
+                ?.let { ArrayTemplate.of(it)?.element }
+
+        /**
+         * The ordered pattern elements up to the first wildcard, if certain.
+         */
+        private val positional: List<JsonNode> = position.pattern
+                ?.takeIf { node.isArray && it.isArray && !config.randomArrayOrder && config.sampling == null }
+                ?.let { pattern ->
+                    val segments = ArraySegments.of(pattern as ArrayNode)
+                    pattern.take(segments?.prefix?.count() ?: pattern.size())
+                } ?: emptyList()
+
+        init {
+            position.value = node
+        }
+
+        /**
+         * Add a started value to the container.
+         *
+         * @param value The value.
+         * @return The position of the value.
+         */
+        fun attach(value: JsonNode): Position {
+            val segment: String
+            val attributeName: String
+            val pattern: JsonNode?
+            if (node is ObjectNode) {
+                segment = name!!
+                attributeName = "${position.attributeName}.$segment"
+                pattern = position.pattern?.takeIf { it.isObject && !isArrayPattern(it) }?.get(segment)
+                node.set<JsonNode>(segment, value)
+            } else {
+                val index = node.size()
+                segment = index.toString()
+                attributeName = "${position.attributeName}[$index]"
+                pattern = elementPattern ?: positional.getOrNull(index)
+                (node as ArrayNode).add(value)
+            }
+            val ignored = position.ignored?.child(segment)
+            val certain = pattern?.takeUnless { JsonMatcher.isWildcard(it) || ignored?.matches == true }
+            return Position(certain, attributeName, ignored).also { it.value = value }
+        }
+    }
+}
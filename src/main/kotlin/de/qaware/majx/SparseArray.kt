@@ -0,0 +1,127 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+
+/**
+ * Pattern for arrays of which only the elements at certain indices are relevant.
+ *
+ * A sparse array is written as object with the magic property [AT] that maps indices to element patterns and the
+ * optional magic property [SIZE], e.g. `{ "...at" : { "0" : "first", "500" : { "id" : 500 }, "-1" : "last" },
+ * "...size" : 1000000 }`. Negative indices count from the end of the array, -1 being the last element. Without a
+ * size the array only has to be large enough to contain all indices. Elements at other indices are not matched,
+ * regardless of [MatcherConfig.randomArrayOrder].
+ *
+ * @property elements The element patterns by index as written in the pattern, i.e. potentially negative.
+ * @property size     The exact size of the array or null if any size containing all indices is allowed.
+ */
+internal class SparseArray private constructor(val elements: Map<Int, JsonNode>, val size: Int?) {
+
+    /**
+     * The minimum size of an array that contains all indices.
+     */
+    val minSize: Int = elements.keys.map { if (it < 0) -it else it + 1 }.max() ?: 0
+
+    /**
+     * The number of elements at the end of the array that are referenced by negative indices.
+     */
+    val lookBack: Int = elements.keys.filter { it < 0 }.map { -it }.max() ?: 0
+
+    /**
+     * Companion object provides support methods for [SparseArray].
+     */
+    companion object {
+
+        /**
+         * Magic property that holds the element patterns by index.
+         */
+        const val AT = "...at"
+
+        /**
+         * Magic property that holds the exact size of the array.
+         */
+        const val SIZE = "...size"
+
+        /**
+         * @param pattern Pattern node.
+         * @return Whether the pattern node is a sparse array.
+         */
+        fun isSparse(pattern: JsonNode): Boolean = pattern.isObject && pattern.has(AT)
+
+        /**
+         * @param pattern Pattern node.
+         * @return The sparse array or null if the pattern node is not a sparse array.
+         * @throws IllegalArgumentException If the sparse array is malformed.
+         */
+        fun of(pattern: JsonNode): SparseArray? {
+            if (!isSparse(pattern)) {
+                return null
+            }
+            pattern.fieldNames().forEach {
+                require(it == AT || it == SIZE) {
+                    "Sparse array must only contain the properties $AT and $SIZE, but contains $it"
+                }
+            }
+            val at = pattern.get(AT)
+            require(at.isObject) { "$AT of sparse array must be an object, but is $at" }
+            val elements = LinkedHashMap<Int, JsonNode>()
+            at.fields().forEach { (name, element) ->
+                val index = name.toIntOrNull()
+                requireNotNull(index) { "Indices of sparse array must be integers, but $name is not" }
+                elements[index] = element
+            }
+            val size = pattern.get(SIZE)?.let {
+                require(it.isInt && it.intValue() >= 0) {
+                    "$SIZE of sparse array must be a non-negative integer, but is $it"
+                }
+                it.intValue()
+            }
+            return SparseArray(elements, size)
+        }
+    }
+
+    /**
+     * The elements that can be referenced while the array is read, i.e. before its size is known.
+     *
+     * @return The patterns by actual index, null for elements that are referenced by several patterns. Null if the
+     *         array has no exact size but negative indices, so that any element may be referenced.
+     */
+    fun referenced(): Map<Int, JsonNode?>? {
+        if (size == null && lookBack > 0) {
+            return null
+        }
+        // Without exact size, there are no negative indices
+        val patterns = resolve(size ?: 0).groupBy { it.index }
+        return patterns.mapValues { (_, elements) -> elements.singleOrNull()?.value }
+    }
+
+    /**
+     * @param size Size of the actual array, at least [minSize].
+     * @return The element patterns by actual index, in ascending order of the indices.
+     */
+    fun resolve(size: Int): List<IndexedValue<JsonNode>> =
+            elements.map { (index, element) -> IndexedValue(if (index < 0) size + index else index, element) }
+                    .sortedBy { it.index }
+}
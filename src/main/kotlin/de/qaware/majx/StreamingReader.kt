@@ -0,0 +1,486 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonStreamContext
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.MissingNode
+import java.util.ArrayDeque
+
+/**
+ * Reads the actual JSON in streaming mode.
+ *
+ * The reader is guided by the pattern: sub-trees that cannot influence the match result, e.g. values matched by
+ * a wildcard, are skipped by the parser instead of being built. Skipped values are represented by [SKIPPED], so
+ * that containers keep their size and property names for the checks of the [JsonMatcher]. Ignored properties
+ * (see [MatcherConfig.ignorePaths]) are left out completely, ignored array elements are skipped.
+ *
+ * The elements of arrays that are matched by an [ArrayTemplate] are matched while reading and not kept, see
+ * [CheckedArrayNode]. Rows of flat objects are matched column by column, see [ColumnarTemplate]. Only the referenced
+ * elements of a [SparseArray] are read.
+ *
+ * @property config       The config that controls certain matcher aspects.
+ * @property budget       The budget of the match or null if it has none. Elements that are matched column by column
+ *                        are charged here, the others by [checkElement].
+ * @property checkElement Matches an element of an array template, given the element pattern, the element, the
+ *                        attribute name of the element and the ignored paths at its position. Returns the error if
+ *                        the element does not match.
+ */
+internal class StreamingReader(private val config: MatcherConfig,
+                               private val budget: MatchBudget?,
+                               private val checkElement: (JsonNode, JsonNode, String, PathTrie.Cursor<String>?) ->
+                               AssertionError?) {
+
+    /**
+     * Companion object provides support methods for [StreamingReader].
+     */
+    companion object {
+
+        /**
+         * Placeholder for values that were skipped while reading.
+         */
+        val SKIPPED: JsonNode = MissingNode.getInstance()
+
+        private val NODE_FACTORY = JsonNodeFactory.instance
+
+        /**
+         * @param context Parsing context of the parser.
+         * @return The attribute name (absolute path from root) of the current value of the context.
+         */
+        private fun attributeName(context: JsonStreamContext?): String = when {
+            context == null || context.inRoot() -> "$"
+            context.inArray() -> "${attributeName(context.parent)}[${context.currentIndex}]"
+            else -> "${attributeName(context.parent)}.${context.currentName}"
+        }
+    }
+
+    /**
+     * Read the actual JSON guided by the pattern.
+     *
+     * @param actual  The actual JSON string.
+     * @param pattern The pattern the actual JSON will be matched against.
+     * @return The actual JSON without the sub-trees that cannot influence the match result.
+     * @throws IllegalArgumentException If the actual JSON cannot be parsed.
+     */
+    fun read(actual: String, pattern: JsonNode): JsonNode =
+            parse(actual) { readValue(it, pattern, config.ignoredPaths?.cursor()) }
+
+    /**
+     * Read the actual document of the given data format guided by the pattern, without transcoding it to JSON text.
+     *
+     * @param actual  The bytes that contain the actual document.
+     * @param offset  The offset of the document in the bytes.
+     * @param length  The length of the document.
+     * @param format  The data format of the actual document.
+     * @param pattern The pattern the actual document will be matched against.
+     * @return The actual document without the sub-trees that cannot influence the match result.
+     * @throws IllegalArgumentException If the actual document cannot be parsed.
+     */
+    fun read(actual: ByteArray, offset: Int, length: Int, format: DataFormat, pattern: JsonNode): JsonNode =
+            parse({ format.createParser(actual, offset, length) }, format,
+                    { format.parseErrorMessage(actual, offset, length) }) {
+                readValue(it, pattern, config.ignoredPaths?.cursor())
+            }
+
+    /**
+     * Read the actual JSON from a parser guided by the pattern, e.g. from the events of a serialization.
+     *
+     * @param parser  The parser of the actual JSON, closed after reading.
+     * @param pattern The pattern the actual JSON will be matched against.
+     * @return The actual JSON without the sub-trees that cannot influence the match result.
+     */
+    fun read(parser: JsonParser, pattern: JsonNode): JsonNode = parser.use {
+        if (it.nextToken() == null) SKIPPED else readValue(it, pattern, config.ignoredPaths?.cursor())
+    }
+
+    /**
+     * Read only the parts of the actual JSON that are selected by the given pointer assertions.
+     *
+     * Containers on the way to a selected node only contain the children that lead to a selected node. Selected
+     * nodes are read guided by their pattern.
+     *
+     * @param actual    The actual JSON string.
+     * @param selection The pointer assertions by path.
+     * @return The selected parts of the actual JSON.
+     * @throws IllegalArgumentException If the actual JSON cannot be parsed.
+     */
+    fun readSelected(actual: String, selection: PathTrie<PointerAssertion>): JsonNode =
+            parse(actual) { readSelected(it, selection.root, config.ignoredPaths?.cursor()) }
+
+    private fun parse(actual: String, read: (JsonParser) -> JsonNode): JsonNode =
+            parse({ createParser(actual) }, DataFormat.JSON, { "Failed to parse actual as JSON:\n$actual" }, read)
+
+    private fun parse(createParser: () -> JsonParser,
+                      format: DataFormat,
+                      errorMessage: () -> String,
+                      read: (JsonParser) -> JsonNode): JsonNode {
+        try {
+            createParser().use { parser ->
+                if (parser.nextToken() == null) {
+                    return SKIPPED
+                }
+                return read(parser)
+            }
+        } catch (e: Exception) {
+            if (!format.isParseError(e)) {
+                throw e
+            }
+            throw IllegalArgumentException(errorMessage(), e)
+        }
+    }
+
+    private fun readSelected(parser: JsonParser,
+                             selection: PathTrie.Node<PointerAssertion>,
+                             ignored: PathTrie.Cursor<String>?): JsonNode {
+        if (ignored?.matches == true) {
+            parser.skipChildren()
+            return SKIPPED
+        }
+        if (selection.children.isEmpty()) {
+            return readValue(parser, selection.values.singleOrNull()?.pattern, ignored)
+        }
+        if (selection.values.isNotEmpty()) {
+            // Nested pointers: read completely, since the node itself is matched against a pattern
+            return readValue(parser, null, ignored)
+        }
+
+        return when (parser.currentToken) {
+            JsonToken.START_OBJECT -> {
+                val result = NODE_FACTORY.objectNode()
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    val name = parser.currentName
+                    parser.nextToken()
+                    val child = selection.children[name]
+                    if (child == null) {
+                        parser.skipChildren()
+                    } else {
+                        result.replace(name, readSelected(parser, child, ignored?.child(name)))
+                    }
+                }
+                result
+            }
+            JsonToken.START_ARRAY -> {
+                val result = NODE_FACTORY.arrayNode()
+                val lastSelected = selection.children.keys.mapNotNull { it.toIntOrNull() }.max() ?: -1
+                var index = 0
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    val child = selection.children[index.toString()]
+                    if (child != null) {
+                        result.add(readSelected(parser, child, ignored?.child(index.toString())))
+                    } else {
+                        parser.skipChildren()
+                        // Keep the positions of the selected elements, there is no need to keep track after them
+                        if (index < lastSelected) {
+                            result.add(SKIPPED)
+                        }
+                    }
+                    index++
+                }
+                result
+            }
+            else -> readValue(parser, null, ignored)
+        }
+    }
+
+    /**
+     * Read the value at the current token of the parser.
+     *
+     * @param parser  The parser, positioned at the first token of the value.
+     * @param pattern The pattern for the value or null if the value has to be read completely.
+     * @param ignored Ignored paths at the position of the value.
+     * @return The value. The parser is positioned at the last token of the value.
+     */
+    private fun readValue(parser: JsonParser, pattern: JsonNode?, ignored: PathTrie.Cursor<String>?): JsonNode {
+        if (pattern != null && JsonMatcher.isWildcard(pattern) || ignored?.matches == true) {
+            parser.skipChildren()
+            return SKIPPED
+        }
+
+        val template = pattern?.let { ArrayTemplate.of(it) }
+        val sparse = pattern?.let { SparseArray.of(it) }
+        return when (parser.currentToken) {
+            JsonToken.START_OBJECT -> readObject(parser, pattern, ignored)
+            JsonToken.START_ARRAY -> when {
+                template != null -> readTemplate(parser, template, ignored)
+                sparse != null -> readSparse(parser, sparse, ignored)
+                // Any pattern element may match any actual element, so there is no guide per element
+                pattern != null && KeyedArray.isKeyed(pattern) -> readArray(parser, null, ignored)
+                else -> readArray(parser, pattern, ignored)
+            }
+            JsonToken.VALUE_STRING -> if (parser.textLength > config.digestThreshold) {
+                DigestTextNode(StringDigest.sha256(parser), parser.textLength)
+            } else {
+                NODE_FACTORY.textNode(parser.text)
+            }
+            JsonToken.VALUE_NUMBER_INT -> when (parser.numberType) {
+                JsonParser.NumberType.INT -> NODE_FACTORY.numberNode(parser.intValue)
+                JsonParser.NumberType.LONG -> NODE_FACTORY.numberNode(parser.longValue)
+                else -> NODE_FACTORY.numberNode(parser.bigIntegerValue)
+            }
+            JsonToken.VALUE_NUMBER_FLOAT -> when (parser.numberType) {
+                JsonParser.NumberType.BIG_DECIMAL -> NODE_FACTORY.numberNode(parser.decimalValue)
+                JsonParser.NumberType.FLOAT -> NODE_FACTORY.numberNode(parser.floatValue)
+                else -> NODE_FACTORY.numberNode(parser.doubleValue)
+            }
+            JsonToken.VALUE_TRUE -> NODE_FACTORY.booleanNode(true)
+            JsonToken.VALUE_FALSE -> NODE_FACTORY.booleanNode(false)
+            JsonToken.VALUE_NULL -> NODE_FACTORY.nullNode()
+            else -> parser.readValueAsTree<JsonNode>()
+        }
+    }
+
+    private fun readObject(parser: JsonParser, pattern: JsonNode?, ignored: PathTrie.Cursor<String>?): JsonNode {
+        val result = NODE_FACTORY.objectNode()
+        if (pattern != null && !pattern.isObject) {
+            // Type mismatch, the content is irrelevant
+            parser.skipChildren()
+            return result
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            val name = parser.currentName
+            parser.nextToken()
+            val childIgnored = ignored?.child(name)
+            if (childIgnored?.matches == true) {
+                parser.skipChildren()
+            } else if (pattern == null) {
+                result.replace(name, readValue(parser, null, childIgnored))
+            } else {
+                // Properties that are not in the pattern only count for the size and property name checks
+                val childPattern = pattern.get(name)
+                if (childPattern == null) {
+                    parser.skipChildren()
+                    result.replace(name, SKIPPED)
+                } else {
+                    result.replace(name, readValue(parser, childPattern, childIgnored))
+                }
+            }
+        }
+        return result
+    }
+
+    /**
+     * Read an array that is matched by an array template and match its elements.
+     *
+     * @param parser   The parser, positioned at the start of the array.
+     * @param template The array template.
+     * @param ignored  Ignored paths at the position of the array.
+     * @return The array with the result of the match and the elements replaced by [SKIPPED].
+     */
+    private fun readTemplate(parser: JsonParser, template: ArrayTemplate, ignored: PathTrie.Cursor<String>?):
+            JsonNode {
+        val result = CheckedArrayNode()
+        // The parsing context at the start of the array is the context of its elements
+        val arrayName = attributeName(parser.parsingContext.parent)
+        val sampling = config.sampling
+        val columnar = if (sampling == null && ignored == null) ColumnarTemplate.of(template.element) else null
+        if (columnar != null) {
+            columnar.read(parser, arrayName, result, budget, { p, pattern -> readValue(p, pattern, null) }) {
+                pattern, row, name -> checkElement(pattern, row, name, null)
+            }
+            return result
+        }
+        // With sampling, whether an element is checked may depend on the size of the array, which is only known at
+        // the end. Such elements are kept until they are known to be unsampled.
+        val pending = ArrayDeque<IndexedValue<JsonNode>>()
+        var failureIndex = Int.MAX_VALUE
+        var index = 0
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            val childIgnored = ignored?.child(index.toString())
+            if (result.failure != null || childIgnored?.matches == true) {
+                // Only the first failure is reported, the remaining elements only count for the size checks
+                parser.skipChildren()
+            } else {
+                val element = readValue(parser, template.element, childIgnored)
+                if (sampling == null || index < sampling.edgeElements || sampling.isSelected(index)) {
+                    result.failure = checkElement(template.element, element, "$arrayName[$index]", childIgnored)
+                    if (result.failure != null) {
+                        failureIndex = index
+                    }
+                } else {
+                    pending.addLast(IndexedValue(index, element))
+                }
+            }
+            if (sampling != null && index >= sampling.minArraySize) {
+                // The array is sampled, so only the last elements are still needed
+                while (pending.size > sampling.edgeElements) {
+                    pending.removeFirst()
+                }
+            }
+            result.add(SKIPPED)
+            index++
+        }
+
+        // The pending elements that are sampled after all, failures of earlier elements take precedence
+        for ((pendingIndex, element) in pending) {
+            if (pendingIndex > failureIndex) {
+                break
+            }
+            if (sampling!!.isSampled(pendingIndex, index)) {
+                val failure = checkElement(template.element, element, "$arrayName[$pendingIndex]",
+                        ignored?.child(pendingIndex.toString()))
+                if (failure != null) {
+                    result.failure = failure
+                    break
+                }
+            }
+        }
+        return result
+    }
+
+    /**
+     * Read an array that is matched by a sparse array. Elements at indices that are not referenced are skipped. If
+     * the sparse array has negative indices and no exact size, the last elements are kept in a look-back buffer as
+     * large as the largest negative index, since any of them may turn out to be referenced.
+     *
+     * @param parser  The parser, positioned at the start of the array.
+     * @param sparse  The sparse array.
+     * @param ignored Ignored paths at the position of the array.
+     * @return The array with the referenced elements and all other elements replaced by [SKIPPED].
+     */
+    private fun readSparse(parser: JsonParser, sparse: SparseArray, ignored: PathTrie.Cursor<String>?): JsonNode {
+        val result = NODE_FACTORY.arrayNode()
+        // Negative indices can only be resolved while reading if the size is known
+        val referenced = sparse.referenced()
+        val lookBack = ArrayDeque<IndexedValue<JsonNode>>()
+        var index = 0
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            val childIgnored = ignored?.child(index.toString())
+            if (referenced == null) {
+                // The element may be referenced by a negative index, so it is read completely
+                val element = readValue(parser, null, childIgnored)
+                result.add(if (sparse.elements.containsKey(index)) element else SKIPPED)
+                lookBack.addLast(IndexedValue(index, element))
+                if (lookBack.size > sparse.lookBack) {
+                    lookBack.removeFirst()
+                }
+            } else if (referenced.containsKey(index)) {
+                // Elements referenced by several patterns are read completely
+                result.add(readValue(parser, referenced[index], childIgnored))
+            } else {
+                parser.skipChildren()
+                result.add(SKIPPED)
+            }
+            index++
+        }
+        lookBack.forEach { (lookBackIndex, element) -> result.set(lookBackIndex, element) }
+        return result
+    }
+
+    private fun readArray(parser: JsonParser, pattern: JsonNode?, ignored: PathTrie.Cursor<String>?): JsonNode {
+        val result = NODE_FACTORY.arrayNode()
+        if (pattern != null && !pattern.isArray) {
+            // Type mismatch, the content is irrelevant
+            parser.skipChildren()
+            return result
+        }
+
+        // In random order any pattern element may match any actual element, so there is no guide per element
+        val ordered = pattern != null && !config.randomArrayOrder
+        // Only the elements before the first wildcard are matched by position, see JsonMatcher.validateArrayOrdered.
+        // Unsampled elements of large arrays are not checked.
+        val segments = if (ordered) ArraySegments.of(pattern as ArrayNode) else null
+        val compared = segments?.prefix?.count() ?: pattern?.size()
+        val sampling = config.sampling?.takeIf { ordered && it.isSampling(compared!!) }
+        val segmentReader = segments?.takeIf { it.infixes.isNotEmpty() || !it.suffix.isEmpty() }?.let {
+            SegmentReader(it, attributeName(parser.parsingContext.parent), ignored)
+        }
+        var index = 0
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            val childIgnored = ignored?.child(index.toString())
+            if (!ordered) {
+                result.add(readValue(parser, null, childIgnored))
+            } else if (sampling != null && index < compared!! && !sampling.isSampled(index, compared)) {
+                parser.skipChildren()
+                result.add(SKIPPED)
+            } else if (index < compared!!) {
+                result.add(readValue(parser, pattern!!.get(index), childIgnored))
+            } else if (segmentReader != null) {
+                segmentReader.offer(index, readValue(parser, null, childIgnored))
+                result.add(SKIPPED)
+            } else {
+                // Elements after the pattern elements only count for the size check
+                parser.skipChildren()
+                result.add(SKIPPED)
+            }
+            index++
+        }
+        segmentReader?.finish(result)
+        return result
+    }
+
+    /**
+     * Reads the elements of an array after the first wildcard of its pattern with bounded memory. The last elements
+     * are kept in a look-back buffer as large as the suffix of the pattern, since any of them may turn out to be
+     * matched by the suffix. Elements that leave the buffer are offered to the scan for the infixes. Only the elements
+     * of placed infixes and of the suffix are kept in the result, all others are replaced by [SKIPPED]. Since these
+     * do not match any pattern element, the [JsonMatcher] places the infixes at the same positions.
+     *
+     * @param segments  Segments of the pattern array.
+     * @param arrayName Name of the array (absolute path from root).
+     * @param ignored   Ignored paths at the position of the array.
+     */
+    private inner class SegmentReader(private val segments: ArraySegments, arrayName: String,
+                                      ignored: PathTrie.Cursor<String>?) {
+
+        private val lookBack = ArrayDeque<IndexedValue<JsonNode>>(segments.suffix.count() + 1)
+
+        private val scan = segments.InfixScan { patternIndex, element, index ->
+            checkElement(segments.pattern.get(patternIndex), element, "$arrayName[$index]",
+                    ignored?.child(index.toString())) == null
+        }
+
+        /**
+         * @param index   Index of the next actual element.
+         * @param element The actual element.
+         */
+        fun offer(index: Int, element: JsonNode) {
+            lookBack.addLast(IndexedValue(index, element))
+            if (lookBack.size > segments.suffix.count()) {
+                val (previousIndex, previous) = lookBack.removeFirst()
+                scan.offer(previousIndex, previous)
+            }
+        }
+
+        /**
+         * @param result The array read so far, the kept elements are set at their positions.
+         */
+        fun finish(result: ArrayNode) {
+            scan.placed.forEach { (index, element) -> result.set(index, element) }
+            lookBack.forEach { (index, element) -> result.set(index, element) }
+        }
+    }
+}
+
+/**
+ * Array of elements that were matched against an [ArrayTemplate] while reading. The elements themselves are
+ * replaced by [StreamingReader.SKIPPED].
+ *
+ * @property failure The error of the first element that does not match or null if all elements match.
+ */
+internal class CheckedArrayNode(var failure: AssertionError? = null) : ArrayNode(JsonNodeFactory.instance)
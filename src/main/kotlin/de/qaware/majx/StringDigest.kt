@@ -0,0 +1,85 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.databind.node.TextNode
+import java.io.OutputStream
+import java.io.OutputStreamWriter
+import java.security.DigestOutputStream
+import java.security.MessageDigest
+
+/**
+ * Computes the digests that are used to compare large string values.
+ */
+internal object StringDigest {
+
+    /**
+     * Prefix of the magic value in a pattern that matches a string by its digest, followed by the SHA-256 digest
+     * of the UTF-8 encoded string in hex, e.g. `...sha256:2cf24dba...`.
+     */
+    const val DIGEST_PREFIX = "...sha256:"
+
+    private const val ALGORITHM = "SHA-256"
+
+    /**
+     * @param text The string to hash.
+     * @return The SHA-256 digest of the UTF-8 encoded string in lower case hex.
+     */
+    fun sha256(text: String): String = toHex(MessageDigest.getInstance(ALGORITHM).digest(text.toByteArray()))
+
+    /**
+     * Compute the digest of the string at the current token of the parser without building a [String].
+     *
+     * @param parser The parser, positioned at a string value.
+     * @return The SHA-256 digest of the UTF-8 encoded string in lower case hex.
+     */
+    fun sha256(parser: JsonParser): String {
+        val digest = MessageDigest.getInstance(ALGORITHM)
+        val writer = OutputStreamWriter(DigestOutputStream(NullOutputStream, digest), Charsets.UTF_8)
+        parser.getText(writer)
+        writer.flush()
+        return toHex(digest.digest())
+    }
+
+    private fun toHex(bytes: ByteArray): String {
+        val builder = StringBuilder(bytes.size * 2)
+        bytes.forEach { builder.append(String.format("%02x", it)) }
+        return builder.toString()
+    }
+
+    private object NullOutputStream : OutputStream() {
+        override fun write(b: Int) = Unit
+        override fun write(b: ByteArray, off: Int, len: Int) = Unit
+    }
+}
+
+/**
+ * A large string value of the actual JSON that was read in streaming mode and is represented by its digest only.
+ *
+ * @property digest The SHA-256 digest of the UTF-8 encoded string in lower case hex.
+ * @property length The length of the string in characters.
+ */
+internal class DigestTextNode(val digest: String, val length: Int) :
+        TextNode(StringDigest.DIGEST_PREFIX + digest)
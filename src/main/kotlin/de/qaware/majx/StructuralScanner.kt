@@ -0,0 +1,237 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import java.lang.Long.numberOfTrailingZeros
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Finds the structural positions of a UTF-8 encoded JSON document, in the style of the first stage of simdjson:
+ * the brackets, braces, colons and commas outside of strings, the opening quotes of strings and the first
+ * characters of numbers and literals. The tape builder (see [TapeBuilder]) then moves from position to position
+ * instead of reading the document byte by byte. The contents of strings are validated while scanning: escapes and
+ * unescaped control characters.
+ *
+ * Most bytes of typical documents are within strings or indentation. These are skipped eight bytes at a time: each
+ * 64 bit word is tested at once (SWAR, SIMD within a register) for quotes, backslashes and control characters, and
+ * for spaces.
+ */
+internal object StructuralScanner {
+
+    private const val ONES = 0x0101010101010101L
+
+    private const val LOW7 = 0x7f7f7f7f7f7f7f7fL
+
+    private const val SPACES = 0x2020202020202020L
+
+    private const val WHITESPACE: Byte = 0
+
+    private const val STRUCTURAL: Byte = 1
+
+    private const val QUOTE: Byte = 2
+
+    private const val SCALAR: Byte = 3
+
+    /**
+     * The classes of the bytes outside of strings.
+     */
+    private val CLASSES = ByteArray(256) { c ->
+        when (c.toChar()) {
+            ' ', '\n', '\r', '\t' -> WHITESPACE
+            '{', '}', '[', ']', ':', ',' -> STRUCTURAL
+            '"' -> QUOTE
+            else -> SCALAR
+        }
+    }
+
+    /**
+     * Scan the document.
+     *
+     * @param bytes The document, from index 0 to the limit of the buffer.
+     * @param swar  Whether to skip eight bytes at a time or read one byte at a time.
+     * @return The structural positions in ascending order.
+     * @throws IllegalArgumentException If a string of the document is invalid.
+     */
+    fun scan(bytes: ByteBuffer, swar: Boolean = true): IntArray = Scan(bytes, swar).scan()
+
+    private fun fail(message: String, pos: Int): Nothing =
+            throw IllegalArgumentException("Failed to parse actual as JSON: $message at byte $pos")
+
+    /**
+     * @param c A byte of the document.
+     * @return Whether the byte is part of a number or literal, or an unexpected character.
+     */
+    fun isScalar(c: Int): Boolean = CLASSES[c] == SCALAR
+
+    /**
+     * @param word Eight bytes.
+     * @param c    A byte value.
+     * @return The high bits of the bytes that are equal to the value.
+     */
+    private fun eq(word: Long, c: Char): Long {
+        val t = word xor ONES * c.toLong()
+        return ((t and LOW7) + LOW7 or t or LOW7).inv()
+    }
+
+    /**
+     * @param word Eight bytes.
+     * @param n    A byte value of at most 128.
+     * @return The high bits of the bytes that are less than the value, as unsigned bytes.
+     */
+    private fun lessThan(word: Long, n: Int): Long = ((word and LOW7) + ONES * (0x80 - n) or word).inv() and LOW7.inv()
+
+    /**
+     * Collects the structural positions.
+     *
+     * @property bytes The document.
+     * @property swar  Whether to skip eight bytes at a time.
+     */
+    private class Scan(private val bytes: ByteBuffer, private val swar: Boolean) {
+
+        private val words: ByteBuffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+
+        private val end = bytes.limit()
+
+        private var positions = IntArray(maxOf(16, end / 8))
+
+        private var size = 0
+
+        fun scan(): IntArray {
+            var i = 0
+            var previousScalar = false
+            while (i < end) {
+                val c = byteAt(i)
+                when (CLASSES[c]) {
+                    QUOTE -> {
+                        add(i)
+                        i = skipString(i)
+                        previousScalar = false
+                    }
+                    WHITESPACE -> {
+                        i = if (c == ' '.toInt()) skipSpaces(i + 1) else i + 1
+                        previousScalar = false
+                    }
+                    STRUCTURAL -> {
+                        add(i++)
+                        previousScalar = false
+                    }
+                    else -> {
+                        if (!previousScalar) {
+                            add(i)
+                        }
+                        previousScalar = true
+                        i++
+                    }
+                }
+            }
+            return positions.copyOf(size)
+        }
+
+        private fun byteAt(offset: Int): Int = bytes.get(offset).toInt() and 0xff
+
+        private fun add(pos: Int) {
+            if (size == positions.size) {
+                positions = positions.copyOf(size + (size shr 1))
+            }
+            positions[size++] = pos
+        }
+
+        /**
+         * @param start Offset within a run of spaces.
+         * @return Offset of the first space of the last word of the run, or the start if not skipping words.
+         */
+        private fun skipSpaces(start: Int): Int {
+            var i = start
+            if (swar) {
+                while (i + 8 <= end && words.getLong(i) == SPACES) {
+                    i += 8
+                }
+            }
+            return i
+        }
+
+        /**
+         * @param start Offset within a string.
+         * @return Offset of the first quote, backslash or control character of the string from the start on, or
+         * an offset before it if it is in the last seven bytes of the document or not skipping words.
+         */
+        private fun skipPlain(start: Int): Int {
+            var i = start
+            if (swar) {
+                while (i + 8 <= end) {
+                    val word = words.getLong(i)
+                    val special = eq(word, '"') or eq(word, '\\') or lessThan(word, 0x20)
+                    if (special != 0L) {
+                        return i + (numberOfTrailingZeros(special) ushr 3)
+                    }
+                    i += 8
+                }
+            }
+            return i
+        }
+
+        /**
+         * @param start Offset of the opening quote.
+         * @return Offset after the closing quote.
+         */
+        private fun skipString(start: Int): Int {
+            var i = start + 1
+            while (true) {
+                i = skipPlain(i)
+                if (i >= end) {
+                    fail("Unterminated string", start)
+                }
+                val c = byteAt(i)
+                when {
+                    c == '"'.toInt() -> return i + 1
+                    c == '\\'.toInt() -> {
+                        validateEscape(i)
+                        i += 2
+                    }
+                    c < 0x20 -> fail("Unescaped control character in string", i)
+                    else -> i++
+                }
+            }
+        }
+
+        /**
+         * @param start Offset of the backslash of an escape in a string.
+         */
+        private fun validateEscape(start: Int) {
+            if (start + 1 >= end) {
+                fail("Unterminated string", start)
+            }
+            when (byteAt(start + 1).toChar()) {
+                '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> Unit
+                'u' -> for (i in start + 2 until start + 6) {
+                    if (i >= end || Character.digit(byteAt(i), 16) < 0) {
+                        fail("Invalid unicode escape", start)
+                    }
+                }
+                else -> fail("Invalid escape", start)
+            }
+        }
+    }
+}
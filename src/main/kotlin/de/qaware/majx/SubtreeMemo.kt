@@ -0,0 +1,112 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import java.util.IdentityHashMap
+
+/**
+ * Results of matches of actual containers against patterns, keyed by the identity of the nodes.
+ *
+ * A result is only valid as long as the actual container and its descendants are not changed, so changed
+ * containers have to be invalidated, see [invalidate]. Results also hold the attribute name the container was
+ * matched at, since error messages and ignored paths depend on it. The elements of large array templates are matched
+ * in parallel, so the results are synchronized.
+ *
+ * @param maxEntries Maximum number of results that are kept. Further results are not kept once the limit is
+ *                   reached.
+ */
+internal class SubtreeMemo(private val maxEntries: Int = Int.MAX_VALUE) {
+
+    /**
+     * Result of a match of an actual container against a pattern.
+     *
+     * @property attributeName Name of the actual container (absolute path from root) when it was matched.
+     * @property error         The error if the container does not match or null if it matches.
+     */
+    private class Result(val attributeName: String, val error: AssertionError?)
+
+    private val results = IdentityHashMap<JsonNode, IdentityHashMap<JsonNode, Result>>()
+
+    private var entries = 0
+
+    /**
+     * Validate an actual container against a pattern, using the known result if there is one.
+     *
+     * @param pattern       Pattern node.
+     * @param actual        Actual container.
+     * @param attributeName Name of the actual container (absolute path from root).
+     * @param validate      Validates the container if there is no known result.
+     * @throws AssertionError If the container does not match.
+     */
+    fun validate(pattern: JsonNode, actual: JsonNode, attributeName: String, validate: () -> Unit) {
+        val known = synchronized(results) { results[actual]?.get(pattern) }
+        if (known != null && known.attributeName == attributeName) {
+            known.error?.let { throw it }
+            return
+        }
+        val error = try {
+            validate()
+            null
+        } catch (ex: MatchBudgetExceededError) {
+            throw ex
+        } catch (ex: AssertionError) {
+            ex
+        }
+        synchronized(results) {
+            val result = Result(attributeName, error)
+            val byPattern = results[actual]
+            if (byPattern != null && byPattern.containsKey(pattern)) {
+                byPattern[pattern] = result
+            } else if (entries < maxEntries) {
+                results.getOrPut(actual) { IdentityHashMap() }[pattern] = result
+                entries++
+            }
+        }
+        error?.let { throw it }
+    }
+
+    /**
+     * Forget the results of an actual container, e.g. because one of its descendants changed.
+     *
+     * @param actual Actual container.
+     */
+    fun invalidate(actual: JsonNode) {
+        synchronized(results) {
+            results.remove(actual)?.let { entries -= it.size }
+        }
+    }
+
+    /**
+     * Forget the results of an actual node and all its descendants, e.g. because it was removed from the document.
+     *
+     * @param actual Actual node.
+     */
+    fun invalidateAll(actual: JsonNode) {
+        if (actual.isContainerNode) {
+            invalidate(actual)
+            actual.forEach { invalidateAll(it) }
+        }
+    }
+}
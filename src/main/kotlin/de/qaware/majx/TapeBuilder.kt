@@ -0,0 +1,248 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import java.nio.ByteBuffer
+
+/**
+ * Builds the tape of a UTF-8 encoded JSON document, see [JsonTape]. The builder moves from structural position to
+ * structural position (see [StructuralScanner]), so strings and whitespace are not read again. The document is
+ * validated while building, so that the values can be decoded later without errors. Nested containers are tracked
+ * in a stack instead of by recursion, so that deeply nested documents do not overflow the call stack.
+ *
+ * @property bytes The document, from index 0 to the limit of the buffer.
+ */
+internal class TapeBuilder(private val bytes: ByteBuffer) {
+
+    private val end = bytes.limit()
+
+    private val positions = StructuralScanner.scan(bytes)
+
+    /**
+     * Index of the next structural position.
+     */
+    private var next = 0
+
+    /**
+     * The current structural position, the end of the document after the last one.
+     */
+    private var pos = 0
+
+    private var tape = IntArray(maxOf(16, positions.size + positions.size / 4))
+
+    private var size = 0
+
+    /**
+     * Tape indices of the open containers.
+     */
+    private var stack = IntArray(16)
+
+    private var depth = 0
+
+    /**
+     * @return The tape of the document.
+     * @throws IllegalArgumentException If the document is not valid JSON.
+     */
+    fun build(): IntArray {
+        advance()
+        value@ while (true) {
+            when (peek().toChar()) {
+                '{' -> {
+                    open()
+                    if (peek() != '}'.toInt()) {
+                        member()
+                        continue@value
+                    }
+                    close()
+                }
+                '[' -> {
+                    open()
+                    if (peek() != ']'.toInt()) {
+                        continue@value
+                    }
+                    close()
+                }
+                '"' -> {
+                    // The string was validated by the scanner
+                    add(pos)
+                    advance()
+                }
+                't' -> literal("true")
+                'f' -> literal("false")
+                'n' -> literal("null")
+                '-', in '0'..'9' -> {
+                    add(pos)
+                    endScalar(skipNumber(pos))
+                }
+                else -> fail("Unexpected character '${peek().toChar()}'")
+            }
+            // After a value, close the completed containers and continue with the next property or element
+            while (depth > 0) {
+                val isObject = byteAt(tape[stack[depth - 1]]) == '{'.toInt()
+                when (peek()) {
+                    ','.toInt() -> {
+                        advance()
+                        if (isObject) {
+                            member()
+                        }
+                        continue@value
+                    }
+                    (if (isObject) '}' else ']').toInt() -> close()
+                    else -> fail("Expected ',' or '${if (isObject) '}' else ']'}'")
+                }
+            }
+            break
+        }
+        if (pos < end) {
+            fail("Unexpected content after the document")
+        }
+        return tape.copyOf(size)
+    }
+
+    private fun byteAt(offset: Int): Int = bytes.get(offset).toInt() and 0xff
+
+    private fun advance() {
+        pos = if (next < positions.size) positions[next++] else end
+    }
+
+    /**
+     * @return The byte at the current position.
+     * @throws IllegalArgumentException At the end of the document.
+     */
+    private fun peek(): Int {
+        if (pos >= end) {
+            fail("Unexpected end of input")
+        }
+        return byteAt(pos)
+    }
+
+    private fun fail(message: String): Nothing =
+            throw IllegalArgumentException("Failed to parse actual as JSON: $message at byte $pos")
+
+    private fun add(entry: Int) {
+        if (size == tape.size) {
+            tape = tape.copyOf(tape.size + (tape.size shr 1))
+        }
+        tape[size++] = entry
+    }
+
+    private fun open() {
+        if (depth == stack.size) {
+            stack = stack.copyOf(depth * 2)
+        }
+        stack[depth++] = size
+        add(pos)
+        // The tape index after the container, set when it is closed
+        add(0)
+        advance()
+    }
+
+    private fun close() {
+        tape[stack[--depth] + 1] = size
+        advance()
+    }
+
+    /**
+     * Add the name of a property and move to its value.
+     */
+    private fun member() {
+        if (peek() != '"'.toInt()) {
+            fail("Expected property name")
+        }
+        add(pos)
+        advance()
+        if (peek() != ':'.toInt()) {
+            fail("Expected ':'")
+        }
+        advance()
+    }
+
+    private fun literal(text: String) {
+        for (i in text.indices) {
+            if (pos + i >= end || byteAt(pos + i) != text[i].toInt()) {
+                fail("Expected '$text'")
+            }
+        }
+        add(pos)
+        endScalar(pos + text.length)
+    }
+
+    /**
+     * Move to the next structural position after a number or literal.
+     *
+     * @param scalarEnd Offset after the number or literal.
+     * @throws IllegalArgumentException If the number or literal is followed by other characters.
+     */
+    private fun endScalar(scalarEnd: Int) {
+        if (scalarEnd < end && StructuralScanner.isScalar(byteAt(scalarEnd))) {
+            pos = scalarEnd
+            fail("Unexpected character '${byteAt(scalarEnd).toChar()}'")
+        }
+        advance()
+    }
+
+    /**
+     * @param start Offset of the first character of the number.
+     * @return Offset after the number.
+     */
+    private fun skipNumber(start: Int): Int {
+        var i = start
+        if (byteAt(i) == '-'.toInt()) {
+            i++
+        }
+        if (i < end && byteAt(i) == '0'.toInt()) {
+            i++
+        } else {
+            i = skipDigits(i)
+        }
+        if (i < end && byteAt(i) == '.'.toInt()) {
+            i = skipDigits(i + 1)
+        }
+        if (i < end && (byteAt(i) == 'e'.toInt() || byteAt(i) == 'E'.toInt())) {
+            i++
+            if (i < end && (byteAt(i) == '+'.toInt() || byteAt(i) == '-'.toInt())) {
+                i++
+            }
+            i = skipDigits(i)
+        }
+        return i
+    }
+
+    /**
+     * @param start Offset of the first digit.
+     * @return Offset after the digits.
+     * @throws IllegalArgumentException If there is no digit.
+     */
+    private fun skipDigits(start: Int): Int {
+        var i = start
+        while (i < end && byteAt(i) in '0'.toInt()..'9'.toInt()) {
+            i++
+        }
+        if (i == start) {
+            pos = start
+            fail("Invalid number")
+        }
+        return i
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.JsonNodeType
+import com.fasterxml.jackson.databind.node.ObjectNode
+import java.math.BigDecimal
+import java.math.BigInteger
+import java.util.AbstractList
+import java.util.AbstractMap
+
+/**
+ * Creates the nodes of a view of a tree as [JsonNode] tree, see [viewAsJsonNode].
+ *
+ * Objects and arrays are Jackson containers whose children are a map or list that creates the view nodes of the
+ * children when they are first read, so the matcher and the error output work on them unchanged.
+ *
+ * @property adapter The adapter for the tree.
+ * @param T          Type of the nodes of the tree.
+ */
+internal class TreeView<T>(private val adapter: JsonTreeAdapter<T>) {
+
+    /**
+     * Companion object provides support methods for [TreeView].
+     */
+    companion object {
+
+        private val NODE_FACTORY = JsonNodeFactory.instance
+
+        /**
+         * @param number A number of any type.
+         * @return The number node that Jackson would have parsed for the number.
+         */
+        private fun numberNode(number: Number): JsonNode = when (number) {
+            is Int, is Short, is Byte, is Long -> integerNode(BigInteger.valueOf(number.toLong()))
+            is BigInteger -> integerNode(number)
+            is Double -> NODE_FACTORY.numberNode(number)
+            is Float -> NODE_FACTORY.numberNode(number)
+            is BigDecimal -> NODE_FACTORY.numberNode(number)
+            else -> {
+                // E.g. lazily parsed numbers, which are represented by their text
+                val text = number.toString()
+                if (text.any { it == '.' || it == 'e' || it == 'E' }) {
+                    NODE_FACTORY.numberNode(text.toDouble())
+                } else {
+                    integerNode(BigInteger(text))
+                }
+            }
+        }
+
+        private fun integerNode(value: BigInteger): JsonNode = when (value.bitLength()) {
+            in 0..31 -> NODE_FACTORY.numberNode(value.toInt())
+            in 32..63 -> NODE_FACTORY.numberNode(value.toLong())
+            else -> NODE_FACTORY.numberNode(value)
+        }
+    }
+
+    /**
+     * @param node A node of the tree.
+     * @return The view of the node.
+     */
+    fun view(node: T): JsonNode = when (adapter.nodeType(node)) {
+        JsonNodeType.OBJECT -> ObjectNode(NODE_FACTORY, PropertiesView(node))
+        JsonNodeType.ARRAY -> ArrayNode(NODE_FACTORY, ElementsView(node))
+        JsonNodeType.STRING -> NODE_FACTORY.textNode(adapter.textValue(node))
+        JsonNodeType.NUMBER -> numberNode(adapter.numberValue(node))
+        JsonNodeType.BOOLEAN -> NODE_FACTORY.booleanNode(adapter.booleanValue(node))
+        JsonNodeType.NULL -> NODE_FACTORY.nullNode()
+        else -> throw IllegalArgumentException("Unsupported node type ${adapter.nodeType(node)}")
+    }
+
+    /**
+     * The properties of an object node, viewed when they are first read.
+     *
+     * @property node The object node.
+     */
+    private inner class PropertiesView(private val node: T) : AbstractMap<String, JsonNode>() {
+
+        private val views = HashMap<String, JsonNode>()
+
+        override fun get(key: String): JsonNode? {
+            if (!adapter.hasProperty(node, key)) {
+                return null
+            }
+            return views.getOrPut(key) { view(adapter.property(node, key)) }
+        }
+
+        override fun containsKey(key: String): Boolean = adapter.hasProperty(node, key)
+
+        override val size: Int
+            get() = adapter.size(node)
+
+        override val entries: MutableSet<MutableMap.MutableEntry<String, JsonNode>>
+            get() = object : java.util.AbstractSet<MutableMap.MutableEntry<String, JsonNode>>() {
+
+                override val size: Int
+                    get() = adapter.size(node)
+
+                override fun iterator(): MutableIterator<MutableMap.MutableEntry<String, JsonNode>> {
+                    val names = adapter.propertyNames(node)
+                    return object : MutableIterator<MutableMap.MutableEntry<String, JsonNode>> {
+
+                        override fun hasNext(): Boolean = names.hasNext()
+
+                        override fun next(): MutableMap.MutableEntry<String, JsonNode> {
+                            val name = names.next()
+                            return SimpleImmutableEntry(name, get(name))
+                        }
+
+                        override fun remove() = throw UnsupportedOperationException("Views are read-only")
+                    }
+                }
+            }
+    }
+
+    /**
+     * The elements of an array node, viewed when they are first read.
+     *
+     * @property node The array node.
+     */
+    private inner class ElementsView(private val node: T) : AbstractList<JsonNode>() {
+
+        private val views = arrayOfNulls<JsonNode>(adapter.size(node))
+
+        override fun get(index: Int): JsonNode = views[index] ?: view(adapter.element(node, index)).also {
+            views[index] = it
+        }
+
+        override val size: Int
+            get() = views.size
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.gson
+
+import com.fasterxml.jackson.databind.node.JsonNodeType
+import com.google.gson.JsonElement
+import de.qaware.majx.JsonTreeAdapter
+
+/**
+ * Adapter for Gson trees. Gson is an optional dependency of majx, so this adapter requires Gson on the class path.
+ */
+object GsonTreeAdapter : JsonTreeAdapter<JsonElement> {
+
+    override fun nodeType(node: JsonElement): JsonNodeType = when {
+        node.isJsonObject -> JsonNodeType.OBJECT
+        node.isJsonArray -> JsonNodeType.ARRAY
+        node.isJsonNull -> JsonNodeType.NULL
+        node.asJsonPrimitive.isString -> JsonNodeType.STRING
+        node.asJsonPrimitive.isNumber -> JsonNodeType.NUMBER
+        else -> JsonNodeType.BOOLEAN
+    }
+
+    override fun size(node: JsonElement): Int =
+            if (node.isJsonObject) node.asJsonObject.size() else node.asJsonArray.size()
+
+    override fun propertyNames(node: JsonElement): Iterator<String> =
+            node.asJsonObject.entrySet().asSequence().map { it.key }.iterator()
+
+    override fun hasProperty(node: JsonElement, name: String): Boolean = node.asJsonObject.has(name)
+
+    override fun property(node: JsonElement, name: String): JsonElement = node.asJsonObject.get(name)
+
+    override fun element(node: JsonElement, index: Int): JsonElement = node.asJsonArray.get(index)
+
+    override fun textValue(node: JsonElement): String = node.asString
+
+    override fun numberValue(node: JsonElement): Number = node.asNumber
+
+    override fun booleanValue(node: JsonElement): Boolean = node.asBoolean
+}
@@ -0,0 +1,150 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.junit5
+
+import com.fasterxml.jackson.databind.JsonNode
+import org.junit.jupiter.api.extension.BeforeAllCallback
+import org.junit.jupiter.api.extension.ExtensionConfigurationException
+import org.junit.jupiter.api.extension.ExtensionContext
+import org.junit.jupiter.api.extension.ParameterContext
+import org.junit.jupiter.api.extension.ParameterResolutionException
+import org.junit.jupiter.api.extension.ParameterResolver
+import org.junit.jupiter.api.extension.TestInstancePostProcessor
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+
+/**
+ * JUnit Jupiter extension that injects the patterns of class path resources into the fields and parameters that are
+ * annotated with [JsonPattern]:
+ *
+ * ```java
+ * @ExtendWith(MajxExtension.class)
+ * class OrderTest {
+ *     @JsonPattern("patterns/order.json")
+ *     JsonNode orderPattern;
+ *
+ *     @Test
+ *     void testCustomer(@JsonPattern("patterns/customer.json") JsonNode customerPattern) { ... }
+ * }
+ * ```
+ *
+ * When a test class starts, all patterns that its fields and test method parameters refer to start loading and parsing
+ * in the background. Injecting a pattern waits until this pattern is loaded, so a test waits for the patterns it needs,
+ * but not for the others. The patterns are kept for the whole test run and shared by all test classes, also when the
+ * tests are executed in parallel, so they must not be changed.
+ *
+ * JUnit Jupiter is an optional dependency of majx, so the extension requires it on the class path.
+ */
+class MajxExtension : BeforeAllCallback, TestInstancePostProcessor, ParameterResolver {
+
+    /**
+     * Companion object provides support methods for [MajxExtension].
+     */
+    companion object {
+
+        private val NAMESPACE = ExtensionContext.Namespace.create(MajxExtension::class.java)
+
+        /**
+         * @param context The extension context.
+         * @return The patterns of the test run, which are shared by all test classes.
+         */
+        private fun patterns(context: ExtensionContext): PatternCache = context.root.getStore(NAMESPACE)
+                .getOrComputeIfAbsent(PatternCache::class.java, { PatternCache() }, PatternCache::class.java)
+
+        /**
+         * @param testClass The test class.
+         * @return The classes of the test class hierarchy, the test class first.
+         */
+        private fun hierarchy(testClass: Class<*>): Sequence<Class<*>> =
+                generateSequence(testClass) { it.superclass }.takeWhile { it != Any::class.java }
+
+        /**
+         * @param testClass The test class.
+         * @return The fields of the test class hierarchy that are annotated with [JsonPattern].
+         */
+        private fun patternFields(testClass: Class<*>): Sequence<Field> =
+                hierarchy(testClass).flatMap { it.declaredFields.asSequence() }
+                        .filter { it.isAnnotationPresent(JsonPattern::class.java) }
+
+        /**
+         * @param testClass The test class.
+         * @return The resource paths of all patterns of the fields and method parameters of the test class hierarchy.
+         */
+        private fun patternPaths(testClass: Class<*>): Sequence<String> =
+                patternFields(testClass).map { it.getAnnotation(JsonPattern::class.java).value } +
+                        hierarchy(testClass).flatMap { it.declaredMethods.asSequence() }
+                                .flatMap { it.parameters.asSequence() }
+                                .mapNotNull { it.getAnnotation(JsonPattern::class.java)?.value }
+    }
+
+    override fun beforeAll(context: ExtensionContext) {
+        val testClass = context.requiredTestClass
+        val patterns = patterns(context)
+        patternPaths(testClass).forEach { patterns.preload(testClass.classLoader, it) }
+        patternFields(testClass).filter { Modifier.isStatic(it.modifiers) }.forEach { inject(it, null, context) }
+    }
+
+    override fun postProcessTestInstance(testInstance: Any, context: ExtensionContext) {
+        patternFields(testInstance.javaClass).filter { !Modifier.isStatic(it.modifiers) }
+                .forEach { inject(it, testInstance, context) }
+    }
+
+    override fun supportsParameter(parameterContext: ParameterContext, extensionContext: ExtensionContext): Boolean =
+            parameterContext.isAnnotated(JsonPattern::class.java)
+
+    override fun resolveParameter(parameterContext: ParameterContext, extensionContext: ExtensionContext): Any {
+        val parameter = parameterContext.parameter
+        val path = parameterContext.findAnnotation(JsonPattern::class.java).get().value
+        if (!parameter.type.isAssignableFrom(JsonNode::class.java)) {
+            throw ParameterResolutionException("Parameter $parameter annotated with @JsonPattern must be a JsonNode")
+        }
+        return try {
+            patterns(extensionContext).get(extensionContext.requiredTestClass.classLoader, path)
+        } catch (e: IllegalArgumentException) {
+            throw ParameterResolutionException("Failed to load pattern '$path' for parameter $parameter", e)
+        }
+    }
+
+    /**
+     * Inject a pattern into a field, waiting until it is loaded.
+     *
+     * @param field    The field annotated with [JsonPattern].
+     * @param instance The test instance or null for a static field.
+     * @param context  The extension context.
+     */
+    private fun inject(field: Field, instance: Any?, context: ExtensionContext) {
+        val path = field.getAnnotation(JsonPattern::class.java).value
+        if (!field.type.isAssignableFrom(JsonNode::class.java) || Modifier.isFinal(field.modifiers)) {
+            throw ExtensionConfigurationException("Field $field annotated with @JsonPattern must be a non-final " +
+                    "JsonNode")
+        }
+        val pattern = try {
+            patterns(context).get(field.declaringClass.classLoader, path)
+        } catch (e: IllegalArgumentException) {
+            throw ExtensionConfigurationException("Failed to load pattern '$path' for field $field", e)
+        }
+        field.isAccessible = true
+        field.set(instance, pattern)
+    }
+}
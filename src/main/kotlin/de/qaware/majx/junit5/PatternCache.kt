@@ -0,0 +1,87 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.junit5
+
+import com.fasterxml.jackson.databind.JsonNode
+import de.qaware.majx.parseAndValidate
+import java.io.IOException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.function.Supplier
+
+/**
+ * The patterns of class path resources, which are loaded and parsed in the background, see [MajxExtension].
+ *
+ * Each resource is loaded once, the parsed patterns are shared by all threads and must not be changed. The patterns
+ * are identified by their resource path, so the cache is meant for the resources of one class path. A failed load is
+ * kept, so it fails every test that needs the pattern.
+ *
+ * @param executor The executor the patterns are loaded on.
+ */
+internal class PatternCache(private val executor: Executor = ForkJoinPool.commonPool()) {
+
+    private val patterns = ConcurrentHashMap<String, CompletableFuture<JsonNode>>()
+
+    /**
+     * Start loading a pattern unless it is already loaded or being loaded.
+     *
+     * @param classLoader The class loader of the resource.
+     * @param path        The path of the resource, relative to the root of the class path.
+     */
+    fun preload(classLoader: ClassLoader, path: String) {
+        load(classLoader, path)
+    }
+
+    /**
+     * Get a pattern, waiting until it is loaded.
+     *
+     * @param classLoader The class loader of the resource.
+     * @param path        The path of the resource, relative to the root of the class path.
+     * @return The pattern.
+     * @throws IllegalArgumentException If the resource does not exist or cannot be parsed as JSON.
+     */
+    fun get(classLoader: ClassLoader, path: String): JsonNode = try {
+        load(classLoader, path).join()
+    } catch (e: CompletionException) {
+        throw e.cause ?: e
+    }
+
+    private fun load(classLoader: ClassLoader, path: String): CompletableFuture<JsonNode> =
+            patterns.computeIfAbsent(path.removePrefix("/")) { resource ->
+                CompletableFuture.supplyAsync(Supplier { read(classLoader, resource) }, executor)
+            }
+
+    private fun read(classLoader: ClassLoader, resource: String): JsonNode {
+        val url = requireNotNull(classLoader.getResource(resource)) { "Pattern resource '$resource' not found" }
+        val text = try {
+            url.readText(Charsets.UTF_8)
+        } catch (e: IOException) {
+            throw IllegalArgumentException("Failed to read pattern resource '$resource'", e)
+        }
+        return parseAndValidate(text, "pattern '$resource'")
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.reactive
+
+import com.fasterxml.jackson.databind.JsonNode
+
+/**
+ * The result of matching one document of a stream against a pattern, see [MatchingProcessor].
+ *
+ * @property index  Index of the document in the stream, starting at 0.
+ * @property actual The document.
+ * @property error  The error if the document does not match the pattern, null if it matches.
+ */
+class MatchResult(val index: Long, val actual: JsonNode, val error: AssertionError?) {
+
+    /**
+     * Whether the document matches the pattern.
+     */
+    val isMatch: Boolean
+        get() = error == null
+
+    override fun toString(): String = if (isMatch) "Document $index matches" else "Document $index: ${error?.message}"
+}
@@ -0,0 +1,298 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.reactive
+
+import com.fasterxml.jackson.databind.JsonNode
+import de.qaware.majx.DefaultMatcherConfig
+import de.qaware.majx.JsonMatcher
+import de.qaware.majx.MatcherConfig
+import de.qaware.majx.parseAndValidate
+import org.reactivestreams.Processor
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * A Reactive Streams processor that matches each document of a stream against a pattern and publishes a
+ * [MatchResult] per document to a single subscriber.
+ *
+ * The processor requests at most [prefetch] documents from the upstream publisher ahead of the results that were
+ * published, and requests more when three quarters of them are consumed. So the memory it uses is bounded even for
+ * unbounded streams, and a slow subscriber slows down the publisher. The documents are matched one after the other on
+ * the [executor] (by default the common fork join pool), each with its own matcher, so a result does not depend on
+ * the matches of other documents. An error of the publisher is published after the results of all documents received
+ * before. A pattern that cannot be evaluated, e.g. because of an invalid mustache expression, cancels the publisher
+ * and is published as error.
+ *
+ * Reactive Streams is an optional dependency of majx, so the processor requires it on the class path. With Java 9 or
+ * later, `org.reactivestreams.FlowAdapters` converts it to and from the `java.util.concurrent.Flow` interfaces.
+ *
+ * @param pattern       The pattern the documents are matched against.
+ * @param reason        The error message to prepend to the JSON matcher error message if a document does not match.
+ * @param mustacheScope The scope from which the mustache parser reads it variables. May be a map or a POJO.
+ * @param config        The config that controls certain matcher aspects.
+ * @param executor      The executor the documents are matched on.
+ * @param prefetch      The maximum number of documents requested from the publisher ahead of the published results.
+ * @constructor Creates a new [MatchingProcessor] for the given [pattern].
+ */
+class MatchingProcessor @JvmOverloads constructor(private val pattern: JsonNode,
+                                                  private val reason: String? = null,
+                                                  private val mustacheScope: Any? = null,
+                                                  private val config: MatcherConfig = DefaultMatcherConfig,
+                                                  private val executor: Executor = ForkJoinPool.commonPool(),
+                                                  private val prefetch: Int = DEFAULT_PREFETCH) :
+        Processor<JsonNode, MatchResult> {
+
+    /**
+     * Companion object provides factory methods for [MatchingProcessor].
+     */
+    companion object {
+
+        /**
+         * Default for the maximum number of documents requested ahead of the published results.
+         */
+        const val DEFAULT_PREFETCH = 16
+
+        /**
+         * Create a matching processor from a pattern given as JSON string.
+         *
+         * @param pattern The pattern JSON string.
+         * @return The new matching processor.
+         * @throws IllegalArgumentException If the pattern cannot be parsed as JSON.
+         */
+        @JvmStatic
+        fun of(pattern: String): MatchingProcessor = MatchingProcessor(parseAndValidate(pattern, "pattern"))
+    }
+
+    init {
+        require(prefetch > 0) { "Prefetch must be positive but was $prefetch" }
+    }
+
+    /**
+     * Number of consumed documents after which more documents are requested from the publisher.
+     */
+    private val limit = prefetch - (prefetch shr 2)
+
+    private val queue = ConcurrentLinkedQueue<JsonNode>()
+    private val upstream = AtomicReference<Subscription>()
+    private val downstream = AtomicReference<Subscriber<in MatchResult>>()
+    private val requested = AtomicLong()
+
+    /**
+     * Number of drain requests that are not processed yet. Only the thread that increments it from 0 drains.
+     */
+    private val work = AtomicInteger()
+
+    @Volatile
+    private var subscribed = false
+
+    @Volatile
+    private var done = false
+
+    @Volatile
+    private var cancelled = false
+
+    @Volatile
+    private var upstreamError: Throwable? = null
+
+    @Volatile
+    private var downstreamError: Throwable? = null
+
+    // Only accessed while draining
+    private var index = 0L
+    private var consumed = 0
+    private var terminated = false
+
+    override fun subscribe(subscriber: Subscriber<in MatchResult>) {
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(object : Subscription {
+                override fun request(n: Long) = Unit
+                override fun cancel() = Unit
+            })
+            subscriber.onError(IllegalStateException("A matching processor supports only one subscriber"))
+            return
+        }
+        subscriber.onSubscribe(object : Subscription {
+            override fun request(n: Long) = this@MatchingProcessor.request(n)
+            override fun cancel() = this@MatchingProcessor.cancel()
+        })
+        subscribed = true
+        drain()
+    }
+
+    override fun onSubscribe(subscription: Subscription) {
+        if (cancelled || !upstream.compareAndSet(null, subscription)) {
+            subscription.cancel()
+            return
+        }
+        subscription.request(prefetch.toLong())
+    }
+
+    override fun onNext(document: JsonNode) {
+        if (!done && !cancelled) {
+            queue.offer(document)
+            drain()
+        }
+    }
+
+    override fun onError(throwable: Throwable) {
+        upstreamError = throwable
+        done = true
+        drain()
+    }
+
+    override fun onComplete() {
+        done = true
+        drain()
+    }
+
+    private fun request(n: Long) {
+        if (n <= 0) {
+            downstreamError = IllegalArgumentException("Requested number of results must be positive but was $n")
+            cancelUpstream()
+        } else {
+            requested.getAndUpdate { current -> if (current + n < 0) Long.MAX_VALUE else current + n }
+        }
+        drain()
+    }
+
+    private fun cancel() {
+        cancelled = true
+        cancelUpstream()
+        drain()
+    }
+
+    private fun cancelUpstream() {
+        cancelled = true
+        upstream.get()?.cancel()
+    }
+
+    /**
+     * Schedule draining the received documents on the executor unless it is already scheduled.
+     */
+    private fun drain() {
+        if (work.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drainLoop)
+            } catch (e: RejectedExecutionException) {
+                downstreamError = e
+                cancelUpstream()
+                drainLoop()
+            }
+        }
+    }
+
+    /**
+     * Match the received documents as far as results are requested and publish their results and the termination.
+     */
+    private fun drainLoop() {
+        var missed = 1
+        while (true) {
+            val subscriber = if (subscribed) downstream.get() else null
+            if (terminated || subscriber == null) {
+                if (terminated) {
+                    queue.clear()
+                }
+            } else {
+                drainTo(subscriber)
+            }
+            missed = work.addAndGet(-missed)
+            if (missed == 0) {
+                return
+            }
+        }
+    }
+
+    private fun drainTo(subscriber: Subscriber<in MatchResult>) {
+        val failure = downstreamError
+        if (failure != null) {
+            terminate(subscriber, failure)
+            return
+        }
+        val demand = requested.get()
+        var emitted = 0L
+        while (emitted != demand && !cancelled) {
+            val document = queue.poll() ?: break
+            val result = try {
+                match(document)
+            } catch (e: RuntimeException) {
+                cancelUpstream()
+                terminate(subscriber, e)
+                return
+            }
+            subscriber.onNext(result)
+            emitted++
+            requestMore()
+        }
+        if (emitted != 0L && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted)
+        }
+        if (cancelled) {
+            terminated = true
+            queue.clear()
+        } else if (done && queue.isEmpty()) {
+            terminate(subscriber, upstreamError)
+        }
+    }
+
+    /**
+     * Match a document with its own matcher, so that its result (including the diagnostics of its error) does not
+     * depend on the state of the matches of other documents.
+     */
+    private fun match(document: JsonNode): MatchResult {
+        val error = try {
+            JsonMatcher(config, mustacheScope).assertMatches(reason, pattern, document)
+            null
+        } catch (e: AssertionError) {
+            e
+        }
+        return MatchResult(index++, document, error)
+    }
+
+    /**
+     * Request the next documents from the publisher after a document was consumed, once enough were consumed.
+     */
+    private fun requestMore() {
+        if (++consumed == limit) {
+            consumed = 0
+            upstream.get()?.request(limit.toLong())
+        }
+    }
+
+    private fun terminate(subscriber: Subscriber<in MatchResult>, error: Throwable?) {
+        terminated = true
+        queue.clear()
+        if (error == null) {
+            subscriber.onComplete()
+        } else {
+            subscriber.onError(error)
+        }
+    }
+}
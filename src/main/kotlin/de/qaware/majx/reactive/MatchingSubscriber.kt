@@ -0,0 +1,145 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.reactive
+
+import com.fasterxml.jackson.databind.JsonNode
+import de.qaware.majx.DefaultMatcherConfig
+import de.qaware.majx.MatcherConfig
+import de.qaware.majx.parseAndValidate
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * A Reactive Streams subscriber that asserts that all documents of a stream match a pattern, without collecting the
+ * stream first.
+ *
+ * The documents are matched by a [MatchingProcessor], so the subscriber requests at most [prefetch] documents ahead
+ * and matches them on the [executor]. The first document that does not match cancels the subscription.
+ *
+ * @param pattern       The pattern the documents are matched against.
+ * @param reason        The error message to prepend to the JSON matcher error message if a document does not match.
+ * @param mustacheScope The scope from which the mustache parser reads it variables. May be a map or a POJO.
+ * @param config        The config that controls certain matcher aspects.
+ * @param executor      The executor the documents are matched on.
+ * @param prefetch      The maximum number of documents requested from the publisher ahead of the matched ones.
+ * @constructor Creates a new [MatchingSubscriber] for the given [pattern].
+ */
+class MatchingSubscriber @JvmOverloads constructor(pattern: JsonNode,
+                                                   reason: String? = null,
+                                                   mustacheScope: Any? = null,
+                                                   config: MatcherConfig = DefaultMatcherConfig,
+                                                   executor: Executor = ForkJoinPool.commonPool(),
+                                                   prefetch: Int = MatchingProcessor.DEFAULT_PREFETCH) :
+        Subscriber<JsonNode> {
+
+    /**
+     * Companion object provides factory methods for [MatchingSubscriber].
+     */
+    companion object {
+
+        /**
+         * Create a matching subscriber from a pattern given as JSON string.
+         *
+         * @param pattern The pattern JSON string.
+         * @return The new matching subscriber.
+         * @throws IllegalArgumentException If the pattern cannot be parsed as JSON.
+         */
+        @JvmStatic
+        fun of(pattern: String): MatchingSubscriber = MatchingSubscriber(parseAndValidate(pattern, "pattern"))
+    }
+
+    private val processor = MatchingProcessor(pattern, reason, mustacheScope, config, executor, prefetch)
+
+    private val result = CompletableFuture<Long>()
+
+    /**
+     * Completes with the number of documents when the stream completed and all documents matched. Completes
+     * exceptionally with the error of the first document that does not match or with the error of the publisher.
+     */
+    val completion: CompletionStage<Long>
+        get() = result
+
+    init {
+        processor.subscribe(object : Subscriber<MatchResult> {
+
+            private lateinit var subscription: Subscription
+
+            private var count = 0L
+
+            override fun onSubscribe(subscription: Subscription) {
+                this.subscription = subscription
+                subscription.request(Long.MAX_VALUE)
+            }
+
+            override fun onNext(matchResult: MatchResult) {
+                if (matchResult.isMatch) {
+                    count++
+                } else {
+                    subscription.cancel()
+                    result.completeExceptionally(matchResult.error)
+                }
+            }
+
+            override fun onError(throwable: Throwable) {
+                result.completeExceptionally(throwable)
+            }
+
+            override fun onComplete() {
+                result.complete(count)
+            }
+        })
+    }
+
+    override fun onSubscribe(subscription: Subscription) = processor.onSubscribe(subscription)
+
+    override fun onNext(document: JsonNode) = processor.onNext(document)
+
+    override fun onError(throwable: Throwable) = processor.onError(throwable)
+
+    override fun onComplete() = processor.onComplete()
+
+    /**
+     * Wait until the stream completed and assert that all documents matched.
+     *
+     * @param timeout The maximum time to wait.
+     * @return The number of documents.
+     * @throws AssertionError If a document does not match or the stream does not complete in time.
+     * @throws IllegalStateException If the publisher failed.
+     */
+    fun await(timeout: Duration): Long = try {
+        result.get(timeout.toNanos(), TimeUnit.NANOSECONDS)
+    } catch (e: ExecutionException) {
+        throw e.cause as? AssertionError ?: IllegalStateException("Failed to receive the documents", e.cause)
+    } catch (e: TimeoutException) {
+        throw AssertionError("Document stream did not complete within $timeout")
+    }
+}
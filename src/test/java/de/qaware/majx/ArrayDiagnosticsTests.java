@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ArrayDiagnosticsTests {
+
+    private static final MatcherConfig RANDOM_ORDER = new MatcherConfig().withRandomArrayOrder(true);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static String items(int count, int changedId) {
+        StringBuilder builder = new StringBuilder("{ \"items\" : [");
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : ",").append("{ \"id\" : ").append(i).append(", \"name\" : \"item")
+                    .append(i).append("\", \"price\" : ").append(i == changedId ? 99 : i).append(" }");
+        }
+        return builder.append("] }").toString();
+    }
+
+    private static String failureMessage(String pattern, String actual, MatcherConfig config) {
+        try {
+            Majx.assertJsonMatches(null, pattern, actual, null, config);
+        } catch (AssertionError e) {
+            return e.getMessage();
+        }
+        fail("No assertion error");
+        return null;
+    }
+
+    @Test
+    public void testClosestCandidateOfLargeArray() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items:  Arrays are not equal ignoring order\n" +
+                "Unmatched pattern element [234] {\"id\":234,\"name\":\"item234\",\"price\":234}, " +
+                "closest actual element [234] {\"id\":234,\"name\":\"item234\",\"price\":99}\n" +
+                "  Error at location $.items[234].price: Element does not match\n" +
+                "  Expected: is \"234\"\n" +
+                "       but: was \"99\".\n");
+        Majx.assertJsonMatches(null, items(300, -1), items(300, 234), null, RANDOM_ORDER);
+    }
+
+    @Test
+    public void testClaimedCandidatesAreSkipped() {
+        String message = failureMessage("[ \"foo\", \"bar\", \"baz\" ]", "[ \"foo\", \"bar\", \"qux\" ]", RANDOM_ORDER);
+        assertThat(message, containsString("Unmatched pattern element [2] \"baz\", closest actual element [2] \"qux\""));
+    }
+
+    @Test
+    public void testNestedArrayDiagnostics() {
+        String message = failureMessage("[ { \"tags\" : [ \"a\", \"b\" ] } ]", "[ { \"tags\" : [ \"b\", \"c\" ] } ]",
+                RANDOM_ORDER);
+        assertThat(message, containsString("Unmatched pattern element [0] {\"tags\":[\"a\",\"b\"]}, " +
+                "closest actual element [0] {\"tags\":[\"b\",\"c\"]}\n" +
+                "  Error at location $[0].tags:  Arrays are not equal ignoring order\n" +
+                "  Unmatched pattern element [0] \"a\", closest actual element [1] \"c\"\n"));
+    }
+
+    @Test
+    public void testNumberOfDescribedElementsIsLimited() {
+        String message = failureMessage("[ 1, 2, 3, 4, 5, 6 ]", "[ 7, 8, 9, 10, 11, 12 ]", RANDOM_ORDER);
+        assertThat(message, containsString("Unmatched pattern element [2] 3"));
+        assertThat(message, not(containsString("Unmatched pattern element [3] 4")));
+        assertThat(message, containsString("\n... and 3 more pattern elements that are not checked."));
+    }
+
+    @Test
+    public void testDiagnosticsRespectBudget() {
+        String message = failureMessage("[ 1, 2, 3 ]", "[ 3, 2, 4 ]", RANDOM_ORDER.withMaxComparisons(4));
+        assertThat(message, containsString("Arrays are not equal ignoring order\n" +
+                "No further diagnostics, the match budget is exceeded."));
+    }
+}
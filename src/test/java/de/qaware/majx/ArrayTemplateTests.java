@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static java.util.Collections.singletonList;
+
+@RunWith(Parameterized.class)
+public class ArrayTemplateTests {
+
+    private static final String TEMPLATE = "{ \"items\" : { \"...each\" : { \"id\" : \"...\", \"state\" : \"done\" } } }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: streaming = {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final MatcherConfig config;
+
+    public ArrayTemplateTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    private static String items(int count, int... notDone) {
+        StringBuilder builder = new StringBuilder("{ \"items\" : [");
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            String state = Arrays.stream(notDone).anyMatch(it -> it == index) ? "open" : "done";
+            builder.append(i == 0 ? "" : ",").append("{ \"id\" : ").append(i).append(", \"state\" : \"")
+                    .append(state).append("\" }");
+        }
+        return builder.append("] }").toString();
+    }
+
+    @Test
+    public void testAllElementsMatch() {
+        Majx.assertJsonMatches(null, TEMPLATE, items(100), null, config);
+        Majx.assertJsonMatches(null, TEMPLATE, items(0), null, config);
+    }
+
+    @Test
+    public void testFirstMismatchIsReported() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[3].state: Value does not match");
+        Majx.assertJsonMatches(null, TEMPLATE, items(10, 3, 7), null, config);
+    }
+
+    @Test
+    public void testFirstMismatchIsReportedInParallel() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[15000].state: Value does not match");
+        Majx.assertJsonMatches(null, TEMPLATE, items(20000, 17000, 15000, 19999), null,
+                config.withParallelThreshold(100));
+    }
+
+    @Test
+    public void testAnyOrderIsIrrelevant() {
+        Majx.assertJsonMatches(null, TEMPLATE, items(10), null, config.withRandomArrayOrder(true));
+    }
+
+    @Test
+    public void testMinSize() {
+        String pattern = "{ \"...each\" : \"...\", \"...minSize\" : 2 }";
+        Majx.assertJsonMatches(null, pattern, "[ 1, 2 ]", null, config);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Actual array size too small");
+        Majx.assertJsonMatches(null, pattern, "[ 1 ]", null, config);
+    }
+
+    @Test
+    public void testMaxSize() {
+        String pattern = "{ \"...each\" : \"...\", \"...maxSize\" : 2 }";
+        Majx.assertJsonMatches(null, pattern, "[ 1, 2 ]", null, config);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Actual array size too large");
+        Majx.assertJsonMatches(null, pattern, "[ 1, 2, 3 ]", null, config);
+    }
+
+    @Test
+    public void testNoArray() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items: Incorrect type of attribute");
+        Majx.assertJsonMatches(null, TEMPLATE, "{ \"items\" : { \"id\" : 1, \"state\" : \"done\" } }", null, config);
+    }
+
+    @Test
+    public void testNestedTemplates() {
+        String pattern = "{ \"...each\" : { \"...each\" : 1 } }";
+        Majx.assertJsonMatches(null, pattern, "[ [ 1, 1 ], [ ], [ 1 ] ]", null, config);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $[2][1]: Element does not match");
+        Majx.assertJsonMatches(null, pattern, "[ [ 1, 1 ], [ ], [ 1, 2 ] ]", null, config);
+    }
+
+    @Test
+    public void testMustacheInTemplate() {
+        Majx.assertJsonMatches(null, "{ \"items\" : { \"...each\" : { \"id\" : \"...\", \"state\" : \"{{state}}\" } } }",
+                items(10), ImmutableMap.of("state", "done"), config);
+    }
+
+    @Test
+    public void testIgnoredElements() {
+        Majx.assertJsonMatches(null, TEMPLATE, items(10, 4), null,
+                config.withIgnorePaths(singletonList("/items/4")));
+    }
+
+    @Test
+    public void testMalformedTemplate() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("...minSize of array template must be a non-negative integer, but is \"2\"");
+        Majx.assertJsonMatches(null, "{ \"...each\" : 1, \"...minSize\" : \"2\" }", "[ 1 ]", null, config);
+    }
+}
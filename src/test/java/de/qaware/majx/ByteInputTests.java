@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@RunWith(Parameterized.class)
+public class ByteInputTests {
+
+    private static final String ACTUAL = "{ \"city\" : \"München\", \"items\" : [ 1, 2, 3 ], " +
+            "\"extra\" : { \"x\" : 1 } }";
+
+    private static final String PATTERN = "{ \"city\" : \"München\", \"items\" : [ 1, \"...\" ], \"...\" : \"...\" }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final MatcherConfig config;
+
+    public ByteInputTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    @Parameterized.Parameters(name = "streaming: {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    @Test
+    public void testByteArray() {
+        Majx.assertJsonMatches(PATTERN, ACTUAL.getBytes(UTF_8));
+        Majx.assertJsonMatches(null, PATTERN, ACTUAL.getBytes(UTF_8), DataFormat.JSON, null, config);
+    }
+
+    @Test
+    public void testHeapBufferSlice() {
+        byte[] document = ACTUAL.getBytes(UTF_8);
+        byte[] bytes = new byte[document.length + 10];
+        Arrays.fill(bytes, (byte) '#');
+        System.arraycopy(document, 0, bytes, 7, document.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, document.length + 5);
+        buffer.position(7);
+        buffer.limit(7 + document.length);
+        ByteBuffer slice = buffer.slice();
+
+        Majx.assertJsonMatches(null, PATTERN, buffer, DataFormat.JSON, null, config);
+        Majx.assertJsonMatches(null, PATTERN, slice, DataFormat.JSON, null, config);
+        assertThat(buffer.position(), is(7));
+        assertThat(slice.position(), is(0));
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        byte[] document = ACTUAL.getBytes(UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(document.length);
+        buffer.put(document).flip();
+
+        Majx.assertJsonMatches(PATTERN, buffer);
+        Majx.assertJsonMatches(null, PATTERN, buffer, DataFormat.JSON, null, config);
+        assertThat(buffer.remaining(), is(document.length));
+    }
+
+    @Test
+    public void testInputStream() {
+        Majx.assertJsonMatches(PATTERN, new ByteArrayInputStream(ACTUAL.getBytes(UTF_8)));
+        Majx.assertJsonMatches(null, PATTERN, new ByteArrayInputStream(ACTUAL.getBytes(UTF_8)), DataFormat.JSON, null,
+                config);
+    }
+
+    @Test
+    public void testMismatchIsDecoded() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.city: Value does not match");
+        exception.expectMessage("\"city\" : \"München\"");
+        Majx.assertJsonMatches(null, "{ \"city\" : \"Berlin\", \"...\" : \"...\" }", ACTUAL.getBytes(UTF_8),
+                DataFormat.JSON, null, config);
+    }
+
+    @Test
+    public void testInvalidJson() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON:\n{ \"city\" : München }");
+        Majx.assertJsonMatches(null, PATTERN, "{ \"city\" : München }".getBytes(UTF_8), DataFormat.JSON, null,
+                config);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The rows of array templates with flat object patterns are matched column by column in streaming mode. The
+ * results must be the same as in tree mode.
+ */
+@RunWith(Parameterized.class)
+public class ColumnarTests {
+
+    private static final String ROW = "{ \"id\" : 7, \"name\" : \"row\", \"price\" : 1.5, \"active\" : true, " +
+            "\"note\" : null, \"tag\" : \"x\" }";
+
+    private static final String PATTERN = "{ \"...each\" : { \"id\" : 7, \"name\" : \"row\", \"price\" : 1.5, " +
+            "\"active\" : true, \"note\" : null, \"tag\" : \"...\" } }";
+
+    private static final String PATTERN_WITH_WILDCARD = "{ \"...each\" : { \"name\" : \"row\", \"...\" : \"...\" } }";
+
+    private static final String PATTERN_WITH_MUSTACHE = "{ \"...each\" : { \"id\" : \"...\", " +
+            "\"name\" : \"{{name}}\", \"price\" : \"...\", \"active\" : \"...\", \"note\" : \"...\", " +
+            "\"tag\" : \"...\" } }";
+
+    @Parameterized.Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {"match", false, PATTERN, rows(100, -1, null)},
+                {"empty", false, PATTERN, "[ ]"},
+                {"wrong string", true, PATTERN, rows(100, 42, ROW.replace("\"row\"", "\"rows\""))},
+                {"wrong integer", true, PATTERN, rows(100, 42, ROW.replace("7", "8"))},
+                {"long instead of integer", true, PATTERN, rows(100, 42, ROW.replace("7", "70000000000"))},
+                {"float instead of integer", true, PATTERN, rows(100, 42, ROW.replace("7", "7.0"))},
+                {"wrong float", true, PATTERN, rows(100, 42, ROW.replace("1.5", "1.25"))},
+                {"integer instead of float", true, PATTERN, rows(100, 42, ROW.replace("1.5", "1"))},
+                {"wrong boolean", true, PATTERN, rows(100, 42, ROW.replace("true", "false"))},
+                {"string instead of null", true, PATTERN, rows(100, 42, ROW.replace("null", "\"null\""))},
+                {"missing property", true, PATTERN, rows(100, 42, ROW.replace("\"tag\" : \"x\"", "\"other\" : 1"))},
+                {"missing wildcard value", true, PATTERN, rows(100, 42, ROW.replace(", \"tag\" : \"x\"", ""))},
+                {"additional property", true, PATTERN, rows(100, 42, ROW.replace("{", "{ \"extra\" : [ 1 ], "))},
+                {"duplicate property", false, PATTERN, rows(100, 42, ROW.replace("{", "{ \"id\" : 8, "))},
+                {"duplicate property overwritten", true, PATTERN, rows(100, 42, ROW.replace("}", ", \"id\" : 8 }"))},
+                {"reordered properties", false, PATTERN, rows(100, 42, "{ \"tag\" : 1, \"note\" : null, " +
+                        "\"active\" : true, \"price\" : 1.5, \"name\" : \"row\", \"id\" : 7 }")},
+                {"no object", true, PATTERN, rows(100, 42, "[ 7 ]")},
+                {"additional property with wildcard", false, PATTERN_WITH_WILDCARD,
+                        rows(100, 42, ROW.replace("{", "{ \"extra\" : [ 1 ], "))},
+                {"wrong string with wildcard", true, PATTERN_WITH_WILDCARD,
+                        rows(100, 42, ROW.replace("\"row\"", "\"rows\""))},
+                {"mustache", true, PATTERN_WITH_MUSTACHE, rows(100, 42, ROW.replace("\"row\"", "\"rows\""))},
+                {"failure in second chunk", true, PATTERN, rows(6000, 5000, ROW.replace("7", "8"))},
+                {"matching irregular row in first chunk", true, PATTERN,
+                        rows(6000, 1000, ROW.replace("}", ", \"id\" : 7 }")).replace("]", ", " +
+                                ROW.replace("7", "8") + " ]")},
+        });
+    }
+
+    /**
+     * @return An array of the given number of copies of {@link #ROW}, the row at the given index replaced.
+     */
+    private static String rows(int count, int index, String replacement) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : ",").append(i == index ? replacement : ROW);
+        }
+        return builder.append("]").toString();
+    }
+
+    private final boolean fails;
+    private final String pattern;
+    private final String actual;
+
+    public ColumnarTests(String testName, boolean fails, String pattern, String actual) {
+        this.fails = fails;
+        this.pattern = pattern;
+        this.actual = actual;
+    }
+
+    private String failureMessage(boolean streaming) {
+        try {
+            Majx.assertJsonMatches(null, pattern, actual, ImmutableMap.of("name", "row"),
+                    new MatcherConfig().withStreaming(streaming));
+            return null;
+        } catch (AssertionError e) {
+            // The actual JSON in the message is the same in both modes, but long
+            return e.getMessage().substring(0, e.getMessage().indexOf("Actual JSON"));
+        }
+    }
+
+    @Test
+    public void test() {
+        String expected = failureMessage(false);
+        String message = failureMessage(true);
+        assertEquals(expected, message);
+        if (fails && message == null) {
+            fail("No assertion error");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tests that documents of all data formats are matched like JSON text, with and without streaming.
+ */
+@RunWith(Parameterized.class)
+public class DataFormatTests {
+
+    private static final String ACTUAL = "{ \"id\" : 7, \"name\" : \"cart\", \"price\" : 1.5, \"big\" : " +
+            "12345678901234567890, \"tags\" : [ \"a\", \"b\", \"c\" ], \"owner\" : null, \"active\" : true, " +
+            "\"extra\" : { \"x\" : [ 1, 2 ] } }";
+
+    private static final String PATTERN = "{ \"id\" : 7, \"name\" : \"{{name}}\", \"price\" : 1.5, \"big\" : " +
+            "12345678901234567890, \"tags\" : [ \"a\", \"...\" ], \"owner\" : null, \"active\" : true, " +
+            "\"extra\" : \"...\" }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final DataFormat format;
+    private final JsonFactory factory;
+    private final MatcherConfig config;
+
+    public DataFormatTests(DataFormat format, JsonFactory factory, boolean streaming) {
+        this.format = format;
+        this.factory = factory;
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    @Parameterized.Parameters(name = "{0}, streaming: {2}")
+    public static Collection<Object[]> data() {
+        Object[][] formats = {
+                {DataFormat.JSON, new JsonFactory()},
+                {DataFormat.SMILE, new SmileFactory()},
+                {DataFormat.CBOR, new CBORFactory()},
+                {DataFormat.MESSAGE_PACK, new MessagePackFactory()}
+        };
+        List<Object[]> data = new ArrayList<>();
+        for (Object[] format : formats) {
+            data.add(new Object[]{format[0], format[1], false});
+            data.add(new Object[]{format[0], format[1], true});
+        }
+        return data;
+    }
+
+    private byte[] encode(String json) throws IOException {
+        return new ObjectMapper(factory).writeValueAsBytes(JsonUtilsKt.convertToJsonNode(json));
+    }
+
+    @Test
+    public void testMatches() throws IOException {
+        Majx.assertJsonMatches(null, PATTERN, encode(ACTUAL), format, ImmutableMap.of("name", "cart"), config);
+    }
+
+    @Test
+    public void testMatchesStream() throws IOException {
+        Majx.assertJsonMatches(null, PATTERN, new ByteArrayInputStream(encode(ACTUAL)), format,
+                ImmutableMap.of("name", "cart"), config);
+    }
+
+    @Test
+    public void testMismatch() throws IOException {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.tags[0]: Value does not match");
+        // The error output is converted to JSON text
+        exception.expectMessage("\"extra\" : {\n    \"x\" : [ 1, 2 ]\n  }");
+        Majx.assertJsonMatches(null, "{ \"tags\" : [ \"b\", \"...\" ], \"...\" : \"...\" }", encode(ACTUAL), format,
+                null, config);
+    }
+
+    @Test
+    public void testArrayTemplate() throws IOException {
+        Majx.assertJsonMatches(null, "{ \"tags\" : { \"...each\" : \"...\", \"...minSize\" : 3 }, \"...\" : \"...\" }",
+                encode(ACTUAL), format, null, config);
+    }
+
+    @Test
+    public void testTruncatedDocument() throws IOException {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as " + format);
+        Majx.assertJsonMatches(null, "{ \"...\" : \"...\" }", Arrays.copyOf(encode(ACTUAL), 20), format, null,
+                config);
+    }
+}
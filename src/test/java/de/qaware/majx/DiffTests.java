@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+
+public class DiffTests {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testEqualDocumentsIgnoringPropertyOrder() throws Exception {
+        assertEquals(emptyList(), diff(
+                "{ \"a\" : 1, \"b\" : [ true, null, \"x\" ], \"c\" : { \"d\" : 1.5 } }",
+                "{ \"c\" : { \"d\" : 1.5 }, \"b\" : [ true, null, \"x\" ], \"a\" : 1 }"));
+    }
+
+    @Test
+    public void testReportsAllDifferences() throws Exception {
+        assertEquals(asList(
+                "$.a: expected 1 but was 2",
+                "$.b.c: missing, expected \"x\"",
+                "$.b.d: unexpected \"y\"",
+                "$.e: expected type ARRAY but was OBJECT"),
+                diff("{ \"a\" : 1, \"b\" : { \"c\" : \"x\" }, \"e\" : [ ], \"f\" : \"same\" }",
+                        "{ \"a\" : 2, \"b\" : { \"d\" : \"y\" }, \"e\" : { }, \"f\" : \"same\" }"));
+    }
+
+    @Test
+    public void testArrayInsertionDoesNotShiftFollowingElements() throws Exception {
+        assertEquals(asList("$[1]: unexpected \"x\""),
+                diff("[ \"a\", \"b\", \"c\", \"d\" ]", "[ \"a\", \"x\", \"b\", \"c\", \"d\" ]"));
+        assertEquals(asList("$[2]: missing, expected \"c\""),
+                diff("[ \"a\", \"b\", \"c\", \"d\" ]", "[ \"a\", \"b\", \"d\" ]"));
+    }
+
+    @Test
+    public void testWildcardsAreComparedLiterally() throws Exception {
+        assertEquals(asList("$.a: expected \"...\" but was \"x\""), diff("{ \"a\" : \"...\" }", "{ \"a\" : \"x\" }"));
+    }
+
+    @Test
+    public void testAssertJsonEquals() throws Exception {
+        Majx.assertJsonEquals("{ \"a\" : [ 1, 2 ] }", "{ \"a\" : [ 1, 2 ] }");
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Documents differ at 2 location(s):\n$.a[0]: expected 1 but was 3\n$.b: missing");
+        Majx.assertJsonEquals("{ \"a\" : [ 1, 2 ], \"b\" : true }", "{ \"a\" : [ 3, 2 ] }");
+    }
+
+    private static List<String> diff(String expected, String actual) throws Exception {
+        JsonNode expectedNode = JsonUtilsKt.convertToJsonNode(expected);
+        JsonNode actualNode = JsonUtilsKt.convertToJsonNode(actual);
+        return JsonDiff.INSTANCE.diff(expectedNode, actualNode).stream()
+                .map(JsonDifference::toString)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class DigestTests {
+
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    private static final MatcherConfig STREAMING = new MatcherConfig().withStreaming(true).withDigestThreshold(3);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testDigestPattern() {
+        String pattern = "{ \"blob\" : \"...sha256:" + HELLO_SHA256 + "\" }";
+        String actual = "{ \"blob\" : \"hello\" }";
+        Majx.assertJsonMatches(pattern, actual);
+        Majx.assertJsonMatches(null, pattern, actual, null, STREAMING);
+        Majx.assertJsonMatches(null, pattern.replace(HELLO_SHA256, HELLO_SHA256.toUpperCase()), actual, null, STREAMING);
+    }
+
+    @Test
+    public void testLiteralPatternForHashedString() {
+        String blob = Strings.repeat("0123456789abcdef", 1000);
+        Majx.assertJsonMatches(null, "[ \"" + blob + "\", \"abc\" ]", "[ \"" + blob + "\", \"abc\" ]", null, STREAMING);
+    }
+
+    @Test
+    public void testMustachePatternForHashedString() {
+        Majx.assertJsonMatches(null, "[ \"{{greeting}}\" ]", "[ \"hello\" ]", ImmutableMap.of("greeting", "hello"),
+                STREAMING);
+    }
+
+    @Test
+    public void testMismatchOfHashedString() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.blob: Value does not match (compared by SHA-256 digest)\n" +
+                "Expected string (5 characters): \"hello\"\n" +
+                "Actual string: 6 characters\n" +
+                "Expected: is \"" + HELLO_SHA256 + "\"");
+        Majx.assertJsonMatches(null, "{ \"blob\" : \"hello\" }", "{ \"blob\" : \"hallo!\" }", null, STREAMING);
+    }
+
+    @Test
+    public void testMismatchOfLongHashedString() {
+        String blob = Strings.repeat("0123456789", 10);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Expected string (100 characters): \"" + blob.substring(0, 80) + "...\"\n" +
+                "Actual string: 101 characters\n");
+        Majx.assertJsonMatches(null, "[ \"" + blob + "\" ]", "[ \"" + blob + "x\" ]", null, STREAMING);
+    }
+
+    @Test
+    public void testMismatchOfDigestPattern() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.blob: Value does not match (compared by SHA-256 digest)");
+        Majx.assertJsonMatches("{ \"blob\" : \"...sha256:" + HELLO_SHA256 + "\" }", "{ \"blob\" : \"hallo\" }");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static java.util.Arrays.asList;
+
+@RunWith(Parameterized.class)
+public class IgnorePathTests {
+
+    private static final String ACTUAL = "{ \"timestamp\" : \"2020-06-01T12:00:00Z\", " +
+            "\"items\" : [ { \"id\" : 1, \"traceId\" : \"a1\", \"etag\" : \"x\" }, " +
+            "{ \"id\" : 2, \"traceId\" : \"b2\", \"meta\" : { \"etag\" : \"y\" } } ], " +
+            "\"etag\" : \"z\" }";
+
+    private static final MatcherConfig CONFIG = new MatcherConfig()
+            .withIgnorePaths(asList("/timestamp", "/items/*/traceId", "/**/etag"));
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: streaming = {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final MatcherConfig config;
+
+    public IgnorePathTests(boolean streaming) {
+        this.config = CONFIG.withStreaming(streaming);
+    }
+
+    @Test
+    public void testIgnoredValuesAreNotCompared() {
+        String pattern = "{ \"timestamp\" : \"1970-01-01T00:00:00Z\", " +
+                "\"items\" : [ { \"id\" : 1, \"traceId\" : \"other\", \"etag\" : \"other\" }, " +
+                "{ \"id\" : 2, \"traceId\" : \"other\", \"meta\" : { \"etag\" : \"other\" } } ], " +
+                "\"etag\" : \"other\" }";
+        Majx.assertJsonMatches(null, pattern, ACTUAL, null, config);
+    }
+
+    @Test
+    public void testIgnoredPropertiesAreNotRequired() {
+        String pattern = "{ \"items\" : [ { \"id\" : 1 }, { \"id\" : 2, \"meta\" : { } } ] }";
+        Majx.assertJsonMatches(null, pattern, ACTUAL, null, config);
+    }
+
+    @Test
+    public void testNotIgnoredValuesAreCompared() {
+        String pattern = "{ \"items\" : [ { \"id\" : 1 }, { \"id\" : 3, \"meta\" : { } } ] }";
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[1].id: Element does not match");
+        Majx.assertJsonMatches(null, pattern, ACTUAL, null, config);
+    }
+
+    @Test
+    public void testIgnoredArrayElementsCountForSize() {
+        MatcherConfig ignoreSecond = config.withIgnorePaths(asList("/1"));
+        Majx.assertJsonMatches(null, "[ 1, 5, 3 ]", "[ 1, 2, 3 ]", null, ignoreSecond);
+        Majx.assertJsonMatches(null, "[ 1, 5, 3 ]", "[ 3, 2, 1 ]", null, ignoreSecond.withRandomArrayOrder(true));
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Sizes of arrays do not match.");
+        Majx.assertJsonMatches(null, "[ 1, 5 ]", "[ 1, 2, 3 ]", null, ignoreSecond);
+    }
+
+    @Test
+    public void testIgnoredRoot() {
+        Majx.assertJsonMatches(null, "[ ]", ACTUAL, null, config.withIgnorePaths(asList("")));
+    }
+
+    @Test
+    public void testIgnoredPathsWithPointerAssertions() {
+        Majx.assertJsonMatchesAt(null, ACTUAL,
+                Collections.singletonMap("/items/1", "{ \"id\" : 2, \"meta\" : { } }"), null, config);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class IncrementalMatcherTests {
+
+    private static final String PATTERN = "{ \"name\" : \"...\", \"state\" : \"open\", \"items\" : [ " +
+            "{ \"id\" : 1, \"done\" : \"...\" }, { \"id\" : 2, \"done\" : false }, \"...\" ] }";
+
+    private static final String ACTUAL = "{ \"name\" : \"cart\", \"state\" : \"open\", \"items\" : [ " +
+            "{ \"id\" : 1, \"done\" : true }, { \"id\" : 2, \"done\" : false } ] }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testPatchesThatKeepTheMatch() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.assertMatches(null);
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"replace\", \"path\" : \"/name\", \"value\" : \"other\" } ]");
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"add\", \"path\" : \"/items/-\", " +
+                "\"value\" : { \"id\" : 3 } }, " +
+                "{ \"op\" : \"copy\", \"from\" : \"/items/2\", \"path\" : \"/items/3\" } ]");
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"test\", \"path\" : \"/items/3/id\", \"value\" : 3 }, " +
+                "{ \"op\" : \"remove\", \"path\" : \"/items/3\" } ]");
+        assertThat(matcher.getDocument().get("items").size(), is(3));
+    }
+
+    @Test
+    public void testInsertionShiftsElements() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.assertMatches(null);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[0].id: Element does not match");
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"add\", \"path\" : \"/items/0\", \"value\" : { \"id\" : 0, " +
+                "\"done\" : true } } ]");
+    }
+
+    @Test
+    public void testMismatchIsFixedByLaterPatch() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.applyPatch("[ { \"op\" : \"replace\", \"path\" : \"/items/1/done\", \"value\" : true } ]");
+        try {
+            matcher.assertMatches(null);
+            throw new IllegalStateException("Mismatch not detected");
+        } catch (AssertionError ex) {
+            assertThat(ex.getMessage().startsWith("Error at location $.items[1].done: Element does not match"),
+                    is(true));
+        }
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"move\", \"from\" : \"/items/1\", \"path\" : \"/items/-\" }, " +
+                "{ \"op\" : \"add\", \"path\" : \"/items/1\", \"value\" : { \"id\" : 2, \"done\" : false } } ]");
+    }
+
+    @Test
+    public void testSizeConstraintOfParent() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.assertMatches(null);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Size of object properties does not match.");
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"add\", \"path\" : \"/owner\", \"value\" : \"me\" } ]");
+    }
+
+    @Test
+    public void testReplaceRoot() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.assertMatches(null);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Incorrect type of attribute");
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"replace\", \"path\" : \"\", \"value\" : [] } ]");
+    }
+
+    @Test
+    public void testUntouchedSubtreesAreNotValidatedAgain() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.assertMatches(null);
+        // Changing the document directly bypasses the invalidation, so the known result of the element is used
+        ((ObjectNode) matcher.getDocument().get("items").get(1)).put("done", true);
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"replace\", \"path\" : \"/name\", \"value\" : \"other\" } ]");
+    }
+
+    @Test
+    public void testUntouchedSubtreesAreNotValidatedAgainWithKeyedArrays() {
+        IncrementalMatcher matcher = new IncrementalMatcher(
+                JsonUtilsKt.convertToJsonNode("{ \"name\" : \"...\", \"state\" : \"open\", \"items\" : [ " +
+                        "{ \"id\" : 2, \"done\" : false }, { \"id\" : 1, \"done\" : true } ] }"),
+                JsonUtilsKt.convertToJsonNode(ACTUAL), null,
+                new MatcherConfig().withKeyedArrays(singletonMap("/items", "/id")));
+        matcher.assertMatches(null);
+        // Changing the document directly bypasses the invalidation, so the known result of the keyed array is used
+        ((ArrayNode) matcher.getDocument().get("items")).addObject().put("id", 3);
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"replace\", \"path\" : \"/name\", \"value\" : \"other\" } ]");
+    }
+
+    @Test
+    public void testIgnoredPaths() {
+        IncrementalMatcher matcher = new IncrementalMatcher(JsonUtilsKt.convertToJsonNode(PATTERN),
+                JsonUtilsKt.convertToJsonNode(ACTUAL), null,
+                new MatcherConfig().withIgnorePaths(singletonList("/items/1/done")));
+        matcher.assertMatchesAfter(null, "[ { \"op\" : \"replace\", \"path\" : \"/items/1/done\", \"value\" : 1 } ]");
+    }
+
+    @Test
+    public void testFailedTest() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Test of JSON patch failed at /state: expected \"closed\"");
+        matcher.applyPatch("[ { \"op\" : \"test\", \"path\" : \"/state\", \"value\" : \"closed\" } ]");
+    }
+
+    @Test
+    public void testTestComparesNumbersByValue() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        matcher.applyPatch("[ { \"op\" : \"replace\", \"path\" : \"/items/0/id\", \"value\" : 1.0 }, " +
+                "{ \"op\" : \"test\", \"path\" : \"/items/0/id\", \"value\" : 1 } ]");
+        matcher.applyPatch("[ { \"op\" : \"test\", \"path\" : \"/items/0\", " +
+                "\"value\" : { \"id\" : 1E0, \"done\" : true } } ]");
+    }
+
+    @Test
+    public void testMissingPath() {
+        IncrementalMatcher matcher = IncrementalMatcher.of(PATTERN, ACTUAL);
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Path /items/5 of JSON patch does not exist");
+        matcher.applyPatch("[ { \"op\" : \"remove\", \"path\" : \"/items/5\" } ]");
+    }
+}
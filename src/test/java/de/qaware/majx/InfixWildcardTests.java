@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static java.util.Collections.singletonList;
+
+@RunWith(Parameterized.class)
+public class InfixWildcardTests {
+
+    private static final String EVENTS = "{ \"events\" : [ \"start\", \"load\", \"a\", \"b\", \"load\", \"c\", " +
+            "\"b\", \"c\", \"save\", \"stop\" ] }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: streaming = {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final MatcherConfig config;
+
+    public InfixWildcardTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    private static String events(String elements) {
+        return "{ \"events\" : [ " + elements + " ] }";
+    }
+
+    private void assertMatches(String pattern, String actual) {
+        Majx.assertJsonMatches(null, pattern, actual, null, config);
+    }
+
+    @Test
+    public void testStartsAndEndsWith() {
+        assertMatches(events("\"start\", \"...\", \"stop\""), EVENTS);
+        assertMatches(events("\"start\", \"load\", \"...\", \"save\", \"stop\""), EVENTS);
+    }
+
+    @Test
+    public void testSuffix() {
+        assertMatches(events("\"...\", \"save\", \"stop\""), EVENTS);
+        assertMatches("[ \"...\", 1 ]", "[ 1 ]");
+    }
+
+    @Test
+    public void testInfixesInOrder() {
+        assertMatches(events("\"...\", \"b\", \"c\", \"...\""), EVENTS);
+        assertMatches(events("\"start\", \"...\", \"load\", \"...\", \"load\", \"...\", \"stop\""), EVENTS);
+        assertMatches(events("\"...\", \"a\", \"...\", \"...\", \"c\", \"...\", \"save\", \"stop\""), EVENTS);
+    }
+
+    @Test
+    public void testInfixDoesNotOverlapSuffix() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.events: Pattern elements [1..1] [\"stop\"] not found in order " +
+                "between actual elements [0] and [8]");
+        assertMatches(events("\"...\", \"stop\", \"...\", \"stop\""), EVENTS);
+    }
+
+    @Test
+    public void testInfixesOutOfOrder() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.events: Pattern elements [4..5] [\"a\",\"b\"] not found in " +
+                "order between actual elements [9] and [9]");
+        assertMatches(events("\"...\", \"c\", \"save\", \"...\", \"a\", \"b\", \"...\""), EVENTS);
+    }
+
+    @Test
+    public void testSuffixMismatch() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.events[8]: Value does not match");
+        assertMatches(events("\"start\", \"...\", \"load\", \"stop\""), EVENTS);
+    }
+
+    @Test
+    public void testTooShort() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Actual array size too small");
+        assertMatches("[ 1, \"...\", 2, \"...\", 3 ]", "[ 1, 3 ]");
+    }
+
+    @Test
+    public void testNestedPatterns() {
+        assertMatches("[ \"...\", { \"type\" : \"b\", \"n\" : \"...\" }, { \"type\" : \"c\" }, \"...\" ]",
+                "[ { \"type\" : \"a\" }, { \"type\" : \"b\", \"n\" : 1 }, { \"type\" : \"b\", \"n\" : 2 }, " +
+                        "{ \"type\" : \"c\" }, { \"type\" : \"d\" } ]");
+    }
+
+    @Test
+    public void testIgnoredElementsMatchAnyPattern() {
+        Majx.assertJsonMatches(null, events("\"...\", \"x\", \"...\""), EVENTS, null,
+                config.withIgnorePaths(singletonList("/events/3")));
+    }
+}
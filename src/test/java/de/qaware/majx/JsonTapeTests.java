@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class JsonTapeTests {
+
+    private static final String ACTUAL = "{\n  \"id\" : 7,\n  \"name\" : \"M\\u00fcnchen \\\"Hbf\\\" \\ud83d\\ude80 " +
+            "\\/\\b\\f\\n\\r\\t\",\n  \"city\" : \"Zürich\",\n  \"price\" : -1.5e2,\n  \"zero\" : 0,\n  \"long\" : " +
+            "12345678901,\n  \"big\" : 123456789012345678901234567890,\n  \"items\" : [ { \"a\" : [ ] }, { }, " +
+            "[ [ 1 ] ], true, false, null, \"\" ],\n  \"na\\u006d\" : 1\n}";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static JsonTape tape(String json) {
+        return JsonTape.of(json.getBytes(UTF_8));
+    }
+
+    @Test
+    public void testViewEqualsParsedTree() {
+        JsonNode view = tape(ACTUAL).asJsonNode();
+        JsonNode parsed = JsonUtilsKt.convertToJsonNode(ACTUAL);
+        assertThat(view, is(parsed));
+        assertThat(parsed, is(view));
+        assertThat(JsonUtilsKt.convertToString(view), is(JsonUtilsKt.convertToString(parsed)));
+        assertThat(view.get("name").textValue(), is("München \"Hbf\" 🚀 /\b\f\n\r\t"));
+        assertThat(view.get("nam").intValue(), is(1));
+        assertThat(view.has("na"), is(false));
+        assertThat(view.get("items").size(), is(7));
+    }
+
+    @Test
+    public void testViewNodesAreKeptWhileUsed() {
+        JsonNode view = tape(ACTUAL).asJsonNode();
+        JsonNode items = view.get("items");
+        assertThat(view.get("items"), sameInstance(items));
+        assertThat(items.get(0), sameInstance(items.get(0)));
+        assertThat(view.fields().next().getValue(), sameInstance(view.get("id")));
+    }
+
+    @Test
+    public void testDuplicateNamesLikeJackson() {
+        String json = "{ \"a\" : 1, \"b\" : 2, \"a\" : 3 }";
+        JsonNode view = tape(json).asJsonNode();
+        assertThat(view.get("a").intValue(), is(3));
+        assertThat(view.size(), is(2));
+        JsonNode parsed = JsonUtilsKt.convertToJsonNode(json);
+        assertThat(view, is(parsed));
+        assertThat(JsonUtilsKt.convertToString(view), is(JsonUtilsKt.convertToString(parsed)));
+        Majx.assertJsonMatches("{ \"a\" : 3, \"b\" : 2 }", tape(json));
+    }
+
+    @Test
+    public void testMatches() {
+        Majx.assertJsonMatches("{ \"id\" : 7, \"city\" : \"Zürich\", \"items\" : [ \"...\", null, \"\" ], " +
+                "\"name\" : \"...\", \"...\" : \"...\" }", tape(ACTUAL));
+    }
+
+    @Test
+    public void testRandomArrayOrder() {
+        Majx.assertJsonMatches(null, "[ { \"id\" : 3 }, { \"id\" : 1 }, { \"id\" : 2 } ]",
+                tape("[ { \"id\" : 1 }, { \"id\" : 2 }, { \"id\" : 3 } ]"), null,
+                new MatcherConfig().withRandomArrayOrder(true));
+    }
+
+    @Test
+    public void testMismatch() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.city: Value does not match");
+        exception.expectMessage("\"big\" : 123456789012345678901234567890");
+        Majx.assertJsonMatches("{ \"city\" : \"Zurich\", \"...\" : \"...\" }", tape(ACTUAL));
+    }
+
+    @Test
+    public void testBufferSlice() {
+        ByteBuffer buffer = ByteBuffer.wrap(("xx" + ACTUAL + "yy").getBytes(UTF_8));
+        buffer.position(2);
+        buffer.limit(buffer.capacity() - 2);
+        assertThat(JsonTape.of(buffer).asJsonNode(), is(JsonUtilsKt.convertToJsonNode(ACTUAL)));
+        assertThat(buffer.position(), is(2));
+    }
+
+    @Test
+    public void testMemoryMappedFile() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+                    .append("\",\"tags\":[\"a\",\"b\"]}");
+        }
+        json.append("]");
+        Path file = folder.newFile("large.json").toPath();
+        Files.write(file, json.toString().getBytes(UTF_8));
+
+        JsonTape tape = JsonTape.map(file);
+        Majx.assertJsonMatches("[ { \"id\" : 0, \"name\" : \"item 0\", \"tags\" : [ \"a\", \"...\" ] }, \"...\" ]",
+                tape);
+        assertThat(tape.asJsonNode().get(9999).get("name").textValue(), is("item 9999"));
+        // 4 bytes per value and property name
+        assertThat(tape.getEntries() * 4L, lessThan(Files.size(file)));
+    }
+
+    @Test
+    public void testDeeplyNested() {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            json.append('[');
+        }
+        for (int i = 0; i < 100000; i++) {
+            json.append(']');
+        }
+        assertThat(tape(json.toString()).getEntries(), is(200000));
+    }
+
+    @Test
+    public void testEmptyDocument() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Unexpected end of input at byte 2");
+        tape("  ");
+    }
+
+    @Test
+    public void testUnterminatedString() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Unterminated string at byte 8");
+        tape("{ \"a\" : \"b }");
+    }
+
+    @Test
+    public void testInvalidNumber() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Invalid number at byte 4");
+        tape("[ 1.e5 ]");
+    }
+
+    @Test
+    public void testMissingComma() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Expected ',' or '}' at byte 12");
+        tape("{ \"a\" : 1   \"b\" : 2 }");
+    }
+
+    @Test
+    public void testCommentsAreNotAccepted() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON");
+        tape("{ // comment\n \"a\" : 1 }");
+    }
+
+    @Test
+    public void testTrailingContent() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Unexpected content after the document at byte 5");
+        tape("true x");
+    }
+}
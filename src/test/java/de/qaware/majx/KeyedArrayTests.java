@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+
+@RunWith(Parameterized.class)
+public class KeyedArrayTests {
+
+    private static final String ACTUAL = "{ \"orders\" : [ " +
+            "{ \"id\" : 3, \"state\" : \"open\" }, " +
+            "{ \"id\" : 1, \"state\" : \"done\" }, " +
+            "{ \"id\" : 2, \"state\" : \"done\" } ] }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: streaming = {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final MatcherConfig config;
+
+    public KeyedArrayTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    private static String keyed(String items) {
+        return "{ \"orders\" : { \"...keyedBy\" : \"/id\", \"...items\" : [ " + items + " ] } }";
+    }
+
+    @Test
+    public void testMatchByKey() {
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 1, \"state\" : \"done\" }, " +
+                "{ \"id\" : 2, \"state\" : \"done\" }, { \"id\" : 3, \"state\" : \"...\" }"), ACTUAL, null, config);
+    }
+
+    @Test
+    public void testMismatchIsReportedAtActualIndex() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.orders[0].state: Value does not match");
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 1, \"state\" : \"done\" }, " +
+                "{ \"id\" : 2, \"state\" : \"done\" }, { \"id\" : 3, \"state\" : \"done\" }"), ACTUAL, null, config);
+    }
+
+    @Test
+    public void testMissingKey() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.orders: No element with key /id = 4 found");
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 4, \"state\" : \"done\" }, \"...\""), ACTUAL, null, config);
+    }
+
+    @Test
+    public void testKeyTypeMatters() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.orders: No element with key /id = \"1\" found");
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : \"1\", \"state\" : \"done\" }, \"...\""), ACTUAL, null,
+                config);
+    }
+
+    @Test
+    public void testSizeWithoutWildcard() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.orders: Sizes of arrays do not match.");
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 1, \"state\" : \"done\" }"), ACTUAL, null, config);
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Several elements with key /id = 1 found");
+        Majx.assertJsonMatches(null, "{ \"...keyedBy\" : \"/id\", \"...items\" : [ { \"id\" : 1 }, \"...\" ] }",
+                "[ { \"id\" : 1 }, { \"id\" : 2 }, { \"id\" : 1 } ]", null, config);
+    }
+
+    @Test
+    public void testNestedKey() {
+        Majx.assertJsonMatches(null, "{ \"...keyedBy\" : \"/ref/id\", \"...items\" : [ " +
+                        "{ \"ref\" : { \"id\" : \"b\" }, \"n\" : 2 }, { \"ref\" : { \"id\" : \"a\" }, \"n\" : 1 } ] }",
+                "[ { \"ref\" : { \"id\" : \"a\" }, \"n\" : 1 }, { \"ref\" : { \"id\" : \"b\" }, \"n\" : 2 } ]", null,
+                config);
+    }
+
+    @Test
+    public void testMustacheKey() {
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 1, \"state\" : \"{{state}}\" }, \"...\""), ACTUAL,
+                ImmutableMap.of("state", "done"), config);
+        Majx.assertJsonMatches(null, "{ \"...keyedBy\" : \"/name\", \"...items\" : [ { \"name\" : \"{{name}}\" } ] }",
+                "[ { \"name\" : \"x\" } ]", ImmutableMap.of("name", "x"), config);
+    }
+
+    @Test
+    public void testKeyedArrayByConfig() {
+        String pattern = "{ \"orders\" : [ { \"id\" : 1, \"state\" : \"done\" }, " +
+                "{ \"id\" : 2, \"state\" : \"done\" }, { \"id\" : 3, \"state\" : \"open\" } ] }";
+        Majx.assertJsonMatches(null, pattern, ACTUAL, null, config.withKeyedArrays(singletonMap("/orders", "/id")));
+        Majx.assertJsonMatches(null, "[ " + pattern + " ]", "[ " + ACTUAL + " ]", null,
+                config.withKeyedArrays(singletonMap("/*/orders", "/id")));
+    }
+
+    @Test
+    public void testIgnoredElementsHaveNoKey() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.orders: No element with key /id = 3 found");
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 3, \"state\" : \"open\" }, \"...\""), ACTUAL, null,
+                config.withIgnorePaths(singletonList("/orders/0")));
+    }
+
+    @Test
+    public void testPatternElementWithoutKey() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Element 1 of keyed array has no key at /id");
+        Majx.assertJsonMatches(null, keyed("{ \"id\" : 1 }, { \"state\" : \"done\" }"), ACTUAL, null, config);
+    }
+
+    @Test
+    public void testDuplicatePatternKeys() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Elements 0 and 1 of keyed array have the same key /id = 1");
+        Majx.assertJsonMatches(null, "{ \"...keyedBy\" : \"/id\", \"...items\" : [ { \"id\" : 1 }, { \"id\" : 1 } ] }",
+                "[ { \"id\" : 1 }, { \"id\" : 2, \"v\" : \"WRONG\" } ]", null, config);
+    }
+
+    @Test
+    public void testDuplicatePatternKeysByConfig() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Elements 0 and 1 of keyed array have the same key /id = 1");
+        Majx.assertJsonMatches(null, "[ { \"id\" : 1 }, { \"id\" : 1 } ]",
+                "[ { \"id\" : 1 }, { \"id\" : 2, \"v\" : \"WRONG\" } ]", null,
+                config.withKeyedArrays(singletonMap("", "/id")));
+    }
+
+    @Test
+    public void testDuplicateMustachePatternKeys() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Several elements of keyed array have the key /name = \"{{b}}\"");
+        Majx.assertJsonMatches(null, "{ \"...keyedBy\" : \"/name\", \"...items\" : [ " +
+                        "{ \"name\" : \"{{a}}\" }, { \"name\" : \"{{b}}\" } ] }",
+                "[ { \"name\" : \"x\" }, { \"name\" : \"y\" } ]", ImmutableMap.of("a", "x", "b", "x"), config);
+    }
+}
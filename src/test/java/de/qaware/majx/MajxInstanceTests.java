@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+public class MajxInstanceTests {
+
+    private static final int THREADS = 32;
+
+    private static final int ITERATIONS = 300;
+
+    private static final String PATTERN = "{ \"owner\" : \"{{owner}}\", \"items\" : [ 1, 2, \"...\" ], " +
+            "\"...\" : \"...\" }";
+
+    private static final String ANY_ORDER_PATTERN = "[ \"{{owner}}\", 1, { \"owner\" : \"{{owner}}\" } ]";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testMatch() {
+        MajxInstance majx = new MajxInstance();
+        majx.assertJsonMatches("{ \"a\" : \"...\" }", "{ \"a\" : 1 }");
+        majx.assertJsonMatches("{ \"a\" : \"...\" }", JsonUtilsKt.convertToJsonNode("{ \"a\" : 1 }"));
+        majx.assertJsonMatches(null, "{ \"a\" : \"{{a}}\" }", "{ \"a\" : \"x\" }", Collections.singletonMap("a", "x"));
+    }
+
+    @Test
+    public void testMismatch() {
+        MajxInstance majx = new MajxInstance(new MatcherConfig().withStreaming(true));
+        try {
+            majx.assertJsonMatches("Reason", "{ \"a\" : 2 }", "{ \"a\" : 1 }");
+            fail("Mismatch not reported");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Reason"));
+            assertThat(e.getMessage(), containsString("Error at location $.a"));
+        }
+    }
+
+    @Test
+    public void testPatternIsCached() {
+        MajxInstance majx = new MajxInstance();
+        JsonNode pattern = majx.pattern(PATTERN);
+        assertThat(majx.pattern(PATTERN), sameInstance(pattern));
+    }
+
+    @Test
+    public void testInvalidJsonIsNotCached() {
+        MajxInstance majx = new MajxInstance();
+        for (int i = 0; i < 2; i++) {
+            try {
+                majx.assertJsonMatches("{ \"a\" : ", "{ }");
+                fail("Invalid pattern not reported");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("Failed to parse pattern as JSON"));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatches() throws Exception {
+        stress(new MajxInstance());
+    }
+
+    @Test
+    public void testParallelMatchesBeyondCacheLimit() throws Exception {
+        stress(new MajxInstance(new MatcherConfig(), 4));
+    }
+
+    @Test
+    public void testParallelMatchesInStreamingMode() throws Exception {
+        stress(new MajxInstance(new MatcherConfig().withStreaming(true)));
+    }
+
+    /**
+     * Let all threads match the same patterns with their own mustache scopes at the same time, and check that every
+     * result belongs to the scope and document of its thread.
+     */
+    private void stress(MajxInstance majx) throws Exception {
+        MajxInstance anyOrder = new MajxInstance(majx.getConfig().withRandomArrayOrder(true));
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            String owner = "t" + thread;
+            String other = "t" + ((thread + 1) % THREADS);
+            Map<String, String> scope = Collections.singletonMap("owner", owner);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    try {
+                        String actual = "{ \"owner\" : \"" + owner + "\", \"items\" : [ 1, 2, " + i % 7 + " ], " +
+                                "\"seq\" : " + i % 5 + " }";
+                        majx.assertJsonMatches(null, PATTERN, actual, scope);
+                        anyOrder.assertJsonMatches(null, ANY_ORDER_PATTERN, "[ { \"owner\" : \"" + owner + "\" }, " +
+                                "1, \"" + owner + "\" ]", scope);
+                        assertMismatch(majx, scope, owner, "{ \"owner\" : \"" + other + "\", \"items\" : [ 1, 2 ] }");
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertThat(failures, is(empty()));
+    }
+
+    private static void assertMismatch(MajxInstance majx, Map<String, String> scope, String owner, String actual) {
+        try {
+            majx.assertJsonMatches(owner, PATTERN, actual, scope);
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString(owner + ": Error at location $.owner"));
+            assertThat(e.getMessage(), containsString("is \"" + owner + "\""));
+            return;
+        }
+        throw new AssertionError("Mismatch of " + owner + " not reported");
+    }
+}
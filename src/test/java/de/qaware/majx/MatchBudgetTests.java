@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.time.Duration;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MatchBudgetTests {
+
+    private static final MatcherConfig RANDOM_ORDER = new MatcherConfig().withRandomArrayOrder(true);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static String numbers(int count, boolean reversed) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : ",").append(reversed ? count - 1 - i : i);
+        }
+        return builder.append("]").toString();
+    }
+
+    @Test
+    public void testWithinBudget() {
+        MatcherConfig config = RANDOM_ORDER.withMaxNodeVisits(1000).withMaxComparisons(1000)
+                .withTimeout(Duration.ofMinutes(1));
+        Majx.assertJsonMatches(null, "{ \"items\" : " + numbers(10, true) + " }", "{ \"items\" : " + numbers(10, false)
+                + " }", null, config);
+    }
+
+    @Test
+    public void testMismatchWithinBudget() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.a: Element does not match");
+        Majx.assertJsonMatches(null, "{ \"a\" : 1 }", "{ \"a\" : 2 }", null, new MatcherConfig().withMaxNodeVisits(10));
+    }
+
+    @Test
+    public void testNodeVisitsExceeded() {
+        exception.expect(MatchBudgetExceededError.class);
+        exception.expectMessage("my reason: Error at location $.b: Match budget exceeded (more than 2 node visits).\n" +
+                "Node visits: 3, candidate comparisons: 0");
+        Majx.assertJsonMatches("my reason", "{ \"a\" : 1, \"b\" : 2 }", "{ \"a\" : 1, \"b\" : 2 }", null,
+                new MatcherConfig().withMaxNodeVisits(2));
+    }
+
+    @Test
+    public void testReasonKeepsCause() {
+        try {
+            Majx.assertJsonMatches("my reason", "{ \"a\" : 1, \"b\" : 2 }", "{ \"a\" : 1, \"b\" : 2 }", null,
+                    new MatcherConfig().withMaxNodeVisits(2));
+            fail("Budget not exceeded");
+        } catch (MatchBudgetExceededError e) {
+            assertThat(e.getCause(), instanceOf(MatchBudgetExceededError.class));
+            assertThat(e.getMessage(), is("my reason: " + e.getCause().getMessage()));
+        }
+    }
+
+    @Test
+    public void testNodeVisitsExceededByColumnarTemplate() {
+        StringBuilder actual = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            actual.append(i == 0 ? "" : ",").append("{ \"id\" : ").append(i).append(", \"state\" : \"done\" }");
+        }
+        actual.append("]");
+        String pattern = "{ \"...each\" : { \"id\" : \"...\", \"state\" : \"done\" } }";
+        for (boolean streaming : new boolean[]{false, true}) {
+            MatcherConfig config = new MatcherConfig().withStreaming(streaming);
+            Majx.assertJsonMatches(null, pattern, actual.toString(), null, config.withMaxNodeVisits(301));
+            try {
+                Majx.assertJsonMatches(null, pattern, actual.toString(), null, config.withMaxNodeVisits(300));
+                fail("Budget not exceeded, streaming = " + streaming);
+            } catch (MatchBudgetExceededError e) {
+                assertThat(e.getMessage(), containsString("Match budget exceeded (more than 300 node visits)"));
+            }
+        }
+    }
+
+    @Test
+    public void testComparisonsExceededReportsArrays() {
+        String pattern = "{ \"outer\" : [ " + numbers(20, true) + ", " + numbers(20, true) + " ] }";
+        String actual = "{ \"outer\" : [ " + numbers(20, false) + ", " + numbers(20, false) + " ] }";
+        try {
+            Majx.assertJsonMatches(null, pattern, actual, null, RANDOM_ORDER.withMaxComparisons(300));
+            fail("Budget not exceeded");
+        } catch (MatchBudgetExceededError e) {
+            assertThat(e.getMessage(), containsString("Match budget exceeded (more than 300 candidate comparisons)"));
+            // Comparisons of the inner arrays are aggregated over the elements of the outer array
+            assertThat(e.getMessage(), containsString("Candidate comparisons by array:\n  $.outer[*]: "));
+            assertThat(e.getMessage(), containsString("\n  $.outer: "));
+            assertThat(e.getMessage(), not(containsString("Actual JSON")));
+        }
+    }
+
+    @Test
+    public void testTimeoutExceeded() {
+        exception.expect(MatchBudgetExceededError.class);
+        exception.expectMessage("Match budget exceeded (timeout of 0 ms)");
+        Majx.assertJsonMatches(null, numbers(5000, false), numbers(5000, false), null,
+                new MatcherConfig().withTimeout(Duration.ZERO));
+    }
+
+    @Test
+    public void testInterruptCancelsMatch() {
+        exception.expect(MatchBudgetExceededError.class);
+        exception.expectMessage("Match budget exceeded (thread interrupted)");
+        Thread.currentThread().interrupt();
+        try {
+            Majx.assertJsonMatches(null, numbers(5000, false), numbers(5000, false), null,
+                    new MatcherConfig().withTimeout(Duration.ofMinutes(1)));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testInterruptCancelsParallelMatch() {
+        StringBuilder actual = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            actual.append(i == 0 ? "" : ",").append("{ \"id\" : ").append(i).append(" }");
+        }
+        actual.append("]");
+        exception.expect(MatchBudgetExceededError.class);
+        exception.expectMessage("Match budget exceeded (thread interrupted)");
+        Thread.currentThread().interrupt();
+        try {
+            Majx.assertJsonMatches(null, "{ \"...each\" : { \"id\" : \"...\" } }", actual.toString(), null,
+                    new MatcherConfig().withTimeout(Duration.ofMinutes(1)).withParallelThreshold(100));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testMatchesRethrowsExceededBudget() {
+        exception.expect(MatchBudgetExceededError.class);
+        JsonMatcher matcher = new JsonMatcher(RANDOM_ORDER.withMaxComparisons(5), null);
+        matcher.matches(JsonUtilsKt.convertToJsonNode(numbers(10, true)),
+                JsonUtilsKt.convertToJsonNode(numbers(10, false)));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class MatchMemoTests {
+
+    private static final MatcherConfig RANDOM_ORDER = new MatcherConfig().withRandomArrayOrder(true);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    /**
+     * @return Groups of tags in which the same pattern node for the tags is shared by all groups.
+     */
+    private static JsonNode sharedPattern(int groups) {
+        ArrayNode tags = JsonNodeFactory.instance.arrayNode().add("a").add("b").add("c");
+        ArrayNode result = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i < groups; i++) {
+            ObjectNode group = result.addObject();
+            group.put("id", i);
+            group.set("tags", tags);
+        }
+        return result;
+    }
+
+    private static JsonNode groups(int groups, int changed) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = groups - 1; i >= 0; i--) {
+            builder.append(i == groups - 1 ? "" : ",").append("{ \"id\" : ").append(i).append(", \"tags\" : ")
+                    .append(i == changed ? "[ \"c\", \"x\", \"a\" ]" : "[ \"c\", \"b\", \"a\" ]").append(" }");
+        }
+        return JsonUtilsKt.convertToJsonNode(builder.append("]").toString());
+    }
+
+    @Test
+    public void testSharedPatternNodes() {
+        JsonMatcher matcher = new JsonMatcher(RANDOM_ORDER, null);
+        assertThat(matcher.matches(sharedPattern(50), groups(50, -1)), is(true));
+        assertThat(matcher.matches(sharedPattern(50), groups(50, 17)), is(false));
+    }
+
+    @Test
+    public void testKnownFailuresAreReportedAtTheirLocation() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Unmatched pattern element [17] {\"id\":17,\"tags\":[\"a\",\"b\",\"c\"]}, " +
+                "closest actual element [32] {\"id\":17,\"tags\":[\"c\",\"x\",\"a\"]}\n" +
+                "  Error at location $[32].tags:  Arrays are not equal ignoring order\n" +
+                "  Unmatched pattern element [1] \"b\", closest actual element [1] \"x\"");
+        new JsonMatcher(RANDOM_ORDER, null).assertMatches(null, sharedPattern(50), groups(50, 17));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PatternSetTests {
+
+    private final PatternSet patternSet = PatternSet.of(ImmutableMap.<String, String>builder()
+            .put("created-v1", "{ \"type\" : \"created\", \"version\" : 1, \"id\" : \"...\" }")
+            .put("created-v2", "{ \"type\" : \"created\", \"version\" : 2, \"id\" : \"...\", \"...\" : \"...\" }")
+            .put("deleted", "{ \"type\" : \"deleted\", \"version\" : \"...\", \"id\" : \"...\" }")
+            .put("any-v2", "{ \"type\" : \"...\", \"version\" : 2, \"...\" : \"...\" }")
+            .put("nested", "{ \"header\" : { \"type\" : \"created\" }, \"...\" : \"...\" }")
+            .build());
+
+    @Test
+    public void testMatchAll() {
+        assertEquals(asList("created-v2", "any-v2"),
+                patternSet.matchAll("{ \"type\" : \"created\", \"version\" : 2, \"id\" : 7, \"extra\" : true }"));
+        assertEquals(asList("created-v1"),
+                patternSet.matchAll("{ \"type\" : \"created\", \"version\" : 1, \"id\" : 7 }"));
+        assertEquals(asList("deleted"),
+                patternSet.matchAll("{ \"type\" : \"deleted\", \"version\" : 3, \"id\" : 7 }"));
+        assertEquals(asList("nested"),
+                patternSet.matchAll("{ \"header\" : { \"type\" : \"created\" } }"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertEquals(Collections.emptyList(),
+                patternSet.matchAll("{ \"type\" : \"created\", \"version\" : \"1\", \"id\" : 7 }"));
+        assertEquals(Collections.emptyList(), patternSet.matchAll("[ \"type\", \"created\" ]"));
+        assertNull(patternSet.matchFirst("{ \"type\" : \"updated\" }"));
+    }
+
+    @Test
+    public void testMatchFirst() {
+        assertEquals("created-v2",
+                patternSet.matchFirst("{ \"type\" : \"created\", \"version\" : 2, \"id\" : 7 }"));
+        assertEquals("any-v2", patternSet.matchFirst("{ \"type\" : \"updated\", \"version\" : 2 }"));
+    }
+
+    @Test
+    public void testMustacheValuesAreNotIndexed() {
+        PatternSet mustachePatterns = new PatternSet(
+                ImmutableMap.of("mustache", JsonUtilsKt.convertToJsonNode("{ \"type\" : \"{{type}}\" }")),
+                DefaultMatcherConfig.INSTANCE,
+                ImmutableMap.of("type", "created"));
+        assertEquals(asList("mustache"), mustachePatterns.matchAll("{ \"type\" : \"created\" }"));
+    }
+
+    @Test
+    public void testValuesAtIgnoredPathsAreNotIndexed() {
+        MatcherConfig config = new MatcherConfig().withIgnorePaths(asList("/header/version"));
+        PatternSet ignoringPatterns = new PatternSet(
+                ImmutableMap.of("v1", JsonUtilsKt.convertToJsonNode("{ \"header\" : { \"version\" : 1 }, " +
+                        "\"type\" : \"created\" }")),
+                config);
+        String actual = "{ \"header\" : { \"version\" : 2 }, \"type\" : \"created\" }";
+        Majx.assertJsonMatches(null, JsonUtilsKt.convertToJsonNode("{ \"header\" : { \"version\" : 1 }, " +
+                "\"type\" : \"created\" }"), JsonUtilsKt.convertToJsonNode(actual), null, config);
+        assertEquals(asList("v1"), ignoringPatterns.matchAll(actual));
+        assertEquals(Collections.emptyList(), ignoringPatterns.matchAll("{ \"header\" : { \"version\" : 2 }, " +
+                "\"type\" : \"deleted\" }"));
+    }
+}
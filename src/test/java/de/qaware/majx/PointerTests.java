@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Map;
+
+public class PointerTests {
+
+    private static final String ACTUAL = "{ \"items\" : [ { \"id\" : 1, \"name\" : \"a\" }, { \"id\" : 2, \"name\" : \"b\" } ], " +
+            "\"meta\" : { \"count\" : 2, \"next\" : null }, \"links\" : { \"self\" : \"/items\" }, " +
+            "\"a/b\" : true }";
+
+    private static final MatcherConfig STREAMING = new MatcherConfig().withStreaming(true);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testSuccess() {
+        Map<String, String> patterns = ImmutableMap.<String, String>builder()
+                .put("/items/1", "{ \"id\" : 2, \"name\" : \"...\" }")
+                .put("/items/0/name", "\"a\"")
+                .put("/meta", "{ \"count\" : 2, \"...\" : \"...\" }")
+                .put("/a~1b", "true")
+                .put("", "{ \"items\" : \"...\", \"meta\" : \"...\", \"links\" : \"...\", \"a/b\" : true }")
+                .build();
+
+        Majx.assertJsonMatchesAt(ACTUAL, patterns);
+        Majx.assertJsonMatchesAt(null, ACTUAL, patterns, null, STREAMING);
+        Majx.assertJsonMatchesAt(JsonUtilsKt.convertToJsonNode(ACTUAL), patterns);
+    }
+
+    @Test
+    public void testAllFailuresAreReported() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("3 of 4 pointer assertions failed:\n" +
+                "/items/0/id: Error at location $.items[0].id: Element does not match\n" +
+                "Expected: is \"2\"\n" +
+                "     but: was \"1\"\n" +
+                "/links/next: Error at location $.links.next: No value found\n" +
+                "/items/5: Error at location $.items[5]: No value found.");
+        assertFailures(DefaultMatcherConfig.INSTANCE);
+    }
+
+    @Test
+    public void testAllFailuresAreReportedInStreamingMode() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("3 of 4 pointer assertions failed:\n" +
+                "/items/0/id: Error at location $.items[0].id: Element does not match\n" +
+                "Expected: is \"2\"\n" +
+                "     but: was \"1\"\n" +
+                "/links/next: Error at location $.links.next: No value found\n" +
+                "/items/5: Error at location $.items[5]: No value found.");
+        assertFailures(STREAMING);
+    }
+
+    @Test
+    public void testInvalidPointer() {
+        exception.expect(IllegalArgumentException.class);
+        Majx.assertJsonMatchesAt(ACTUAL, ImmutableMap.of("items", "\"...\""));
+    }
+
+    private static void assertFailures(MatcherConfig config) {
+        Map<String, String> patterns = ImmutableMap.<String, String>builder()
+                .put("/items/0/id", "2")
+                .put("/meta/count", "2")
+                .put("/links/next", "\"...\"")
+                .put("/items/5", "{ }")
+                .build();
+        Majx.assertJsonMatchesAt("Pointers", ACTUAL, patterns, null, config);
+    }
+}
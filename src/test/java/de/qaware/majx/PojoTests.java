@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class PojoTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    public static class Item {
+        private final String name;
+        private final int quantity;
+
+        Item(String name, int quantity) {
+            this.name = name;
+            this.quantity = quantity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
+    public static class Order {
+        private final long id;
+        private final String customer;
+        private final List<Item> items;
+        private final byte[] signature = new byte[]{1, 2, 3};
+
+        Order(long id, String customer, Item... items) {
+            this.id = id;
+            this.customer = customer;
+            this.items = Arrays.asList(items);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public byte[] getSignature() {
+            return signature;
+        }
+    }
+
+    private static Order order() {
+        return new Order(42, "ACME", new Item("apple", 3), new Item("pear", 1), new Item("plum", 7));
+    }
+
+    @Test
+    public void testMatches() {
+        Majx.assertPojoMatches("{ \"id\" : 42, \"customer\" : \"ACME\", \"items\" : [ { \"name\" : \"apple\", " +
+                "\"quantity\" : 3 }, \"...\" ], \"signature\" : \"...\" }", order());
+    }
+
+    @Test
+    public void testMustacheAndConfig() {
+        Majx.assertPojoMatches(null, "{ \"customer\" : \"{{customer}}\", \"items\" : [ { \"name\" : \"plum\", " +
+                        "\"quantity\" : 7 }, { \"name\" : \"apple\", \"quantity\" : 3 }, { \"name\" : \"pear\", " +
+                        "\"quantity\" : 1 } ], \"...\" : \"...\" }", order(), ImmutableMap.of("customer", "ACME"),
+                new MatcherConfig().withRandomArrayOrder(true), MAPPER);
+    }
+
+    @Test
+    public void testMismatch() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[1].quantity: Element does not match");
+        // The error output contains the complete serialization
+        exception.expectMessage("\"signature\" : \"AQID\"");
+        Majx.assertPojoMatches("{ \"items\" : [ { \"name\" : \"apple\", \"quantity\" : 3 }, { \"name\" : \"pear\", " +
+                "\"quantity\" : 2 }, \"...\" ], \"...\" : \"...\" }", order());
+    }
+
+    @Test
+    public void testUnexpectedProperty() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Size of object properties does not match.");
+        Majx.assertPojoMatches("{ \"id\" : 42, \"customer\" : \"...\", \"items\" : \"...\" }", order());
+    }
+
+    @Test
+    public void testArrayTemplateAndIgnoredPaths() {
+        Majx.assertPojoMatches(null, "{ \"items\" : { \"...each\" : { \"name\" : \"...\", \"quantity\" : 0 } }, " +
+                        "\"...\" : \"...\" }", order(), null,
+                new MatcherConfig().withIgnorePaths(asList("/items/*/quantity")), MAPPER);
+    }
+
+    @Test
+    public void testSparseArray() {
+        Majx.assertPojoMatches("{ \"items\" : { \"...at\" : { \"-1\" : { \"name\" : \"plum\", \"quantity\" : 7 } } " +
+                "}, \"...\" : \"...\" }", order());
+    }
+
+    @Test
+    public void testNull() {
+        Majx.assertPojoMatches("null", null);
+    }
+
+    @Test
+    public void testDiscardedValuesAreNotBuffered() throws IOException {
+        TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+        JsonGenerator generator = new PatternGuidedGenerator(buffer, JsonUtilsKt.convertToJsonNode("{ \"id\" : " +
+                "\"...\", \"items\" : [ { \"name\" : \"apple\", \"quantity\" : \"...\" }, \"...\" ], \"...\" : " +
+                "\"...\" }"), new MatcherConfig());
+        MAPPER.writeValue(generator, order());
+        assertThat(MAPPER.readTree(buffer.asParser()), is(JsonUtilsKt.convertToJsonNode("{ \"id\" : null, " +
+                "\"customer\" : null, \"items\" : [ { \"name\" : \"apple\", \"quantity\" : null }, null, null ], " +
+                "\"signature\" : null }")));
+    }
+}
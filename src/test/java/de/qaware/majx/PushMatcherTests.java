@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@RunWith(Parameterized.class)
+public class PushMatcherTests {
+
+    private static final String ACTUAL = "{ \"city\" : \"München\", \"items\" : [ 1, 2, 3 ], " +
+            "\"tags\" : [ \"a\", \"b\" ], \"extra\" : { \"x\" : 1 } }";
+
+    private static final String PATTERN = "{ \"city\" : \"München\", \"items\" : [ 1, \"...\" ], " +
+            "\"tags\" : { \"...each\" : \"...\" }, \"...\" : \"...\" }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final MatcherConfig config;
+
+    public PushMatcherTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    @Parameterized.Parameters(name = "streaming: {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    @Test
+    public void testSingleBytes() {
+        PushMatcher matcher = matcher(PATTERN);
+        for (byte b : ACTUAL.getBytes(UTF_8)) {
+            matcher.feed(new byte[]{b});
+        }
+        assertThat(matcher.isComplete(), is(true));
+        matcher.endOfInput();
+    }
+
+    @Test
+    public void testRandomChunks() {
+        byte[] document = ACTUAL.getBytes(UTF_8);
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            PushMatcher matcher = matcher(PATTERN);
+            int offset = 0;
+            while (offset < document.length) {
+                int length = Math.min(document.length - offset, 1 + random.nextInt(10));
+                matcher.feed(document, offset, length);
+                offset += length;
+            }
+            matcher.endOfInput();
+        }
+    }
+
+    @Test
+    public void testMismatchBeforeEndOfDocument() {
+        PushMatcher matcher = matcher("{ \"city\" : \"Berlin\", \"...\" : \"...\" }");
+        try {
+            matcher.feed("{ \"city\" : \"München\", ".getBytes(UTF_8));
+            fail("Mismatch not reported");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Error at location $.city: Value does not match"));
+        }
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.city: Value does not match");
+        matcher.feed("\"items\" : [] }".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testMismatchOfElementBeforeEndOfArray() {
+        PushMatcher matcher = matcher("[ 1, 2, \"...\" ]");
+        matcher.feed("[ 1, ".getBytes(UTF_8));
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $[1]");
+        matcher.feed("3, ".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testMismatchOfTemplateElementBeforeEndOfArray() {
+        PushMatcher matcher = matcher("{ \"...each\" : { \"id\" : \"...\", \"name\" : \"x\" } }");
+        matcher.feed("[ { \"id\" : 1, \"name\" : \"x\" }, ".getBytes(UTF_8));
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $[1].name");
+        matcher.feed("{ \"id\" : 2, \"name\" : \"y\" }".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testTypeMismatchWhenContainerStarts() {
+        PushMatcher matcher = matcher("{ \"items\" : [ \"...\" ] }");
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items");
+        matcher.feed("{ \"items\" : {".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testRandomOrderFailsWhenDocumentCompletes() {
+        PushMatcher matcher = new PushMatcher(JsonUtilsKt.convertToJsonNode("[ 1, 2 ]"), null, null,
+                config.withRandomArrayOrder(true));
+        matcher.feed("[ 2, 3 ".getBytes(UTF_8));
+        assertThat(matcher.isComplete(), is(false));
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Arrays are not equal ignoring order");
+        matcher.feed("]".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testSizeMismatchFailsWhenDocumentCompletes() {
+        PushMatcher matcher = matcher("{ \"city\" : \"München\" }");
+        matcher.feed(ACTUAL.substring(0, ACTUAL.length() - 1).getBytes(UTF_8));
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Size of object properties does not match");
+        matcher.feed("}".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testIgnoredPathIsNotCheckedEarly() {
+        PushMatcher matcher = new PushMatcher(
+                JsonUtilsKt.convertToJsonNode("{ \"city\" : \"Berlin\", \"...\" : \"...\" }"), null, null,
+                config.withIgnorePaths(Collections.singletonList("/city")));
+        matcher.feed(ACTUAL.getBytes(UTF_8));
+        matcher.endOfInput();
+    }
+
+    @Test
+    public void testScalarRoot() {
+        for (String actual : new String[]{"42", "\"abc\"", "true", "null"}) {
+            PushMatcher matcher = matcher(actual);
+            matcher.feed(actual.getBytes(UTF_8));
+            matcher.endOfInput();
+            assertThat(matcher.isComplete(), is(true));
+        }
+    }
+
+    @Test
+    public void testScalarRootMismatch() {
+        PushMatcher matcher = matcher("\"abc\"");
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $");
+        matcher.feed("\"abd\"".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testNumberRootMismatchAtEndOfInput() {
+        PushMatcher matcher = matcher("42");
+        matcher.feed("43".getBytes(UTF_8));
+
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $");
+        matcher.endOfInput();
+    }
+
+    @Test
+    public void testInvalidJson() {
+        PushMatcher matcher = matcher(PATTERN);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON");
+        matcher.feed("{ \"city\" : München }".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testContentAfterDocument() {
+        PushMatcher matcher = matcher("[]");
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Unexpected content after the document");
+        matcher.feed("[] []".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testIncompleteDocument() {
+        PushMatcher matcher = matcher(PATTERN);
+        matcher.feed("{ \"city\" : \"Münch".getBytes(UTF_8));
+        assertThat(matcher.isComplete(), is(false));
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Failed to parse actual as JSON: Unexpected end-of-input");
+        matcher.endOfInput();
+    }
+
+    private PushMatcher matcher(String pattern) {
+        return new PushMatcher(JsonUtilsKt.convertToJsonNode(pattern), null, null, config);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+@RunWith(Parameterized.class)
+public class SamplingTests {
+
+    private static final String TEMPLATE = "{ \"items\" : { \"...each\" : 1 } }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: streaming = {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final MatcherConfig config;
+
+    public SamplingTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming).withSampling(ArraySampling.stride(100));
+    }
+
+    /**
+     * @return An object with an array of the given size whose elements are 1, except for the given indices.
+     */
+    private static String items(int count, int... changed) {
+        StringBuilder builder = new StringBuilder("{ \"items\" : [");
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            builder.append(i == 0 ? "" : ",").append(Arrays.stream(changed).anyMatch(it -> it == index) ? 2 : 1);
+        }
+        return builder.append("] }").toString();
+    }
+
+    @Test
+    public void testUnsampledElementsAreNotChecked() {
+        Majx.assertJsonMatches(null, items(2000), items(2000, 101, 1501, 1989), null, config);
+        Majx.assertJsonMatches(null, TEMPLATE, items(2000, 101, 1501, 1989), null, config);
+    }
+
+    @Test
+    public void testStrideElementIsChecked() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[1500]: Element does not match");
+        exception.expectMessage("Sampled 39 of 2000 elements of $.items (every 100th element, first and last 10 " +
+                "elements): 0..9, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000, 1100, 1200, 1300, 1400, 1500, " +
+                "1600, 1700, 1800, 1900, ...");
+        Majx.assertJsonMatches(null, items(2000), items(2000, 1500), null, config);
+    }
+
+    @Test
+    public void testLastElementsOfTemplateAreChecked() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[1990]: Element does not match");
+        exception.expectMessage("Sampled 39 of 2000 elements of $.items");
+        Majx.assertJsonMatches(null, TEMPLATE, items(2000, 1989, 1990), null, config);
+    }
+
+    @Test
+    public void testSmallArraysAreCheckedCompletely() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[25]: Element does not match");
+        Majx.assertJsonMatches(null, TEMPLATE, items(50, 25, 40), null,
+                config.withSampling(ArraySampling.stride(20)));
+    }
+
+    @Test
+    public void testMinArraySize() {
+        Majx.assertJsonMatches(null, TEMPLATE, items(50, 25), null,
+                config.withSampling(ArraySampling.stride(20).withMinArraySize(50).withEdgeElements(2)));
+    }
+
+    @Test
+    public void testNegativeEdgeElements() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Number of sampling edge elements must not be negative, but is -1");
+        ArraySampling.stride(20).withEdgeElements(-1);
+    }
+
+    @Test
+    public void testNegativeMinArraySize() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Minimum size of sampled arrays must not be negative, but is -1");
+        ArraySampling.random(0.1, 42).withMinArraySize(-1);
+    }
+
+    @Test
+    public void testRandomSampleIsReported() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[0]: Element does not match");
+        exception.expectMessage("of 5000 elements of $.items (random rate 0.01, seed 42, first and last 10 " +
+                "elements): 0..9, ");
+        Majx.assertJsonMatches(null, TEMPLATE, items(5000, 0), null,
+                config.withSampling(ArraySampling.random(0.01, 42)));
+    }
+
+    @Test
+    public void testSizeIsCheckedCompletely() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items: Sizes of arrays do not match.");
+        Majx.assertJsonMatches(null, items(2000), items(2001), null, config);
+    }
+}
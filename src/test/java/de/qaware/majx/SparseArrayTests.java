@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.singletonList;
+
+@RunWith(Parameterized.class)
+public class SparseArrayTests {
+
+    private static final String ACTUAL = "{ \"items\" : [ " + IntStream.range(0, 1000)
+            .mapToObj(i -> "{ \"id\" : " + i + ", \"tags\" : [ \"t" + i + "\" ] }")
+            .collect(Collectors.joining(", ")) + " ] }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: streaming = {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final MatcherConfig config;
+
+    public SparseArrayTests(boolean streaming) {
+        this.config = new MatcherConfig().withStreaming(streaming);
+    }
+
+    private static String sparse(String at, String size) {
+        return "{ \"items\" : { \"...at\" : { " + at + " }" + (size == null ? "" : ", \"...size\" : " + size) + " } }";
+    }
+
+    private void assertMatches(String pattern) {
+        Majx.assertJsonMatches(null, pattern, ACTUAL, null, config);
+    }
+
+    @Test
+    public void testIndices() {
+        assertMatches(sparse("\"0\" : { \"id\" : 0, \"tags\" : [ \"t0\" ] }, \"500\" : { \"id\" : 500, \"tags\" : " +
+                "\"...\" }, \"-1\" : { \"id\" : 999, \"tags\" : [ \"t999\" ] }", null));
+        assertMatches(sparse("\"-1000\" : { \"id\" : 0, \"tags\" : \"...\" }, \"-2\" : { \"id\" : 998, " +
+                "\"tags\" : \"...\" }", "1000"));
+        assertMatches(sparse("", null));
+    }
+
+    @Test
+    public void testMismatchIsReportedAtActualIndex() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items[998].id: Element does not match");
+        assertMatches(sparse("\"0\" : { \"id\" : 0, \"tags\" : \"...\" }, \"-2\" : { \"id\" : 999, " +
+                "\"tags\" : \"...\" }", null));
+    }
+
+    @Test
+    public void testSizeMismatch() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items: Sizes of arrays do not match.");
+        assertMatches(sparse("\"0\" : \"...\"", "999"));
+    }
+
+    @Test
+    public void testTooShort() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items: Actual array size too small");
+        assertMatches(sparse("\"1000\" : \"...\"", null));
+    }
+
+    @Test
+    public void testNegativeIndexTooLarge() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.items: Actual array size too small");
+        assertMatches(sparse("\"-1001\" : \"...\"", null));
+    }
+
+    @Test
+    public void testNoArray() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $: Incorrect type of attribute");
+        Majx.assertJsonMatches(null, "{ \"...at\" : { \"0\" : 1 } }", "{ \"0\" : 1 }", null, config);
+    }
+
+    @Test
+    public void testIgnoredElement() {
+        Majx.assertJsonMatches(null, sparse("\"3\" : { \"id\" : 4 }", null), ACTUAL, null,
+                config.withIgnorePaths(singletonList("/items/3")));
+    }
+
+    @Test
+    public void testInvalidIndex() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Indices of sparse array must be integers, but last is not");
+        assertMatches(sparse("\"last\" : 1", null));
+    }
+}
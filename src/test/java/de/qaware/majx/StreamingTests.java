@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static de.qaware.majx.TestSupportKt.readFile;
+
+/**
+ * Tests that matching in streaming mode yields the same results as matching the completely parsed JSON.
+ */
+@RunWith(Parameterized.class)
+public class StreamingTests {
+
+    private static final MatcherConfig STREAMING = new MatcherConfig().withStreaming(true);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Parameterized.Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {
+                        "object wildcard: success with multiple additional properties",
+                        "wildcard/objectWildcard/successMultipleAdditionalElements/actual.json",
+                        "wildcard/objectWildcard/successMultipleAdditionalElements/pattern.json",
+                        null
+                },
+                {
+                        "array wildcard: success with multiple additional elements",
+                        "wildcard/arrayWildcard/successMultipleAdditionalElements/actual.json",
+                        "wildcard/arrayWildcard/successMultipleAdditionalElements/pattern.json",
+                        null
+                },
+                {
+                        "value wildcard: success with object",
+                        "wildcard/valueWildcard/successObject/actual.json",
+                        "wildcard/valueWildcard/successObject/pattern.json",
+                        null
+                },
+                {
+                        "array wildcard: error invalid start",
+                        "wildcard/arrayWildcard/errorInvalidStart/actual.json",
+                        "wildcard/arrayWildcard/errorInvalidStart/pattern.json",
+                        "wildcard/arrayWildcard/errorInvalidStart/expectedMessage.txt"
+                },
+                {
+                        "object wildcard: actual object has too few properties",
+                        "wildcard/objectWildcard/errorActualObjectTooShort/actual.json",
+                        "wildcard/objectWildcard/errorActualObjectTooShort/pattern.json",
+                        "wildcard/objectWildcard/errorActualObjectTooShort/expectedMessage.txt"
+                },
+                {
+                        "unexpected property",
+                        "unexpected/singlePropertyUnexpected/object/actual.json",
+                        "unexpected/singlePropertyUnexpected/object/pattern.json",
+                        "unexpected/singlePropertyUnexpected/object/expectedMessage.txt"
+                },
+                {
+                        "missing properties",
+                        "missing/multipleMissingProperties/object/actual.json",
+                        "missing/multipleMissingProperties/object/pattern.json",
+                        "missing/multipleMissingProperties/object/expectedMessage.txt"
+                },
+                {
+                        "type mismatch",
+                        "notMatchedValue/typeMismatch/object/actual.json",
+                        "notMatchedValue/typeMismatch/object/pattern.json",
+                        "notMatchedValue/typeMismatch/object/expectedMessage.txt"
+                },
+                {
+                        "mismatch in root type",
+                        "misc/mismatchInRootType/actual.json",
+                        "misc/mismatchInRootType/pattern.json",
+                        "misc/mismatchInRootType/expectedMessage.txt"
+                }
+        });
+    }
+
+    private final String actualPath;
+    private final String patternPath;
+    private final String expectedMessagePath;
+
+    public StreamingTests(String testName,
+                          String actualPath,
+                          String patternPath,
+                          String expectedMessagePath) {
+        this.actualPath = actualPath;
+        this.patternPath = patternPath;
+        this.expectedMessagePath = expectedMessagePath;
+    }
+
+    @Test
+    public void test() throws IOException {
+        String actual = readFile(this.actualPath);
+        String pattern = readFile(this.patternPath);
+
+        if (this.expectedMessagePath != null) {
+            String expectedMessage = readFile(this.expectedMessagePath);
+
+            exception.expect(AssertionError.class);
+            exception.expectMessage(expectedMessage);
+        }
+
+        Majx.assertJsonMatches(null, pattern, actual, null, STREAMING);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests that the scanner finds the same structural positions eight bytes at a time as one byte at a time.
+ */
+public class StructuralScannerTests {
+
+    private static final String[] FRAGMENTS = {"{", "}", "[", "]", ":", ",", " ", "\n", "\t", "\"", "\\", "\\\\",
+            "\\\"", "\\u00e9", "\\n", "a", "é", "🚀", "123", "-4.5e6", "true", "null", "\u0001", "\"key\" : ",
+            "\"text with , and ] inside\""};
+
+    private static String scan(String json, boolean swar) {
+        try {
+            return Arrays.toString(StructuralScanner.INSTANCE.scan(ByteBuffer.wrap(json.getBytes(UTF_8)), swar));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static void assertSameScan(String json) {
+        assertThat(json, scan(json, true), is(scan(json, false)));
+    }
+
+    @Test
+    public void testPositions() {
+        assertThat(scan("{ \"a\\\"]\" : [ 1, true ] }", true), is("[0, 2, 9, 11, 13, 14, 16, 21, 23]"));
+    }
+
+    @Test
+    public void testBlockBoundaries() {
+        for (int padding = 50; padding < 80; padding++) {
+            char[] spaces = new char[padding];
+            Arrays.fill(spaces, ' ');
+            String prefix = new String(spaces);
+            assertSameScan(prefix + "\"a\\\\\\\"b\" : [ 12345678, \"x\" ]");
+            assertSameScan("[" + prefix + "\"" + prefix + "\\\"" + prefix + "\", 123456789012345678901234567890 ]");
+            assertSameScan("[ \"" + prefix + "\\\\\", \"\\u00e9" + prefix + "\" ]");
+            assertSameScan("[ \"" + prefix + "\\");
+            assertSameScan("[ \"" + prefix + "\\x\" ]");
+            assertSameScan("[ \"" + prefix + "\\u12\" ]");
+            assertSameScan("[ \"" + prefix + "\u001f\" ]");
+        }
+    }
+
+    @Test
+    public void testRandomDocuments() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder json = new StringBuilder();
+            int fragments = random.nextInt(60);
+            for (int j = 0; j < fragments; j++) {
+                json.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameScan(json.toString());
+        }
+    }
+
+    @Test
+    public void testUnterminatedString() {
+        assertThat(scan("[ \"a\", \"b ]", true), is("Failed to parse actual as JSON: Unterminated string at byte 7"));
+    }
+}
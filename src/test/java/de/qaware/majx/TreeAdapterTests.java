@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import de.qaware.majx.gson.GsonTreeAdapter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TreeAdapterTests {
+
+    private static final String PATTERN = "{ \"id\" : 7, \"name\" : \"{{name}}\", \"price\" : 1.5, \"tags\" : [ " +
+            "\"a\", \"...\" ], \"owner\" : null, \"active\" : true, \"...\" : \"...\" }";
+
+    private static final String ACTUAL = "{ \"id\" : 7, \"name\" : \"cart\", \"price\" : 1.5, " +
+            "\"tags\" : [ \"a\", \"b\" ], \"owner\" : null, \"active\" : true, \"extra\" : { \"x\" : 1 } }";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static Map<String, Object> mapDocument(Object price) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("id", 7L);
+        document.put("name", "cart");
+        document.put("price", price);
+        document.put("tags", Arrays.asList("a", "b"));
+        document.put("owner", null);
+        document.put("active", true);
+        document.put("extra", ImmutableMap.of("x", 1));
+        return document;
+    }
+
+    private static void assertMatches(String pattern, Object actual, JsonTreeAdapter<Object> adapter) {
+        Majx.assertJsonTreeMatches(null, pattern, actual, adapter, ImmutableMap.of("name", "cart"),
+                new MatcherConfig());
+    }
+
+    @Test
+    public void testMapList() {
+        assertMatches(PATTERN, mapDocument(1.5), MapListTreeAdapter.INSTANCE);
+        assertMatches(PATTERN, mapDocument(new BigDecimal("1.5")), MapListTreeAdapter.INSTANCE);
+    }
+
+    @Test
+    public void testMapListMismatch() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.price: Element does not match");
+        exception.expectMessage("\"extra\" : {\n    \"x\" : 1\n  }");
+        assertMatches(PATTERN, mapDocument(2.5), MapListTreeAdapter.INSTANCE);
+    }
+
+    @Test
+    public void testMissingProperty() {
+        Map<String, Object> document = mapDocument(1.5);
+        document.remove("owner");
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $:  Expected field name 'owner' not found.");
+        Majx.assertJsonTreeMatches("{ \"owner\" : null, \"id\" : 7, \"name\" : \"...\", \"price\" : \"...\", " +
+                "\"tags\" : \"...\", \"active\" : \"...\", \"...\" : \"...\" }", document, MapListTreeAdapter.INSTANCE);
+    }
+
+    @Test
+    public void testGson() {
+        JsonElement document = JsonParser.parseString(ACTUAL);
+        Majx.assertJsonTreeMatches(null, PATTERN, document, GsonTreeAdapter.INSTANCE, ImmutableMap.of("name", "cart"),
+                new MatcherConfig().withRandomArrayOrder(true));
+    }
+
+    @Test
+    public void testGsonMismatch() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Error at location $.tags[0]: Value does not match");
+        Majx.assertJsonTreeMatches("{ \"tags\" : [ \"b\", \"...\" ], \"...\" : \"...\" }",
+                JsonParser.parseString(ACTUAL), GsonTreeAdapter.INSTANCE);
+    }
+
+    @Test
+    public void testViewNodesAreCreatedOnce() {
+        com.fasterxml.jackson.databind.JsonNode view = JsonTreeAdapterKt.viewAsJsonNode(mapDocument(1.5),
+                MapListTreeAdapter.INSTANCE);
+        assertThat(view.get("extra"), sameInstance(view.get("extra")));
+        assertThat(view.get("tags").get(1), sameInstance(view.get("tags").get(1)));
+        assertThat(view, is(JsonUtilsKt.convertToJsonNode(ACTUAL)));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.junit5;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.qaware.majx.Majx;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static de.qaware.majx.JsonUtilsKt.convertToJsonNode;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+@ExtendWith(MajxExtension.class)
+public class MajxExtensionTests {
+
+    private static final String ORDER = "{ \"id\" : 1, \"customer\" : \"c1\", \"items\" : [ \"i1\" ] }";
+
+    @JsonPattern("junit5/order.json")
+    private static JsonNode staticOrderPattern;
+
+    @JsonPattern("/junit5/order.json")
+    private JsonNode orderPattern;
+
+    @Test
+    public void testFieldIsInjected() {
+        Majx.assertJsonMatches(orderPattern, convertToJsonNode(ORDER));
+    }
+
+    @Test
+    public void testStaticFieldIsInjected() {
+        assertThat(staticOrderPattern, sameInstance(orderPattern));
+    }
+
+    @Test
+    public void testParameterIsInjected(@JsonPattern("junit5/customer.json") JsonNode customerPattern) {
+        Majx.assertJsonMatches(customerPattern, convertToJsonNode("{ \"name\" : \"c1\", \"city\" : \"München\" }"));
+    }
+
+    @Test
+    public void testMissingResource() {
+        PatternCache patterns = new PatternCache();
+        try {
+            patterns.get(getClass().getClassLoader(), "junit5/missing.json");
+            throw new AssertionError("Missing resource not reported");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("Pattern resource 'junit5/missing.json' not found"));
+        }
+    }
+
+    @Test
+    public void testInvalidResource() {
+        PatternCache patterns = new PatternCache();
+        patterns.preload(getClass().getClassLoader(), "junit5/invalid.json");
+        try {
+            patterns.get(getClass().getClassLoader(), "junit5/invalid.json");
+            throw new AssertionError("Invalid resource not reported");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("Failed to parse pattern 'junit5/invalid.json' as JSON"));
+        }
+    }
+
+    @Test
+    public void testPatternIsLoadedOnceForAllThreads() throws Exception {
+        PatternCache patterns = new PatternCache();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<JsonNode>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> patterns.get(getClass().getClassLoader(), "junit5/order.json")));
+            }
+            JsonNode first = futures.get(0).get();
+            for (Future<JsonNode> future : futures) {
+                assertThat(future.get(), sameInstance(first));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 QAware GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.qaware.majx.reactive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import de.qaware.majx.MatcherConfig;
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.qaware.majx.JsonUtilsKt.convertToJsonNode;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
+
+public class MatchingProcessorTests {
+
+    private static final JsonNode PATTERN = convertToJsonNode("{ \"id\" : \"...\", \"type\" : \"event\" }");
+
+    private static final MatcherConfig CONFIG = new MatcherConfig();
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final AtomicInteger executed = new AtomicInteger();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAllDocumentsMatch() {
+        DocumentPublisher publisher = new DocumentPublisher(1000, -1);
+        MatchingSubscriber subscriber = new MatchingSubscriber(PATTERN, null, null, CONFIG, this::execute, 8);
+        publisher.subscribe(subscriber);
+
+        assertThat(subscriber.await(TIMEOUT), is(1000L));
+        assertThat(publisher.maxOutstanding.get(), lessThanOrEqualTo(8L));
+        assertThat(executed.get() > 0, is(true));
+    }
+
+    @Test
+    public void testMismatchCancelsUnboundedStream() throws InterruptedException {
+        DocumentPublisher publisher = new DocumentPublisher(Long.MAX_VALUE, 50);
+        MatchingSubscriber subscriber = new MatchingSubscriber(PATTERN, "Events", null, CONFIG, this::execute, 8);
+        publisher.subscribe(subscriber);
+
+        try {
+            subscriber.await(TIMEOUT);
+            fail("Mismatch not reported");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Events"));
+            assertThat(e.getMessage(), containsString("Error at location $.type"));
+        }
+        assertThat(publisher.cancelled.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(publisher.emitted.get(), lessThanOrEqualTo(50L + 8L));
+    }
+
+    @Test
+    public void testProcessorPublishesResultsWithDemandOfSubscriber() throws InterruptedException {
+        DocumentPublisher publisher = new DocumentPublisher(100, 10);
+        MatchingProcessor processor = new MatchingProcessor(PATTERN, null, null, CONFIG, this::execute, 4);
+        publisher.subscribe(processor);
+        ResultSubscriber results = new ResultSubscriber();
+        processor.subscribe(results);
+
+        assertThat(results.terminated.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(results.error, is((Throwable) null));
+        assertThat(results.results.size(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(results.results.get(i).getIndex(), is((long) i));
+            assertThat(results.results.get(i).isMatch(), is(i != 10));
+        }
+        assertThat(publisher.maxOutstanding.get(), lessThanOrEqualTo(4L));
+    }
+
+    @Test
+    public void testErrorMessageDoesNotDependOnLaterDocuments() throws InterruptedException {
+        // The budget suffices for the diagnostics of one document, but not for those of all documents together
+        MatcherConfig config = new MatcherConfig().withRandomArrayOrder(true).withMaxComparisons(200);
+        MatchingProcessor processor = new MatchingProcessor(convertToJsonNode("[ { \"id\" : 1 }, { \"id\" : 2 } ]"),
+                null, null, config, this::execute, 4);
+        ResultSubscriber results = new ResultSubscriber();
+        processor.subscribe(results);
+        processor.onSubscribe(new NoSubscription());
+        processor.onNext(convertToJsonNode("[ { \"id\" : 2 }, { \"id\" : 3 } ]"));
+        for (int i = 0; i < 20; i++) {
+            processor.onNext(convertToJsonNode("[ { \"id\" : 2 }, { \"id\" : 1 } ]"));
+        }
+        processor.onComplete();
+
+        assertThat(results.terminated.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(results.results.size(), is(21));
+        for (int i = 1; i < 21; i++) {
+            assertThat(results.results.get(i).isMatch(), is(true));
+        }
+        AssertionError error = results.results.get(0).getError();
+        assertThat(error.getMessage(), containsString("Unmatched pattern element [0] {\"id\":1}"));
+        assertThat(error.getMessage(), not(containsString("match budget is exceeded")));
+        assertThat(error.getCause().getMessage(), not(containsString("match budget is exceeded")));
+    }
+
+    @Test
+    public void testPublisherErrorIsPublishedAfterResults() throws InterruptedException {
+        DocumentPublisher publisher = new DocumentPublisher(3, -1);
+        publisher.failAtEnd = true;
+        MatchingProcessor processor = new MatchingProcessor(PATTERN, null, null, CONFIG, this::execute, 4);
+        publisher.subscribe(processor);
+        ResultSubscriber results = new ResultSubscriber();
+        processor.subscribe(results);
+
+        assertThat(results.terminated.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(results.results.size(), is(3));
+        assertThat(results.error.getMessage(), is("Publisher failed"));
+    }
+
+    @Test
+    public void testPublisherErrorFailsAwait() {
+        DocumentPublisher publisher = new DocumentPublisher(3, -1);
+        publisher.failAtEnd = true;
+        MatchingSubscriber subscriber = new MatchingSubscriber(PATTERN, null, null, CONFIG, this::execute, 4);
+        publisher.subscribe(subscriber);
+
+        try {
+            subscriber.await(TIMEOUT);
+            fail("Publisher error not reported");
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause().getMessage(), is("Publisher failed"));
+        }
+    }
+
+    @Test
+    public void testIncompleteStreamTimesOut() {
+        MatchingSubscriber subscriber = MatchingSubscriber.of("{ \"...\" : \"...\" }");
+        subscriber.onSubscribe(new NoSubscription());
+
+        try {
+            subscriber.await(Duration.ofMillis(50));
+            fail("Timeout not reported");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("did not complete"));
+        }
+    }
+
+    @Test
+    public void testSecondSubscriberIsRejected() throws InterruptedException {
+        MatchingProcessor processor = MatchingProcessor.of("{ \"...\" : \"...\" }");
+        processor.subscribe(new ResultSubscriber());
+        ResultSubscriber second = new ResultSubscriber();
+        processor.subscribe(second);
+
+        assertThat(second.terminated.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(second.error, instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    public void testNonPositiveRequestIsRejected() throws InterruptedException {
+        DocumentPublisher publisher = new DocumentPublisher(Long.MAX_VALUE, -1);
+        MatchingProcessor processor = new MatchingProcessor(PATTERN, null, null, CONFIG, this::execute, 4);
+        publisher.subscribe(processor);
+        ResultSubscriber results = new ResultSubscriber();
+        results.initialRequest = 0;
+        processor.subscribe(results);
+
+        assertThat(results.terminated.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(results.error, instanceOf(IllegalArgumentException.class));
+        assertThat(publisher.cancelled.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(publisher.emitted.get(), lessThan(5L));
+    }
+
+    private void execute(Runnable task) {
+        executed.incrementAndGet();
+        executor.execute(task);
+    }
+
+    private static JsonNode document(long index, boolean matching) {
+        return JsonNodeFactory.instance.objectNode()
+                .put("id", index)
+                .put("type", matching ? "event" : "other");
+    }
+
+    /**
+     * Publishes documents on request in the requesting thread and records the demand.
+     */
+    private static class DocumentPublisher implements Publisher<JsonNode> {
+
+        private final long count;
+        private final long mismatchIndex;
+        private final AtomicLong emitted = new AtomicLong();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicLong maxOutstanding = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+        private volatile boolean failAtEnd;
+        private volatile boolean done;
+
+        DocumentPublisher(long count, long mismatchIndex) {
+            this.count = count;
+            this.mismatchIndex = mismatchIndex;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super JsonNode> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    long outstanding = requested.addAndGet(n) - emitted.get();
+                    maxOutstanding.accumulateAndGet(outstanding, Math::max);
+                    if (work.getAndIncrement() == 0) {
+                        do {
+                            emit(subscriber);
+                        } while (work.decrementAndGet() != 0);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    done = true;
+                    cancelled.countDown();
+                }
+            });
+        }
+
+        private void emit(Subscriber<? super JsonNode> subscriber) {
+            while (!done && emitted.get() < requested.get() && emitted.get() < count) {
+                long index = emitted.getAndIncrement();
+                subscriber.onNext(document(index, index != mismatchIndex));
+            }
+            if (!done && emitted.get() == count) {
+                done = true;
+                if (failAtEnd) {
+                    subscriber.onError(new IllegalStateException("Publisher failed"));
+                } else {
+                    subscriber.onComplete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Requests one result after the other and collects them.
+     */
+    private static class ResultSubscriber implements Subscriber<MatchResult> {
+
+        private final List<MatchResult> results = new ArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Throwable error;
+        private long initialRequest = 1;
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(MatchResult result) {
+            results.add(result);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+    }
+
+    private static class NoSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}